@@ -2,15 +2,24 @@ package uk.ac.ed.inf;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Main class to run the application.
  */
 public class App {
 
+    /**
+     * Argument that makes the application also write the compressed flight path and the simplified GeoJSON
+     * flight path, alongside the per-move files.
+     */
+    public static final String COMPRESSED_OUTPUT_FLAG = "--compressed";
+
     /**
      * Calls the deliverOrders() method in the Drone class to deliver valid orders on a given day, and
-     * prints the number of valid orders, number of delivered orders and remaining moves of the drone.
+     * prints the number of valid orders, number of delivered orders and remaining moves of the drone, and the
+     * orders not delivered because a route search was abandoned.
      * @param drone Drone object representing the drone that delivered orders.
      * @throws IOException if the orders could not be fetched from the REST server.
      */
@@ -29,18 +38,28 @@ public class App {
         System.out.println("Valid orders: " + validCount);
         System.out.println("Delivered: " + delivered);
         System.out.println("Drone moves remaining: " + drone.getMovesRemaining());
+        for (Order order : drone.getAbandonedOrders()) {
+            System.out.println("Not delivered, route search abandoned: " + order.getOrderNo());
+        }
     }
 
     /**
      * Main method of the program to read the date and rest server url arguments, initialise
      * the world state for the given date and then call the makeDeliveries method.
-     * @param args the date and rest server's base url arguments.
+     * @param args the date and rest server's base url arguments, optionally followed by "key=value"
+     *             overrides of the drone configuration (see DroneConfig) and COMPRESSED_OUTPUT_FLAG.
      */
     public static void main(String[] args) {
         try {
             LocalDate date = LocalDate.parse(args[0]);
             String baseUrl = args[1];
 
+            ArrayList<String> overrides = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+            boolean compressedOutput = overrides.remove(COMPRESSED_OUTPUT_FLAG);
+
+            // Apply configuration overrides before any planning class reads the configuration.
+            DroneConfig.configure(overrides.toArray(new String[0]));
+
             // Setting the base url of the REST server in the ResponseFetcher class, and the date for which
             // data is being fetched.
             DataFetcher dataFetcher = DataFetcher.getInstance();
@@ -58,6 +77,12 @@ public class App {
             JsonMaker.createDeliveriesJson(); // Create deliveries JSON file.
             JsonMaker.createFlightPathJson(drone.getAllDroneMoves()); // Create JSON file for flight path.
             JsonMaker.createDroneGeoJson(drone.getAllDroneMoves()); // Create GeoJSON file for drone flight path.
+            if (compressedOutput) {
+                // Create JSON and GeoJSON files for the flight path with one entry per run of moves.
+                CompressedFlightPath flightPath = drone.getCompressedFlightPath();
+                JsonMaker.createCompressedFlightPathJson(flightPath);
+                JsonMaker.createSimplifiedDroneGeoJson(flightPath);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
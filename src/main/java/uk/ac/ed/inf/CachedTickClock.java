@@ -0,0 +1,41 @@
+package uk.ac.ed.inf;
+
+/**
+ * Clock counting the nanoseconds elapsed since it was created, reading the system timer only when the clock is
+ * advanced. Every node created while expanding one node gets the same time, so the system timer is read once per
+ * expansion rather than once per neighbour.
+ */
+public class CachedTickClock implements TickClock {
+
+    // Field to store the value of the system timer when the clock was created.
+    private final long startTime;
+
+    // Field to store the nanoseconds elapsed when the clock was last advanced. Volatile, as a clock may be shared
+    // by searches running on several threads.
+    private volatile long cachedTicks;
+
+    /**
+     * Class constructor to initialise a new clock, started now.
+     */
+    public CachedTickClock() {
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Method to get the nanoseconds elapsed between the creation of the clock and the last time it was advanced.
+     * @return The nanoseconds elapsed.
+     */
+    @Override
+    public long getTicks() {
+        return this.cachedTicks;
+    }
+
+    /**
+     * Method to advance the clock by reading the system timer.
+     */
+    @Override
+    public void advance() {
+        this.cachedTicks = System.nanoTime() - this.startTime;
+    }
+
+}
@@ -0,0 +1,161 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+
+/**
+ * Class to represent the central area polygon, with a precomputed classification of the cells of a grid over
+ * its bounding box as inside, outside or near the boundary. Points and moves away from the boundary are
+ * classified with a bounding box check and one cell lookup, and the polygon's edges are only tested near the
+ * boundary, where a move of one drone length could cross it.
+ */
+public class CentralArea {
+
+    // Classification of a grid cell wholly outside the central area.
+    private static final byte OUTSIDE = 0;
+
+    // Classification of a grid cell wholly inside the central area.
+    private static final byte INSIDE = 1;
+
+    // Classification of a grid cell within one move length of the central area boundary.
+    private static final byte NEAR_BOUNDARY = 2;
+
+    // Width and height (in degrees) of each grid cell.
+    private static final double CELL_SIZE = Drone.MOVE_LENGTH;
+
+    // Coordinates of each edge of the polygon, including the edge closing it, as
+    // {startLng, startLat, endLng, endLat}.
+    private final double[][] edges;
+
+    // Bounding box of the grid: the polygon's bounding box grown by one move length and one cell.
+    private final double minLng;
+    private final double minLat;
+    private final double maxLng;
+    private final double maxLat;
+
+    // Number of columns and rows of cells in the grid.
+    private final int columns;
+    private final int rows;
+
+    // Classification of each cell of the grid, with the cell in a column and row at row * columns + column.
+    private final byte[] cellClasses;
+
+    /**
+     * Class constructor to initialise the central area from its vertices and classify the grid's cells.
+     * @param vertices The vertices of the central area. The polygon is closed whether or not the last vertex
+     *                 repeats the first.
+     */
+    public CentralArea(LngLat[] vertices) {
+        int vertexCount = vertices.length;
+        if (vertexCount > 1 && vertices[0].equals(vertices[vertexCount - 1])) {
+            vertexCount--;
+        }
+        this.edges = new double[vertexCount][];
+        double polygonMinLng = Double.POSITIVE_INFINITY;
+        double polygonMinLat = Double.POSITIVE_INFINITY;
+        double polygonMaxLng = Double.NEGATIVE_INFINITY;
+        double polygonMaxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertexCount; i++) {
+            LngLat start = vertices[i];
+            LngLat end = vertices[(i + 1) % vertexCount];
+            this.edges[i] = new double[] {start.lng(), start.lat(), end.lng(), end.lat()};
+            polygonMinLng = Math.min(polygonMinLng, start.lng());
+            polygonMinLat = Math.min(polygonMinLat, start.lat());
+            polygonMaxLng = Math.max(polygonMaxLng, start.lng());
+            polygonMaxLat = Math.max(polygonMaxLat, start.lat());
+        }
+        double margin = Drone.MOVE_LENGTH + CELL_SIZE;
+        this.minLng = polygonMinLng - margin;
+        this.minLat = polygonMinLat - margin;
+        this.maxLng = polygonMaxLng + margin;
+        this.maxLat = polygonMaxLat + margin;
+        this.columns = (int) Math.ceil((this.maxLng - this.minLng) / CELL_SIZE);
+        this.rows = (int) Math.ceil((this.maxLat - this.minLat) / CELL_SIZE);
+
+        // A cell is near the boundary if any point in it is within one move length of an edge.
+        double cellRadius = CELL_SIZE * Math.sqrt(0.5);
+        double nearDistanceSq = (Drone.MOVE_LENGTH + cellRadius) * (Drone.MOVE_LENGTH + cellRadius);
+        this.cellClasses = new byte[this.columns * this.rows];
+        for (int row = 0; row < this.rows; row++) {
+            for (int column = 0; column < this.columns; column++) {
+                double centreLng = this.minLng + (column + 0.5) * CELL_SIZE;
+                double centreLat = this.minLat + (row + 0.5) * CELL_SIZE;
+                byte cellClass = this.containsExactly(centreLng, centreLat) ? INSIDE : OUTSIDE;
+                for (double[] edge : this.edges) {
+                    if (Line2D.ptSegDistSq(edge[0], edge[1], edge[2], edge[3], centreLng, centreLat) < nearDistanceSq) {
+                        cellClass = NEAR_BOUNDARY;
+                        break;
+                    }
+                }
+                this.cellClasses[row * this.columns + column] = cellClass;
+            }
+        }
+    }
+
+    /**
+     * Method to check if a point is inside the central area.
+     * @param point The point to check.
+     * @return True if the point is inside the central area, false otherwise.
+     */
+    public boolean isInside(LngLat point) {
+        byte cellClass = this.getCellClass(point);
+        if (cellClass == NEAR_BOUNDARY) {
+            return this.containsExactly(point.lng(), point.lat());
+        }
+        return cellClass == INSIDE;
+    }
+
+    /**
+     * Method to check if a move between two points crosses the central area boundary. A move starting more than
+     * one move length from the boundary cannot reach it, so its edges are only tested for moves starting near it.
+     * @param from The start of the move, at most one move length from its end.
+     * @param to The end of the move.
+     * @return True if the move crosses an edge of the central area, false otherwise.
+     */
+    public boolean moveCrossesBoundary(LngLat from, LngLat to) {
+        if (this.getCellClass(from) != NEAR_BOUNDARY) {
+            return false;
+        }
+        for (double[] edge : this.edges) {
+            if (Line2D.linesIntersect(edge[0], edge[1], edge[2], edge[3], from.lng(), from.lat(), to.lng(), to.lat())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to get the classification of the grid cell containing a point. Points outside the grid are
+     * outside the central area.
+     * @param point The point.
+     * @return The classification of the cell containing the point.
+     */
+    private byte getCellClass(LngLat point) {
+        if (point.lng() < this.minLng || point.lng() >= this.maxLng
+                || point.lat() < this.minLat || point.lat() >= this.maxLat) {
+            return OUTSIDE;
+        }
+        int column = Math.min((int) ((point.lng() - this.minLng) / CELL_SIZE), this.columns - 1);
+        int row = Math.min((int) ((point.lat() - this.minLat) / CELL_SIZE), this.rows - 1);
+        return this.cellClasses[row * this.columns + column];
+    }
+
+    /**
+     * Method to check if a point is inside the polygon by counting the edges crossed by a ray cast east from it.
+     * @param lng The longitude of the point.
+     * @param lat The latitude of the point.
+     * @return True if the point is inside the polygon, false otherwise.
+     */
+    private boolean containsExactly(double lng, double lat) {
+        boolean inside = false;
+        for (double[] edge : this.edges) {
+            if ((edge[1] > lat) != (edge[3] > lat)) {
+                double crossingLng = edge[0] + (lat - edge[1]) * (edge[2] - edge[0]) / (edge[3] - edge[1]);
+                if (lng < crossingLng) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+}
@@ -0,0 +1,342 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class to represent a coarse grid of square cells, many drone moves wide, classified as blocked if they overlap
+ * a no-fly zone and free otherwise. A route found across the free cells gives the waypoints a path on the drone's
+ * exact move lattice is refined through, and the corridor of cells the refining searches are confined to, so long
+ * legs around no-fly zones are searched in short segments near the route.
+ * <p>
+ * The grid is unbounded: cells are addressed by their column and row counted from longitude and latitude 0, and
+ * each cell is classified the first time it is needed. A route search is bounded by the box around its end points
+ * and every no-fly zone, grown by a margin of cells, so it cannot wander off when no route exists.
+ */
+public class CoarseGrid {
+
+    /**
+     * Width and height (in drone moves) of each cell.
+     */
+    public static final int CELL_MOVES = 16;
+
+    // Number of cells the box searched for a route extends beyond its end points and the no-fly zones.
+    private static final int SEARCH_MARGIN_CELLS = 2;
+
+    // Column and row offsets of the 8 neighbours of a cell, the 4 sides first.
+    private static final int[][] NEIGHBOUR_OFFSETS = {
+            {1, 0}, {0, 1}, {-1, 0}, {0, -1}, {1, 1}, {-1, 1}, {-1, -1}, {1, -1}
+    };
+
+    // Width and height (in degrees) of each cell.
+    private final double cellSize;
+
+    // No-fly zones the cells are classified against, and their polygons and bounding boxes.
+    private final NoFlyZone[] noFlyZones;
+    private final Path2D[] zonePolygons;
+    private final Rectangle2D[] zoneBounds;
+
+    // Bounding box (in cells) of every no-fly zone.
+    private final int minZoneColumn;
+    private final int minZoneRow;
+    private final int maxZoneColumn;
+    private final int maxZoneRow;
+
+    // Classification of each cell classified so far, keyed by the cell's packed column and row. Concurrent, as
+    // a grid may be shared by searches running on several threads.
+    private final ConcurrentHashMap<Long, Boolean> blockedCells = new ConcurrentHashMap<>();
+
+    /**
+     * Record to represent a cell on the open list of a route search.
+     * @param key The packed column and row of the cell.
+     * @param fCost The length (in cells) of the route to the cell plus the estimated length from it to the target.
+     */
+    private record OpenCell(long key, double fCost) {
+
+    }
+
+    /**
+     * Class constructor to initialise a new coarse grid over a set of no-fly zones, with cells CELL_MOVES drone
+     * moves wide.
+     * @param noFlyZones The no-fly zones that block cells.
+     */
+    public CoarseGrid(NoFlyZone[] noFlyZones) {
+        this.cellSize = CELL_MOVES * Drone.MOVE_LENGTH;
+        this.noFlyZones = noFlyZones;
+        this.zonePolygons = new Path2D[noFlyZones.length];
+        this.zoneBounds = new Rectangle2D[noFlyZones.length];
+        int minColumn = Integer.MAX_VALUE;
+        int minRow = Integer.MAX_VALUE;
+        int maxColumn = Integer.MIN_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        for (int i = 0; i < noFlyZones.length; i++) {
+            LngLat[] vertices = noFlyZones[i].getCoordinatesLngLat();
+            Path2D polygon = new Path2D.Double();
+            polygon.moveTo(vertices[0].lng(), vertices[0].lat());
+            for (LngLat vertex : vertices) {
+                polygon.lineTo(vertex.lng(), vertex.lat());
+                minColumn = Math.min(minColumn, this.getColumn(vertex.lng()));
+                minRow = Math.min(minRow, this.getRow(vertex.lat()));
+                maxColumn = Math.max(maxColumn, this.getColumn(vertex.lng()));
+                maxRow = Math.max(maxRow, this.getRow(vertex.lat()));
+            }
+            polygon.closePath();
+            this.zonePolygons[i] = polygon;
+            this.zoneBounds[i] = polygon.getBounds2D();
+        }
+        this.minZoneColumn = minColumn;
+        this.minZoneRow = minRow;
+        this.maxZoneColumn = maxColumn;
+        this.maxZoneRow = maxRow;
+    }
+
+    /**
+     * Method to get the no-fly zones the cells are classified against.
+     * @return The no-fly zones.
+     */
+    public NoFlyZone[] getNoFlyZones() {
+        return this.noFlyZones;
+    }
+
+    /**
+     * Method to get the key of the cell containing a point, which packs its column and row into one number.
+     * @param point The point.
+     * @return The key of the cell.
+     */
+    public long getCellKey(LngLat point) {
+        return getCellKey(this.getColumn(point.lng()), this.getRow(point.lat()));
+    }
+
+    /**
+     * Method to find the shortest route across free cells between the cells of two points, with 8-connected
+     * moves that do not cut the corner of a blocked cell. The cells of the two points are treated as free, as a
+     * point next to a no-fly zone shares its cell with the zone.
+     * @param start The start point of the route.
+     * @param end The end point of the route.
+     * @return The keys of the cells on the route, from the start point's cell to the end point's cell, or null if
+     *         no route exists within the searched box.
+     */
+    public ArrayList<Long> findRoute(LngLat start, LngLat end) {
+        int startColumn = this.getColumn(start.lng());
+        int startRow = this.getRow(start.lat());
+        int endColumn = this.getColumn(end.lng());
+        int endRow = this.getRow(end.lat());
+        long startKey = getCellKey(startColumn, startRow);
+        long endKey = getCellKey(endColumn, endRow);
+        int minColumn = Math.min(Math.min(startColumn, endColumn), this.minZoneColumn) - SEARCH_MARGIN_CELLS;
+        int minRow = Math.min(Math.min(startRow, endRow), this.minZoneRow) - SEARCH_MARGIN_CELLS;
+        int maxColumn = Math.max(Math.max(startColumn, endColumn), this.maxZoneColumn) + SEARCH_MARGIN_CELLS;
+        int maxRow = Math.max(Math.max(startRow, endRow), this.maxZoneRow) + SEARCH_MARGIN_CELLS;
+
+        // A* search over the cells, with the octile distance to the end cell as the heuristic.
+        PriorityQueue<OpenCell> openList = new PriorityQueue<>((a, b) -> Double.compare(a.fCost(), b.fCost()));
+        HashMap<Long, Double> gCosts = new HashMap<>();
+        HashMap<Long, Long> parents = new HashMap<>();
+        HashSet<Long> closedCells = new HashSet<>();
+        gCosts.put(startKey, 0.0);
+        openList.add(new OpenCell(startKey, octileDistance(startColumn, startRow, endColumn, endRow)));
+        while (!openList.isEmpty()) {
+            long key = openList.poll().key();
+            if (key == endKey) {
+                ArrayList<Long> route = new ArrayList<>();
+                for (Long routeKey = key; routeKey != null; routeKey = parents.get(routeKey)) {
+                    route.add(0, routeKey);
+                }
+                return route;
+            }
+            if (!closedCells.add(key)) {
+                continue; // Already explored through a route that is at least as short.
+            }
+            int column = getKeyColumn(key);
+            int row = getKeyRow(key);
+            for (int k = 0; k < NEIGHBOUR_OFFSETS.length; k++) {
+                int neighbourColumn = column + NEIGHBOUR_OFFSETS[k][0];
+                int neighbourRow = row + NEIGHBOUR_OFFSETS[k][1];
+                long neighbourKey = getCellKey(neighbourColumn, neighbourRow);
+                if (neighbourColumn < minColumn || neighbourColumn > maxColumn || neighbourRow < minRow
+                        || neighbourRow > maxRow || closedCells.contains(neighbourKey)) {
+                    continue;
+                }
+                if (neighbourKey != endKey && this.isBlocked(neighbourColumn, neighbourRow)) {
+                    continue;
+                }
+                boolean diagonal = k >= 4;
+                if (diagonal && (this.isBlocked(neighbourColumn, row) || this.isBlocked(column, neighbourRow))) {
+                    continue; // The move would cut the corner of a blocked cell.
+                }
+                double gCost = gCosts.get(key) + (diagonal ? Math.sqrt(2) : 1);
+                Double knownGCost = gCosts.get(neighbourKey);
+                if (knownGCost == null || gCost < knownGCost) {
+                    gCosts.put(neighbourKey, gCost);
+                    parents.put(neighbourKey, key);
+                    openList.add(new OpenCell(neighbourKey,
+                            gCost + octileDistance(neighbourColumn, neighbourRow, endColumn, endRow)));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to get the cells within a radius of every cell on a route.
+     * @param route The keys of the cells on the route.
+     * @param radius The number of cells either side of the route included.
+     * @return The keys of the cells within the radius of the route.
+     */
+    public HashSet<Long> getCorridor(ArrayList<Long> route, int radius) {
+        HashSet<Long> corridor = new HashSet<>();
+        for (long key : route) {
+            int column = getKeyColumn(key);
+            int row = getKeyRow(key);
+            for (int columnOffset = -radius; columnOffset <= radius; columnOffset++) {
+                for (int rowOffset = -radius; rowOffset <= radius; rowOffset++) {
+                    corridor.add(getCellKey(column + columnOffset, row + rowOffset));
+                }
+            }
+        }
+        return corridor;
+    }
+
+    /**
+     * Method to get the waypoints a path following a route passes through: the centres of the cells where the
+     * route turns, skipping every cell that can be passed by a straight line across free cells from the previous
+     * waypoint. The start cell is not a waypoint, and the last waypoint is the centre of the end cell.
+     * @param route The keys of the cells on the route.
+     * @return The waypoints, in the order they are passed.
+     */
+    public ArrayList<LngLat> getWaypoints(ArrayList<Long> route) {
+        ArrayList<LngLat> waypoints = new ArrayList<>();
+        LngLat lastWaypoint = this.getCellCentre(route.get(0));
+        for (int i = 1; i < route.size(); i++) {
+            boolean lastCell = i == route.size() - 1;
+            if (lastCell || !this.isLineFree(lastWaypoint, this.getCellCentre(route.get(i + 1)))) {
+                lastWaypoint = this.getCellCentre(route.get(i));
+                waypoints.add(lastWaypoint);
+            }
+        }
+        return waypoints;
+    }
+
+    /**
+     * Method to check whether a straight line only passes through free cells, sampling it every quarter cell.
+     * @param from The start of the line.
+     * @param to The end of the line.
+     * @return True if every sampled point on the line is in a free cell, false otherwise.
+     */
+    private boolean isLineFree(LngLat from, LngLat to) {
+        int samples = (int) Math.ceil(4 * from.distanceTo(to) / this.cellSize);
+        for (int i = 1; i < samples; i++) {
+            double fraction = (double) i / samples;
+            double lng = from.lng() + fraction * (to.lng() - from.lng());
+            double lat = from.lat() + fraction * (to.lat() - from.lat());
+            if (this.isBlocked(this.getColumn(lng), this.getRow(lat))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to get the centre point of a cell.
+     * @param key The key of the cell.
+     * @return The centre point of the cell.
+     */
+    private LngLat getCellCentre(long key) {
+        return new LngLat((getKeyColumn(key) + 0.5) * this.cellSize, (getKeyRow(key) + 0.5) * this.cellSize);
+    }
+
+    /**
+     * Method to get the width and height (in degrees) of each cell.
+     * @return The size of each cell.
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Method to check whether a cell overlaps a no-fly zone, classifying it the first time it is checked.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return True if the cell overlaps a no-fly zone, false otherwise.
+     */
+    public boolean isBlocked(int column, int row) {
+        return this.blockedCells.computeIfAbsent(getCellKey(column, row), key -> {
+            double minLng = column * this.cellSize;
+            double minLat = row * this.cellSize;
+            for (int i = 0; i < this.zonePolygons.length; i++) {
+                if (this.zoneBounds[i].intersects(minLng, minLat, this.cellSize, this.cellSize)
+                        && this.zonePolygons[i].intersects(minLng, minLat, this.cellSize, this.cellSize)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Method to get the column of cells containing a longitude.
+     * @param lng The longitude.
+     * @return The column index.
+     */
+    private int getColumn(double lng) {
+        return (int) Math.floor(lng / this.cellSize);
+    }
+
+    /**
+     * Method to get the row of cells containing a latitude.
+     * @param lat The latitude.
+     * @return The row index.
+     */
+    private int getRow(double lat) {
+        return (int) Math.floor(lat / this.cellSize);
+    }
+
+    /**
+     * Method to pack the column and row of a cell into one key.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return The key of the cell.
+     */
+    private static long getCellKey(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Method to get the column of a cell from its key.
+     * @param key The key of the cell.
+     * @return The column of the cell.
+     */
+    private static int getKeyColumn(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Method to get the row of a cell from its key.
+     * @param key The key of the cell.
+     * @return The row of the cell.
+     */
+    private static int getKeyRow(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Method to get the length (in cells) of the shortest 8-connected route between two cells with no cells
+     * blocked.
+     * @param column The column of the first cell.
+     * @param row The row of the first cell.
+     * @param otherColumn The column of the second cell.
+     * @param otherRow The row of the second cell.
+     * @return The octile distance between the cells.
+     */
+    private static double octileDistance(int column, int row, int otherColumn, int otherRow) {
+        int columnDif = Math.abs(otherColumn - column);
+        int rowDif = Math.abs(otherRow - row);
+        return Math.max(columnDif, rowDif) + (Math.sqrt(2) - 1) * Math.min(columnDif, rowDif);
+    }
+
+}
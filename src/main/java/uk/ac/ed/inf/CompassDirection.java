@@ -44,4 +44,22 @@ public enum CompassDirection {
         return this.angle;
     }
 
+    /**
+     * Method to get the compass direction forming a given angle with the x-axis (east direction).
+     * @param angle The angle (in degrees), or null for a hover move.
+     * @return The compass direction forming the angle, or null if the angle is null.
+     * @throws IllegalArgumentException If no compass direction forms the angle.
+     */
+    public static CompassDirection fromAngle(Double angle) {
+        if (angle == null) {
+            return null;
+        }
+        for (CompassDirection direction : values()) {
+            if (direction.angle.equals(angle)) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("No compass direction forms an angle of " + angle + " degrees.");
+    }
+
 }
@@ -0,0 +1,217 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class to represent a drone's flight path for output as run-length encoded segments: each run of consecutive
+ * moves for the same order that either keep the same direction or alternate between two directions is stored
+ * once, with its direction(s), its start and end points and the number of moves in it, and runs of hover moves
+ * are stored the same way. Alternating runs are common, as a straight line between two of the 16 compass
+ * directions is flown as a zigzag between them. The time each move was calculated is kept per move in a packed
+ * array, so the path can still be expanded into the individual moves for consumers that need them. The drone
+ * keeps its individual moves, and a compressed path is built from them when one is asked for.
+ */
+public class CompressedFlightPath implements Iterable<DroneMove> {
+
+    /**
+     * Record to represent a run of consecutive moves in the same direction, alternating between two directions,
+     * or of hover moves, for one order.
+     * @param direction The direction of the first move in the run, and of every move in a run that keeps the
+     *                  same direction. Null for a run of hover moves.
+     * @param alternateDirection The direction of the second, fourth, etc. move in a run that alternates between
+     *                           two directions. Null for a run that keeps the same direction.
+     * @param moveCount The number of moves in the run.
+     * @param fromLngLat The starting point of the first move in the run.
+     * @param toLngLat The end point of the last move in the run.
+     * @param orderNo The order number of the order for delivering which the moves were made.
+     */
+    public record Segment(CompassDirection direction, CompassDirection alternateDirection, int moveCount,
+                          LngLat fromLngLat, LngLat toLngLat, String orderNo) {
+
+        /**
+         * Method to get the direction of a move in the run.
+         * @param move The index of the move in the run.
+         * @return The direction of the move, or null for a hover move.
+         */
+        public CompassDirection getMoveDirection(int move) {
+            return this.alternateDirection != null && move % 2 == 1 ? this.alternateDirection : this.direction;
+        }
+
+    }
+
+    // Change in longitude and latitude of a move in each direction, indexed by the direction's ordinal.
+    private static final LngLat[] MOVE_OFFSETS = new LngLat[CompassDirection.values().length];
+
+    static {
+        LngLat origin = new LngLat(0, 0);
+        for (CompassDirection direction : CompassDirection.values()) {
+            MOVE_OFFSETS[direction.ordinal()] = origin.nextPosition(direction);
+        }
+    }
+
+    // List storing the runs of moves in the flight path, in the order they were made.
+    private final ArrayList<Segment> segments;
+
+    // Array storing the ticks since the start of calculation of each move, in the order the moves were made.
+    private long[] moveTicks;
+
+    // Number of moves in the flight path.
+    private int moveCount;
+
+    /**
+     * Class constructor to initialise a new, empty compressed flight path.
+     */
+    public CompressedFlightPath() {
+        this.segments = new ArrayList<>();
+        this.moveTicks = new long[16];
+        this.moveCount = 0;
+    }
+
+    /**
+     * Method to create a compressed flight path from a list of individual moves.
+     * @param droneMoves List of DroneMove objects, in the order they were made.
+     * @return The compressed flight path of the moves.
+     */
+    public static CompressedFlightPath of(List<DroneMove> droneMoves) {
+        CompressedFlightPath flightPath = new CompressedFlightPath();
+        for (DroneMove droneMove : droneMoves) {
+            flightPath.add(droneMove);
+        }
+        return flightPath;
+    }
+
+    /**
+     * Method to add a move to the end of the flight path. The move extends the last run if it continues it for
+     * the same order, in the run's direction or as the next move of its alternation, and starts a new run
+     * otherwise. A run of one move becomes an alternating run when a move in a different direction follows it.
+     * @param droneMove DroneMove object representing the move.
+     */
+    public void add(DroneMove droneMove) {
+        CompassDirection direction = CompassDirection.fromAngle(droneMove.stepDirectionAngle());
+        int lastIndex = this.segments.size() - 1;
+        Segment lastSegment = lastIndex < 0 ? null : this.segments.get(lastIndex);
+        if (lastSegment != null && lastSegment.orderNo().equals(droneMove.orderNo())
+                && lastSegment.toLngLat().equals(droneMove.fromLngLat())) {
+            CompassDirection alternateDirection = lastSegment.alternateDirection();
+            if (alternateDirection == null && lastSegment.moveCount() == 1 && direction != null
+                    && lastSegment.direction() != null && direction != lastSegment.direction()) {
+                alternateDirection = direction; // The run's second move starts an alternation.
+            }
+            Segment extendedSegment = new Segment(lastSegment.direction(), alternateDirection,
+                    lastSegment.moveCount() + 1, lastSegment.fromLngLat(), droneMove.toLngLat(), droneMove.orderNo());
+            if (extendedSegment.getMoveDirection(lastSegment.moveCount()) == direction) {
+                this.segments.set(lastIndex, extendedSegment);
+                this.addMoveTicks(droneMove.ticksSinceStartOfCalculation());
+                return;
+            }
+        }
+        this.segments.add(new Segment(direction, null, 1, droneMove.fromLngLat(), droneMove.toLngLat(),
+                droneMove.orderNo()));
+        this.addMoveTicks(droneMove.ticksSinceStartOfCalculation());
+    }
+
+    /**
+     * Method to store the ticks since the start of calculation of the next move, growing the array if needed.
+     * @param ticks The ticks since the start of calculation of the move.
+     */
+    private void addMoveTicks(long ticks) {
+        if (this.moveCount == this.moveTicks.length) {
+            this.moveTicks = Arrays.copyOf(this.moveTicks, this.moveCount * 2);
+        }
+        this.moveTicks[this.moveCount++] = ticks;
+    }
+
+    /**
+     * Method to get the runs of moves in the flight path.
+     * @return Unmodifiable list of the runs of moves, in the order they were made.
+     */
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(this.segments);
+    }
+
+    /**
+     * Method to get the number of individual moves in the flight path.
+     * @return The number of moves.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Method to get an iterator expanding the flight path into its individual moves. The end points of each run
+     * are exact, and the points between them are recomputed from the run's start point, so they may differ from
+     * the original moves' points in the last bits of their coordinates.
+     * @return Iterator over the individual moves, in the order they were made.
+     */
+    @Override
+    public Iterator<DroneMove> iterator() {
+        return new Iterator<>() {
+
+            // Index of the run containing the next move, and index of the next move within the run.
+            private int segmentIndex = 0;
+            private int moveInSegment = 0;
+
+            // Index of the next move in the whole flight path.
+            private int moveIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.moveIndex < CompressedFlightPath.this.moveCount;
+            }
+
+            @Override
+            public DroneMove next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Segment segment = CompressedFlightPath.this.segments.get(this.segmentIndex);
+                LngLat fromLngLat = getPointInSegment(segment, this.moveInSegment);
+                LngLat toLngLat = getPointInSegment(segment, this.moveInSegment + 1);
+                CompassDirection direction = segment.getMoveDirection(this.moveInSegment);
+                Double angle = direction == null ? null : direction.getAngle();
+                DroneMove droneMove = new DroneMove(fromLngLat, toLngLat, angle,
+                        CompressedFlightPath.this.moveTicks[this.moveIndex], segment.orderNo());
+
+                this.moveIndex++;
+                this.moveInSegment++;
+                if (this.moveInSegment == segment.moveCount()) {
+                    this.segmentIndex++;
+                    this.moveInSegment = 0;
+                }
+                return droneMove;
+            }
+        };
+    }
+
+    /**
+     * Method to get the point reached after a number of moves into a run.
+     * @param segment The run of moves.
+     * @param moves The number of moves made into the run, from 0 to its move count.
+     * @return The point reached.
+     */
+    private static LngLat getPointInSegment(Segment segment, int moves) {
+        if (moves == 0 || segment.direction() == null) {
+            return segment.fromLngLat(); // Hover moves stay at the run's start point.
+        }
+        if (moves == segment.moveCount()) {
+            return segment.toLngLat();
+        }
+        // An alternating run makes half its moves (rounded up) in its first direction.
+        int alternateMoves = segment.alternateDirection() == null ? 0 : moves / 2;
+        LngLat offset = MOVE_OFFSETS[segment.direction().ordinal()];
+        double lng = segment.fromLngLat().lng() + (moves - alternateMoves) * offset.lng();
+        double lat = segment.fromLngLat().lat() + (moves - alternateMoves) * offset.lat();
+        if (alternateMoves > 0) {
+            LngLat alternateOffset = MOVE_OFFSETS[segment.alternateDirection().ordinal()];
+            lng += alternateMoves * alternateOffset.lng();
+            lat += alternateMoves * alternateOffset.lat();
+        }
+        return new LngLat(lng, lat);
+    }
+
+}
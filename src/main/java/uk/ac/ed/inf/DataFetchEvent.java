@@ -0,0 +1,25 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event recorded around each fetch of data from the REST server.
+ */
+@Name("uk.ac.ed.inf.DataFetch")
+@Label("Data Fetch")
+@Category({"PizzaDronz", "Data"})
+@Description("Fetch of an endpoint from the REST server.")
+public class DataFetchEvent extends jdk.jfr.Event {
+
+    // Field to store the endpoint of the REST server that was fetched.
+    @Label("Endpoint")
+    public String endpoint;
+
+    // Field to store whether the response was fetched and mapped successfully.
+    @Label("Successful")
+    public boolean successful;
+
+}
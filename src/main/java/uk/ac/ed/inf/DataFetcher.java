@@ -5,7 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 /**
  * Singleton class to fetch responses from the REST server.
@@ -13,10 +15,10 @@ import java.time.LocalDate;
 public class DataFetcher {
 
     // Singleton class object.
-    private static DataFetcher dataFetcher;
+    private static volatile DataFetcher dataFetcher;
 
     // Field to store the base url of the REST server.
-    private URL baseUrl;
+    private volatile URL baseUrl;
 
     // Field to store the date for which data is being fetched and stored.
     private LocalDate date;
@@ -25,13 +27,16 @@ public class DataFetcher {
     private Order[] orders;
 
     // Field to store the participating restaurants fetched from the REST server for the given date.
-    private Restaurant[] restaurants;
+    private volatile Restaurant[] restaurants;
 
     // Field to store the no-fly zones fetched from the REST server for the given date.
-    private NoFlyZone[] noFlyZones;
+    private volatile NoFlyZone[] noFlyZones;
 
     // Array to store the vertices of the central area fetched from the REST server.
-    private LngLat[] centralArea;
+    private volatile LngLat[] centralArea;
+
+    // CentralArea object classifying points and moves against the central area, built from its vertices.
+    private volatile CentralArea centralAreaPolygon;
 
     /**
      * Class constructor to initialise the singleton class object.
@@ -45,29 +50,55 @@ public class DataFetcher {
      * @return instance of the ResponseFetcher singleton class.
      */
     public static DataFetcher getInstance() {
-        if (dataFetcher == null) {
-            dataFetcher = new DataFetcher();
+        DataFetcher instance = dataFetcher;
+        if (instance != null) {
+            return instance; // Read without locking, as path searches call this for every move.
+        }
+        synchronized (DataFetcher.class) {
+            if (dataFetcher == null) {
+                dataFetcher = new DataFetcher();
+            }
+            return dataFetcher;
         }
-        return dataFetcher;
     }
 
     /**
-     * Method to set the base url of the REST server from which data will be fetched.
+     * Method to set the base url of the REST server from which data will be fetched. Any data already
+     * fetched from a previous base url is discarded.
      * @param baseUrlString String containing the base url of the REST server.
      * @throws MalformedURLException if the base url is invalid.
      */
-    public void setBaseUrl(String baseUrlString) throws MalformedURLException {
+    public synchronized void setBaseUrl(String baseUrlString) throws MalformedURLException {
         if (!baseUrlString.endsWith("/")) {
             baseUrlString += "/"; // Ensuring url ends with a slash so endpoints can be appended.
         }
-        this.baseUrl = new URL(baseUrlString);
+        URL newBaseUrl = new URL(baseUrlString);
+        if (!newBaseUrl.toString().equals(String.valueOf(this.baseUrl))) {
+            this.orders = null;
+            this.restaurants = null;
+            this.noFlyZones = null;
+            this.centralArea = null;
+            this.centralAreaPolygon = null;
+        }
+        this.baseUrl = newBaseUrl;
     }
 
-
-    public void setDate(LocalDate date) {
+    /**
+     * Method to set the date for which orders are fetched. Orders already fetched for a different
+     * date are discarded.
+     * @param date The date for which orders are fetched.
+     */
+    public synchronized void setDate(LocalDate date) {
+        if (!date.equals(this.date)) {
+            this.orders = null;
+        }
         this.date = date;
     }
 
+    /**
+     * Method to get the date for which orders are fetched.
+     * @return The date for which orders are fetched.
+     */
     public LocalDate getDate() {
         return this.date;
     }
@@ -85,11 +116,18 @@ public class DataFetcher {
         if (this.baseUrl == null) {
             throw new IllegalStateException("Set the base url of the REST server before fetching data.");
         }
+        DataFetchEvent fetchEvent = new DataFetchEvent();
+        fetchEvent.begin();
         try {
             URL restServerUrl = new URL(this.baseUrl + endpoint);
-            return new ObjectMapper().readValue(restServerUrl, classType);
+            T response = new ObjectMapper().readValue(restServerUrl, classType);
+            fetchEvent.successful = true;
+            return response;
         } catch (Exception e) {
             throw new IOException("Could not fetch response from REST server. Please check if base url is correct.");
+        } finally {
+            fetchEvent.endpoint = endpoint;
+            fetchEvent.commit();
         }
     }
 
@@ -100,10 +138,35 @@ public class DataFetcher {
      * @throws IOException If the REST server is not available or base url is invalid.
      */
     public LngLat[] getCentralArea() throws IOException {
-        if (this.centralArea == null) {
-            this.centralArea = this.getResponseFromRestServer("centralarea", LngLat[].class);
+        LngLat[] fetchedCentralArea = this.centralArea;
+        if (fetchedCentralArea != null) {
+            return fetchedCentralArea;
+        }
+        synchronized (this) {
+            if (this.centralArea == null) {
+                this.centralArea = this.getResponseFromRestServer("centralarea", LngLat[].class);
+            }
+            return this.centralArea;
+        }
+    }
+
+    /**
+     * Method to get the central area as a CentralArea object, which classifies points and moves against
+     * its boundary, built from the vertices fetched from the REST server.
+     * @return CentralArea object representing the central area.
+     * @throws IOException If the REST server is not available or base url is invalid.
+     */
+    public CentralArea getCentralAreaPolygon() throws IOException {
+        CentralArea polygon = this.centralAreaPolygon;
+        if (polygon != null) {
+            return polygon;
+        }
+        synchronized (this) {
+            if (this.centralAreaPolygon == null) {
+                this.centralAreaPolygon = new CentralArea(this.getCentralArea());
+            }
+            return this.centralAreaPolygon;
         }
-        return this.centralArea;
     }
 
     /**
@@ -112,7 +175,7 @@ public class DataFetcher {
      * @return An array of Order objects representing the orders fetched from the REST server.
      * @throws IOException If the REST server is not running or the base url is invalid.
      */
-    public Order[] getOrders() throws IOException {
+    public synchronized Order[] getOrders() throws IOException {
         if (this.date == null) {
             throw new IllegalStateException("Please set the date for which orders are to be fetched.");
         }
@@ -123,6 +186,32 @@ public class DataFetcher {
         return this.orders;
     }
 
+    /**
+     * Method to fetch a new array of Order objects representing the orders for a given date from the
+     * REST server. Unlike getOrders, the orders are not cached, so each caller gets its own Order
+     * objects and the date set in this class is not used.
+     * @param date The date for which orders are fetched.
+     * @return An array of Order objects representing the orders fetched from the REST server.
+     * @throws IOException If the REST server is not running or the base url is invalid.
+     */
+    public Order[] fetchOrders(LocalDate date) throws IOException {
+        return this.getResponseFromRestServer("orders/" + date, Order[].class);
+    }
+
+    /**
+     * Method to read the orders in a local order file (newline-delimited JSON, or the binary format written by
+     * OrderFileReader.writeBinary) instead of fetching them from the REST server. The orders are validated
+     * against the restaurants fetched from the REST server, and passed on one at a time as they are read, in
+     * parallel, so order files far larger than memory can be read.
+     * @param file Path of the order file.
+     * @param action The action to pass each validated order to, which must be thread-safe.
+     * @throws IOException If the file cannot be read or is malformed, or the REST server is not running or the
+     *                     base url is invalid.
+     */
+    public void readOrders(Path file, Consumer<OrderRecord> action) throws IOException {
+        new OrderFileReader(file).forEachOrder(action);
+    }
+
     /**
      * Method to get an array of Restaurant objects representing the restaurants
      * fetched from the REST server.
@@ -131,10 +220,16 @@ public class DataFetcher {
      * @throws IOException If the REST server is not running or the base url is invalid.
      */
     public Restaurant[] getRestaurants() throws IOException {
-        if (this.restaurants == null) {
-            this.restaurants = this.getResponseFromRestServer("restaurants", Restaurant[].class);
+        Restaurant[] fetchedRestaurants = this.restaurants;
+        if (fetchedRestaurants != null) {
+            return fetchedRestaurants;
+        }
+        synchronized (this) {
+            if (this.restaurants == null) {
+                this.restaurants = this.getResponseFromRestServer("restaurants", Restaurant[].class);
+            }
+            return this.restaurants;
         }
-        return this.restaurants;
     }
 
     /**
@@ -145,10 +240,25 @@ public class DataFetcher {
      * @throws IOException If the REST server is not running or the base url is invalid.
      */
     public NoFlyZone[] getNoFlyZones() throws IOException {
-        if (this.noFlyZones == null) {
-            this.noFlyZones = this.getResponseFromRestServer("noflyzones", NoFlyZone[].class);
+        NoFlyZone[] fetchedNoFlyZones = this.noFlyZones;
+        if (fetchedNoFlyZones != null) {
+            return fetchedNoFlyZones; // Read without locking, as path searches call this for every move.
+        }
+        synchronized (this) {
+            if (this.noFlyZones == null) {
+                this.noFlyZones = this.getResponseFromRestServer("noflyzones", NoFlyZone[].class);
+            }
+            return this.noFlyZones;
         }
-        return this.noFlyZones;
+    }
+
+    /**
+     * Method to replace the no-fly zones, for example when a zone is added or changed during the day.
+     * The given zones are returned by getNoFlyZones until the base url is changed.
+     * @param noFlyZones An array of NoFlyZone objects representing the new no-fly zones.
+     */
+    public synchronized void setNoFlyZones(NoFlyZone[] noFlyZones) {
+        this.noFlyZones = noFlyZones;
     }
 
 }
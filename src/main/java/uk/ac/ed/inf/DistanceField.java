@@ -0,0 +1,155 @@
+package uk.ac.ed.inf;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Class to represent the distance (in drone moves) from every cell of a LatticeGrid to a source point, avoiding
+ * no-fly zones, computed with Dijkstra's algorithm over the grid. Distances are symmetric, so the field gives
+ * both the distance from each cell to the source and from the source to each cell.
+ */
+public class DistanceField {
+
+    // Grid the distances are computed over.
+    private final LatticeGrid grid;
+
+    // Point the distances are measured to.
+    private final LngLat source;
+
+    // Distance (in moves) from each cell to the source, or infinity for unreachable cells. The buffer may be
+    // mapped from a file saved by a DistanceFieldStore.
+    private final FloatBuffer distances;
+
+    /**
+     * Class constructor to initialise a distance field from its computed distances.
+     * @param grid Grid the distances are computed over.
+     * @param source Point the distances are measured to.
+     * @param distances Distance (in moves) from each cell to the source.
+     */
+    DistanceField(LatticeGrid grid, LngLat source, FloatBuffer distances) {
+        this.grid = grid;
+        this.source = source;
+        this.distances = distances;
+    }
+
+    /**
+     * Method to compute the distance field to a source point over a grid.
+     * @param grid Grid to compute the distances over.
+     * @param source Point the distances are measured to. Must be inside the grid.
+     * @return The computed distance field.
+     */
+    public static DistanceField compute(LatticeGrid grid, LngLat source) {
+        int sourceCell = grid.getCellIndex(source);
+        if (sourceCell < 0) {
+            throw new IllegalArgumentException("Source point of a distance field must be inside its grid.");
+        }
+        float[] distances = new float[grid.getCellCount()];
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        distances[sourceCell] = 0;
+
+        // Queue entries pack a non-negative float distance (whose bits sort like the value) above the cell index.
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add((long) sourceCell);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int cell = (int) entry;
+            float distance = Float.intBitsToFloat((int) (entry >>> 32));
+            if (distance > distances[cell]) {
+                continue; // Stale entry, the cell has been reached by a shorter route.
+            }
+            for (int k = 0; k < LatticeGrid.NEIGHBOUR_COUNT; k++) {
+                int neighbour = grid.getNeighbour(cell, k);
+                if (neighbour < 0 || grid.isConnectionBlocked(cell, k)) {
+                    continue;
+                }
+                float neighbourDistance = (float) (distance + LatticeGrid.getConnectionLength(k));
+                if (neighbourDistance < distances[neighbour]) {
+                    distances[neighbour] = neighbourDistance;
+                    queue.add(((long) Float.floatToIntBits(neighbourDistance) << 32) | neighbour);
+                }
+            }
+        }
+        return new DistanceField(grid, source, FloatBuffer.wrap(distances));
+    }
+
+    /**
+     * Method to get the distance (in moves) from a point to the source, looked up from the cell containing it.
+     * @param point The point.
+     * @return The distance from the point to the source, or infinity if the point is outside the grid or
+     *         cannot reach the source.
+     */
+    public double getMovesToSource(LngLat point) {
+        int cell = this.grid.getCellIndex(point);
+        return cell < 0 ? Double.POSITIVE_INFINITY : this.distances.get(cell);
+    }
+
+    /**
+     * Method to get the distance (in moves) from a point to the source, interpolated bilinearly between the
+     * centres of the four cells around the point, so the distance changes smoothly as the point moves. Where
+     * one of the four cells is outside the grid or cannot reach the source, the distance of the cell containing
+     * the point is used instead.
+     * @param point The point.
+     * @return The interpolated distance from the point to the source, or infinity if the point is outside the
+     *         grid or cannot reach the source.
+     */
+    public double getInterpolatedMovesToSource(LngLat point) {
+        double x = (point.lng() - this.grid.getMinLng()) / this.grid.getCellSize() - 0.5;
+        double y = (point.lat() - this.grid.getMinLat()) / this.grid.getCellSize() - 0.5;
+        int column = (int) Math.floor(x);
+        int row = (int) Math.floor(y);
+        double fx = x - column;
+        double fy = y - row;
+
+        double southWest = this.getCellMoves(column, row);
+        double southEast = this.getCellMoves(column + 1, row);
+        double northWest = this.getCellMoves(column, row + 1);
+        double northEast = this.getCellMoves(column + 1, row + 1);
+        if (Double.isInfinite(southWest) || Double.isInfinite(southEast)
+                || Double.isInfinite(northWest) || Double.isInfinite(northEast)) {
+            return this.getMovesToSource(point);
+        }
+        double south = southWest + fx * (southEast - southWest);
+        double north = northWest + fx * (northEast - northWest);
+        return south + fy * (north - south);
+    }
+
+    /**
+     * Method to get the distance (in moves) from a cell to the source.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return The distance from the cell to the source, or infinity if the cell is outside the grid or cannot
+     *         reach the source.
+     */
+    private double getCellMoves(int column, int row) {
+        if (column < 0 || column >= this.grid.getColumns() || row < 0 || row >= this.grid.getRows()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return this.distances.get(row * this.grid.getColumns() + column);
+    }
+
+    /**
+     * Method to get the distances of every cell, so they can be saved to a file.
+     * @return The buffer of distances, which must not be modified.
+     */
+    FloatBuffer getDistances() {
+        return this.distances;
+    }
+
+    /**
+     * Method to get the point the distances are measured to.
+     * @return The source point.
+     */
+    public LngLat getSource() {
+        return this.source;
+    }
+
+    /**
+     * Method to get the grid the distances are computed over.
+     * @return The grid.
+     */
+    public LatticeGrid getGrid() {
+        return this.grid;
+    }
+
+}
@@ -0,0 +1,265 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Class to store precomputed distance fields to the depot (Appleton Tower) and every restaurant in a file, which
+ * is memory-mapped when loaded so the fields are only computed once while the world stays the same. The file
+ * records a fingerprint of the world it was computed for (the landmarks, central area and no-fly zones), and the
+ * fields are recomputed and saved again automatically when the world fetched from the REST server no longer
+ * matches it, including when the no-fly zones are replaced during the day.
+ * <p>
+ * The file holds a header (magic number, format version, fingerprint, grid dimensions and landmark count), the
+ * landmark coordinates, the grid's bitset of blocked connections, and the distance of every cell to each landmark.
+ */
+public class DistanceFieldStore {
+
+    /**
+     * Name of the file the fields are saved to when no other file is given.
+     */
+    public static final String DEFAULT_FILE_NAME = "distance-fields.bin";
+
+    // Number identifying a distance field file ("PZDF").
+    private static final int MAGIC = 0x505A4446;
+
+    // Version of the file format, which is part of the fingerprint so files of older formats are recomputed.
+    private static final int VERSION = 1;
+
+    // Size (in bytes) of the file header.
+    private static final int HEADER_BYTES = 56;
+
+    // Path of the file the fields are saved to and loaded from.
+    private final Path file;
+
+    // No-fly zones and restaurants the loaded fields were computed for, used to detect when they are replaced.
+    private NoFlyZone[] loadedNoFlyZones;
+    private Restaurant[] loadedRestaurants;
+
+    // Loaded fields, keyed by their landmark.
+    private HashMap<LngLat, DistanceField> fields;
+
+    /**
+     * Class constructor to initialise a new store of distance fields saved in a file. The fields are loaded,
+     * or computed if the file is missing or out of date, the first time one is needed.
+     * @param file Path of the file the fields are saved to and loaded from.
+     */
+    public DistanceFieldStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Method to get the distance field to a landmark, loading the fields first if they have not been loaded or
+     * the world has changed since they were.
+     * @param landmark The landmark: the depot or a restaurant's location.
+     * @return The distance field to the landmark, or null if the point is not a landmark.
+     * @throws IOException If the world data cannot be fetched from the REST server, or the file cannot be read
+     *                     or written.
+     */
+    public synchronized DistanceField getField(LngLat landmark) throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        NoFlyZone[] noFlyZones = dataFetcher.getNoFlyZones();
+        Restaurant[] restaurants = dataFetcher.getRestaurants();
+        if (this.fields == null || noFlyZones != this.loadedNoFlyZones || restaurants != this.loadedRestaurants) {
+            this.load(noFlyZones, restaurants);
+        }
+        return this.fields.get(landmark);
+    }
+
+    /**
+     * Method to load the fields from the file, first computing and saving them if the file is missing or its
+     * fingerprint does not match the world.
+     * @param noFlyZones The current no-fly zones.
+     * @param restaurants The current restaurants.
+     * @throws IOException If the world data cannot be fetched from the REST server, or the file cannot be read
+     *                     or written.
+     */
+    private void load(NoFlyZone[] noFlyZones, Restaurant[] restaurants) throws IOException {
+        ArrayList<LngLat> landmarks = new ArrayList<>();
+        landmarks.add(Drone.APPLETON_TOWER_COORDINATES);
+        for (Restaurant restaurant : restaurants) {
+            landmarks.add(restaurant.getLngLat());
+        }
+        LngLat[] worldPoints = LandmarkHeuristic.getWorldPoints(landmarks);
+        long fingerprint = computeFingerprint(worldPoints, noFlyZones);
+
+        if (!Files.exists(this.file) || readFingerprint(this.file) != fingerprint) {
+            LatticeGrid grid = LatticeGrid.create(worldPoints, noFlyZones, LandmarkHeuristic.GRID_MARGIN);
+            DistanceField[] computedFields = new DistanceField[landmarks.size()];
+            for (int i = 0; i < computedFields.length; i++) {
+                computedFields[i] = DistanceField.compute(grid, landmarks.get(i));
+            }
+            save(this.file, fingerprint, grid, computedFields);
+        }
+        this.fields = map(this.file);
+        this.loadedNoFlyZones = noFlyZones;
+        this.loadedRestaurants = restaurants;
+    }
+
+    /**
+     * Method to compute the fingerprint of a world, from the points its grid covers (the landmarks followed by
+     * the central area and no-fly zone vertices), the vertices of each no-fly zone, and the grid's parameters.
+     * @param worldPoints The points the world's grid covers.
+     * @param noFlyZones The world's no-fly zones.
+     * @return The fingerprint of the world.
+     */
+    private static long computeFingerprint(LngLat[] worldPoints, NoFlyZone[] noFlyZones) {
+        ByteBuffer data = ByteBuffer.allocate(32 + 16 * worldPoints.length + 4 * noFlyZones.length);
+        data.putInt(VERSION);
+        data.putDouble(Drone.MOVE_LENGTH);
+        data.putDouble(LandmarkHeuristic.GRID_MARGIN);
+        data.putInt(worldPoints.length);
+        for (LngLat point : worldPoints) {
+            data.putDouble(point.lng());
+            data.putDouble(point.lat());
+        }
+        // The zone sizes separate the zones' vertices, which are included in the world points.
+        data.putInt(noFlyZones.length);
+        for (NoFlyZone noFlyZone : noFlyZones) {
+            data.putInt(noFlyZone.getCoordinatesLngLat().length);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data.array());
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Method to read the fingerprint recorded in a distance field file.
+     * @param file Path of the file.
+     * @return The fingerprint, or 0 if the file is not a distance field file of the current format.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long readFingerprint(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the start of the header has been read, or the file ends.
+            }
+            header.flip();
+            if (header.remaining() < 16 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return 0;
+            }
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Method to save distance fields to a file. The fields are written to a temporary file which then replaces
+     * the file, so a file that is mapped elsewhere is never seen half written.
+     * @param file Path of the file.
+     * @param fingerprint The fingerprint of the world the fields were computed for.
+     * @param grid The grid the fields were computed over.
+     * @param fields The fields, one per landmark.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void save(Path file, long fingerprint, LatticeGrid grid, DistanceField[] fields) throws IOException {
+        long[] blockedConnections = grid.getBlockedConnections();
+        int cellCount = grid.getCellCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 16 * fields.length + 8 * blockedConnections.length
+                + 4 * cellCount * fields.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(fingerprint);
+        buffer.putDouble(grid.getMinLng());
+        buffer.putDouble(grid.getMinLat());
+        buffer.putDouble(grid.getCellSize());
+        buffer.putInt(grid.getColumns());
+        buffer.putInt(grid.getRows());
+        buffer.putInt(fields.length);
+        buffer.putInt(blockedConnections.length);
+        for (DistanceField field : fields) {
+            buffer.putDouble(field.getSource().lng());
+            buffer.putDouble(field.getSource().lat());
+        }
+        buffer.asLongBuffer().put(blockedConnections);
+        buffer.position(buffer.position() + 8 * blockedConnections.length);
+        for (DistanceField field : fields) {
+            buffer.asFloatBuffer().put(field.getDistances().duplicate().rewind());
+            buffer.position(buffer.position() + 4 * cellCount);
+        }
+        buffer.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method to map the distance fields saved in a file into memory. The distances are read straight from the
+     * mapped file when they are looked up.
+     * @param file Path of the file.
+     * @return The fields, keyed by their landmark.
+     * @throws IOException If the file cannot be read, or is not a distance field file of the current format.
+     */
+    private static HashMap<LngLat, DistanceField> map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a distance field file of version " + VERSION + ": " + file);
+        }
+        buffer.getLong(); // Fingerprint, already checked.
+        double minLng = buffer.getDouble();
+        double minLat = buffer.getDouble();
+        double cellSize = buffer.getDouble();
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        int landmarkCount = buffer.getInt();
+        long[] blockedConnections = new long[buffer.getInt()];
+
+        LngLat[] landmarks = new LngLat[landmarkCount];
+        for (int i = 0; i < landmarkCount; i++) {
+            landmarks[i] = new LngLat(buffer.getDouble(), buffer.getDouble());
+        }
+        buffer.asLongBuffer().get(blockedConnections);
+        buffer.position(buffer.position() + 8 * blockedConnections.length);
+        LatticeGrid grid = new LatticeGrid(minLng, minLat, cellSize, columns, rows, blockedConnections);
+
+        HashMap<LngLat, DistanceField> fields = new HashMap<>();
+        int cellCount = columns * rows;
+        for (LngLat landmark : landmarks) {
+            ByteBuffer fieldBytes = buffer.slice().limit(4 * cellCount);
+            fields.put(landmark, new DistanceField(grid, landmark, fieldBytes.asFloatBuffer()));
+            buffer.position(buffer.position() + 4 * cellCount);
+        }
+        return fields;
+    }
+
+    /**
+     * Main method to precompute the distance fields for the world served by a REST server, ahead of the days
+     * they are used on.
+     * @param args the REST server's base url, and optionally the file to save the fields to.
+     */
+    public static void main(String[] args) {
+        try {
+            DataFetcher.getInstance().setBaseUrl(args[0]);
+            Path file = Paths.get(args.length > 1 ? args[1] : DEFAULT_FILE_NAME);
+            DistanceFieldStore store = new DistanceFieldStore(file);
+            store.getField(Drone.APPLETON_TOWER_COORDINATES);
+            System.out.println("Distance fields for " + store.fields.size() + " landmarks saved to " + file);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+}
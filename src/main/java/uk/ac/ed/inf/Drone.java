@@ -2,8 +2,17 @@ package uk.ac.ed.inf;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Class to represent a drone which plans routes to deliver orders on
@@ -12,19 +21,22 @@ import java.util.PriorityQueue;
 public class Drone {
 
     /**
-     * Field representing the maximum number of moves a drone can make in a day.
+     * Field representing the maximum number of moves a drone can make in a day, unless a drone is given its own
+     * configuration. Set by the startup DroneConfig (2000 by default).
      */
-    public static final int MAX_DRONE_MOVES = 2000;
+    public static final int MAX_DRONE_MOVES = DroneConfig.getStartupConfig().getMaxDroneMoves();
 
     /**
-     * Field representing the distance (in degrees) a drone travels in one move.
+     * Field representing the distance (in degrees) a drone travels in one move. Set by the startup
+     * DroneConfig (0.00015 by default).
      */
-    public static final double MOVE_LENGTH = 0.00015;
+    public static final double MOVE_LENGTH = DroneConfig.getStartupConfig().getMoveLength();
 
     /**
-     * LngLat object representing the coordinates of Appleton Tower.
+     * LngLat object representing the coordinates of Appleton Tower, the drone's depot. Set by the startup
+     * DroneConfig.
      */
-    public static final LngLat APPLETON_TOWER_COORDINATES = new LngLat(-3.186874, 55.944494);
+    public static final LngLat APPLETON_TOWER_COORDINATES = DroneConfig.getStartupConfig().getDepot();
 
     // LngLat object representing a drone's starting location.
     private final LngLat startPos;
@@ -41,20 +53,141 @@ public class Drone {
     // PathFinder object to plan a route between two locations.
     private final PathFinder pathFinder;
 
-    // Field to store the time when the drone was initialised, so every calculated drone move
+    // LegCache object storing the routes already planned between two locations.
+    private final LegCache legCache;
+
+    // Executor running route searches in parallel when prioritising orders, or null to search one at a time.
+    private final Executor planningExecutor;
+
+    // List storing the orders the drone is delivering on the day, including orders that arrived late.
+    private final ArrayList<Order> orders;
+
+    // Queue of valid orders that have not been delivered yet, prioritised by fewer moves required to deliver them.
+    private PriorityQueue<Order> pendingOrders;
+
+    // List storing the orders delivered by the drone, in the order they were delivered.
+    private final ArrayList<Order> deliveredOrders;
+
+    // List storing the index in allDroneMoves of the first move made to deliver each delivered order.
+    private final ArrayList<Integer> deliveryStartIndices;
+
+    // Set storing the orders that were not delivered because a search for one of their routes was abandoned at
+    // the PathFinder's live node limit, in the order they were abandoned.
+    private final LinkedHashSet<Order> abandonedOrders;
+
+    // Field to store whether orders are first prioritised by a lower bound on their moves, and only have their
+    // routes planned when they reach the head of the queue.
+    private boolean lazyPrioritisation;
+
+    // Field to store whether the routes from the drone's position to every restaurant are found by one search.
+    private boolean oneToManyPlanning;
+
+    // Set storing the pending orders whose moves to deliver are only a lower bound, as their routes have not been
+    // planned yet.
+    private final HashSet<Order> estimatedOrders;
+
+    // Field to store the clock started when the drone was initialised, so every calculated drone move
     // can be timed relative to this.
-    private final long startTime;
+    private final TickClock clock;
+
+    // Field to store the routes searched for by this drone, whose nodes are stamped by its own clock. Routes taken
+    // from a leg cache shared with other drones may have been stamped by theirs.
+    private final Set<ArrayList<Node>> searchedPaths;
 
     /**
      * Constructor to initialise a new drone object.
      */
     public Drone() {
+        this(new PathFinder());
+    }
+
+    /**
+     * Constructor to initialise a new drone object that plans its routes with a given PathFinder.
+     * @param pathFinder PathFinder object used to plan routes between two locations.
+     */
+    public Drone(PathFinder pathFinder) {
+        this(pathFinder, new LegCache());
+    }
+
+    /**
+     * Constructor to initialise a new drone object that plans its routes with a given PathFinder, reusing
+     * the routes already stored in a LegCache.
+     * @param pathFinder PathFinder object used to plan routes between two locations.
+     * @param legCache LegCache object storing the routes already planned between two locations.
+     */
+    public Drone(PathFinder pathFinder, LegCache legCache) {
+        this(pathFinder, legCache, null);
+    }
+
+    /**
+     * Constructor to initialise a new drone object that plans its routes with a given PathFinder, reusing
+     * the routes already stored in a LegCache, and searches for the routes of every order in parallel on an
+     * executor when prioritising orders. A work-stealing pool, such as a ForkJoinPool, suits the searches,
+     * which vary widely in length.
+     * @param pathFinder PathFinder object used to plan routes between two locations. Its heuristic and
+     *                   distance fields must be safe to use from several threads.
+     * @param legCache LegCache object storing the routes already planned between two locations.
+     * @param planningExecutor Executor to run route searches on, or null to search one at a time.
+     */
+    public Drone(PathFinder pathFinder, LegCache legCache, Executor planningExecutor) {
+        this(pathFinder, legCache, planningExecutor, DroneConfig.getStartupConfig());
+    }
+
+    /**
+     * Constructor to initialise a new drone object with its own battery and clock, given by a configuration, that
+     * plans its routes with a given PathFinder, reusing the routes already stored in a LegCache.
+     * @param pathFinder PathFinder object used to plan routes between two locations.
+     * @param legCache LegCache object storing the routes already planned between two locations.
+     * @param planningExecutor Executor to run route searches on, or null to search one at a time.
+     * @param config DroneConfig object giving the maximum number of moves the drone can make in a day and the
+     *               kind of clock timing its moves. Its move length and depot must match the startup
+     *               configuration.
+     * @throws IllegalArgumentException If the configuration's move length or depot differ from the startup
+     *                                  configuration.
+     */
+    public Drone(PathFinder pathFinder, LegCache legCache, Executor planningExecutor, DroneConfig config) {
+        if (!config.matchesStartupConfig()) {
+            throw new IllegalArgumentException("A drone's move length and depot are set by the startup configuration.");
+        }
         this.startPos = APPLETON_TOWER_COORDINATES;
         this.currentPos = this.startPos;
-        this.movesRemaining = Drone.MAX_DRONE_MOVES;
+        this.movesRemaining = config.getMaxDroneMoves();
         this.allDroneMoves = new ArrayList<>();
-        this.pathFinder = new PathFinder();
-        this.startTime = System.nanoTime();
+        this.pathFinder = pathFinder;
+        this.legCache = legCache;
+        this.planningExecutor = planningExecutor;
+        this.orders = new ArrayList<>();
+        this.pendingOrders = new PriorityQueue<>(Comparator.comparingInt(Order::getMovesToDeliver));
+        this.deliveredOrders = new ArrayList<>();
+        this.deliveryStartIndices = new ArrayList<>();
+        this.abandonedOrders = new LinkedHashSet<>();
+        this.estimatedOrders = new HashSet<>();
+        this.clock = TickClock.create(config.getTickClock());
+        this.searchedPaths = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Method to set whether orders are prioritised lazily. When they are, each valid order is first queued by a
+     * lower bound on the moves needed to deliver it (the straight-line moves to its restaurant and back), and its
+     * routes are only planned when it reaches the head of the queue, after which it is queued again by its real
+     * number of moves. An order is delivered once it reaches the head with its real number of moves, so orders
+     * are delivered in the same order as when every order is planned first, and orders whose lower bound is
+     * more than the drone's remaining moves are never planned.
+     * @param lazyPrioritisation Whether orders are prioritised lazily.
+     */
+    public void setLazyPrioritisation(boolean lazyPrioritisation) {
+        this.lazyPrioritisation = lazyPrioritisation;
+    }
+
+    /**
+     * Method to set whether the routes from the drone's current position to the restaurants of the orders being
+     * prioritised are found by one search for all of them (PathFinder.findPaths), instead of one search per
+     * restaurant, and left in the leg cache. The routes back from each restaurant start at different collection
+     * points, so they are still searched for one at a time.
+     * @param oneToManyPlanning Whether the routes to the restaurants are found by one search.
+     */
+    public void setOneToManyPlanning(boolean oneToManyPlanning) {
+        this.oneToManyPlanning = oneToManyPlanning;
     }
 
     /**
@@ -64,22 +197,100 @@ public class Drone {
      * @throws IOException, if the orders could not be fetched from the REST server.
      */
     public void deliverOrders() throws IOException {
+        this.deliverOrders(DataFetcher.getInstance().getOrders());
+    }
+
+    /**
+     * Method to simulate delivering a given batch of orders by the drone. The method prioritises
+     * orders based on the number of moves required to deliver them, and then only delivers
+     * an order if the drone has enough moves remaining to do so.
+     * @param orders Array of Order objects representing the orders to deliver.
+     * @throws IOException, if the world data could not be fetched from the REST server.
+     */
+    public void deliverOrders(Order[] orders) throws IOException {
+        this.orders.clear();
+        this.orders.addAll(Arrays.asList(orders));
         // Get valid orders prioritised by fewer moves required to deliver them.
-        PriorityQueue<Order> orderPriorityQueue = this.getOrderQueue();
-        while (orderPriorityQueue.size() > 0) {
-            // Getting the next valid order with the least moves required to deliver it.
-            Order order = orderPriorityQueue.poll();
+        this.pendingOrders = this.getOrderQueue();
+        this.deliverPendingOrders();
+    }
+
+    /**
+     * Method to deliver the pending orders, in order of fewer moves required to deliver them, until the
+     * drone does not have enough moves remaining to deliver the next one.
+     * @throws IOException, if the world data could not be fetched from the REST server.
+     */
+    public void deliverPendingOrders() throws IOException {
+        while (this.deliverNextPendingOrder() != null) {
+            // Keep delivering until no pending order can be delivered.
+        }
+    }
 
-            // Get full path to collect the order from the restaurant and deliver it back to drone's start position.
+    /**
+     * Method to deliver the pending order requiring the fewest moves, if the drone has enough moves remaining
+     * to deliver it. If it does not, the order stays pending.
+     * @return The Order delivered, or null if there are no pending orders or the drone does not have enough
+     *         moves remaining to deliver the next one.
+     * @throws IOException, if the world data could not be fetched from the REST server.
+     */
+    public Order deliverNextPendingOrder() throws IOException {
+        // Getting the next valid order with the least moves required to deliver it.
+        Order order = this.pendingOrders.peek();
+        while (order != null && this.estimatedOrders.contains(order)) {
+            if (order.getMovesToDeliver() > this.movesRemaining) {
+                return null; // Every queued order needs at least as many moves as this lower bound.
+            }
+            // Plan the order's routes, and queue it again by its real number of moves.
+            this.pendingOrders.poll();
+            this.estimatedOrders.remove(order);
             ArrayList<DroneMove> fullOrderPath = this.getFullOrderPath(order);
+            if (fullOrderPath != null) { // Otherwise the order can never be delivered, so it is not queued again.
+                order.setMovesToDeliver(fullOrderPath.size());
+                this.pendingOrders.add(order);
+            }
+            order = this.pendingOrders.peek();
+        }
+        if (order == null) {
+            return null;
+        }
+
+        // Get full path to collect the order from the restaurant and deliver it back to drone's start position.
+        ArrayList<DroneMove> fullOrderPath = this.getFullOrderPath(order);
+        if (fullOrderPath == null) {
+            this.pendingOrders.poll(); // The order can never be delivered, so the next one is tried.
+            return this.deliverNextPendingOrder();
+        }
 
-            // If drone has enough moves to deliver the order, then deliver it.
-            if (fullOrderPath.size() <= this.movesRemaining) {
-                deliverOrder(order, fullOrderPath);
-            } else { // drone does not have enough battery to deliver any more orders.
-                break;
+        // If drone has enough moves to deliver the order, then deliver it.
+        if (fullOrderPath.size() <= this.movesRemaining) {
+            this.pendingOrders.poll();
+            deliverOrder(order, fullOrderPath);
+            return order;
+        }
+        return null; // drone does not have enough battery to deliver the order.
+    }
+
+    /**
+     * Method to accept an order that arrives after the drone has started delivering. The order is validated,
+     * costed from the drone's current position using the leg cache (so at most two route searches are made,
+     * and none when both routes have already been planned), and inserted into the queue of pending orders.
+     * Moves already committed by the drone are never replanned. Orders that need more moves than the drone
+     * has remaining, or whose restaurant cannot be reached, are not queued, as they can never be delivered.
+     * @param order Order object representing the late order.
+     * @return The outcome of the order after validation: ValidButNotDelivered for a valid order, or the
+     *         reason the order is invalid.
+     * @throws IOException, if the world data could not be fetched from the REST server.
+     */
+    public OrderOutcome acceptLateOrder(Order order) throws IOException {
+        this.orders.add(order);
+        if (order.isOrderValid()) {
+            ArrayList<DroneMove> fullDeliveryPath = this.getFullOrderPath(order);
+            if (fullDeliveryPath != null && fullDeliveryPath.size() <= this.movesRemaining) {
+                order.setMovesToDeliver(fullDeliveryPath.size());
+                this.pendingOrders.add(order);
             }
         }
+        return order.getOrderOutcome();
     }
 
     /**
@@ -91,12 +302,21 @@ public class Drone {
      *                      take to successfully collect and deliver the order.
      */
     private void deliverOrder(Order order, ArrayList<DroneMove> fullOrderPath) {
+        OrderDeliveryEvent deliveryEvent = new OrderDeliveryEvent();
+        deliveryEvent.begin();
+        this.deliveredOrders.add(order);
+        this.abandonedOrders.remove(order); // A search abandoned earlier in the day may succeed after replanning.
+        this.deliveryStartIndices.add(this.allDroneMoves.size());
         for (DroneMove droneMove : fullOrderPath) {
             this.allDroneMoves.add(droneMove);
             this.currentPos = droneMove.toLngLat();
             this.movesRemaining--;
         }
         order.setOrderOutcome(OrderOutcome.Delivered);
+        deliveryEvent.orderNo = order.getOrderNo();
+        deliveryEvent.moves = fullOrderPath.size();
+        deliveryEvent.movesRemaining = this.movesRemaining;
+        deliveryEvent.commit();
     }
 
     /**
@@ -105,19 +325,33 @@ public class Drone {
      * The method also calls the addHoverStep method to add hover steps for collecting and delivering an order.
      * @param order Order object representing the order for which the full delivery path is to be found.
      * @return ArrayList of PathStep objects representing the full path for collecting and delivering an order.
+     *         Null if no path is found to the restaurant or back, so the order can never be delivered, or if the
+     *         search for either path is abandoned, in which case the order is added to the abandoned orders.
      * @throws IOException If information about no-fly zones or central area points cannot be read from the
      *                    REST server.
      */
     private ArrayList<DroneMove> getFullOrderPath(Order order) throws IOException {
         LngLat restLocation = order.getRestaurant().getLngLat();
-        // Path to go from drone's current location to restaurant and collect the order.
-        ArrayList<Node> pointsToRestaurant = this.pathFinder.findPath(this.currentPos, restLocation, this.startTime);
-        ArrayList<DroneMove> collectionMoves = this.createDroneSteps(pointsToRestaurant, order);
-
-        LngLat collectionPoint = pointsToRestaurant.get(pointsToRestaurant.size() - 1).getLngLat();
+        ArrayList<Node> pointsToRestaurant;
+        ArrayList<Node> pointsToStart;
+        try {
+            // Path to go from drone's current location to restaurant and collect the order.
+            pointsToRestaurant = this.findLeg(this.currentPos, restLocation);
+            if (pointsToRestaurant == null) {
+                return null;
+            }
+            LngLat collectionPoint = pointsToRestaurant.get(pointsToRestaurant.size() - 1).getLngLat();
 
-        // Path to go from order's collection point to drone's start position and deliver the order.
-        ArrayList<Node> pointsToStart = this.pathFinder.findPath(collectionPoint, this.startPos, this.startTime);
+            // Path to go from order's collection point to drone's start position and deliver the order.
+            pointsToStart = this.findLeg(collectionPoint, this.startPos);
+            if (pointsToStart == null) {
+                return null;
+            }
+        } catch (SearchAbandonedException e) {
+            this.abandonedOrders.add(order);
+            return null;
+        }
+        ArrayList<DroneMove> collectionMoves = this.createDroneSteps(pointsToRestaurant, order);
         ArrayList<DroneMove> deliveryMoves = this.createDroneSteps(pointsToStart, order);
 
         ArrayList<DroneMove> fullOrderPath = new ArrayList<>();
@@ -126,10 +360,171 @@ public class Drone {
         return fullOrderPath;
     }
 
+    /**
+     * Method to get a one-way route between two locations, from the leg cache if it has already been planned,
+     * or by searching for it with the PathFinder and caching it otherwise.
+     * @param start The start location of the route.
+     * @param target The target location of the route.
+     * @return ArrayList of Node objects representing the points in the route. Null if no route is found.
+     * @throws IOException If information about no-fly zones or central area points cannot be read from the
+     *                     REST server.
+     * @throws SearchAbandonedException If the search for the route is abandoned at the PathFinder's live node
+     *                                  limit.
+     */
+    private ArrayList<Node> findLeg(LngLat start, LngLat target) throws IOException {
+        try {
+            return this.planLeg(start, target, null).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof SearchAbandonedException) {
+                throw (SearchAbandonedException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Method to get a future one-way route between two locations through the leg cache, so a route that has
+     * already been planned, or is being planned, is never searched for again.
+     * @param start The start location of the route.
+     * @param target The target location of the route.
+     * @param executor Executor to run the search on, or null to run it in the calling thread.
+     * @return A future completed with the points in the route, or with null if no route is found.
+     */
+    private CompletableFuture<ArrayList<Node>> planLeg(LngLat start, LngLat target, Executor executor) {
+        return this.legCache.plan(start, target, () -> {
+            ArrayList<Node> path = this.pathFinder.findPath(start, target, this.clock);
+            if (path != null) {
+                this.searchedPaths.add(path);
+            }
+            return path;
+        }, executor);
+    }
+
+    /**
+     * Method to plan the routes of a batch of orders in parallel on the planning executor: the route from the
+     * drone's current position to each order's restaurant, then the route from its collection point back to the
+     * start position. Orders from the same restaurant share the same routes, which are each searched for once,
+     * and the planned routes are left in the leg cache. Failed searches are left to be retried and reported when
+     * the orders are costed.
+     * @param validOrders The valid orders to plan routes for.
+     */
+    private void planLegsInParallel(ArrayList<Order> validOrders) {
+        ArrayList<CompletableFuture<ArrayList<Node>>> plannedLegs = new ArrayList<>();
+        for (Order order : validOrders) {
+            LngLat restLocation = order.getRestaurant().getLngLat();
+            plannedLegs.add(this.planLeg(this.currentPos, restLocation, this.planningExecutor)
+                    .thenCompose(pointsToRestaurant -> pointsToRestaurant == null
+                            ? CompletableFuture.completedFuture(null)
+                            : this.planLeg(pointsToRestaurant.get(pointsToRestaurant.size() - 1).getLngLat(),
+                                    this.startPos, this.planningExecutor)));
+        }
+        for (CompletableFuture<ArrayList<Node>> plannedLeg : plannedLegs) {
+            plannedLeg.exceptionally(e -> null).join();
+        }
+    }
+
+    /**
+     * Method to find the routes from the drone's current position to the restaurants of a batch of orders with
+     * one search, and leave them in the leg cache. Routes already cached are not searched for again, and routes
+     * not found, or every route if the search is abandoned at the live node limit, are left to be searched for,
+     * and reported, when the orders are costed.
+     * @param validOrders The valid orders to plan routes for.
+     * @throws IOException If the world data could not be fetched from the REST server.
+     */
+    private void planLegsToRestaurants(ArrayList<Order> validOrders) throws IOException {
+        LinkedHashSet<LngLat> restLocations = new LinkedHashSet<>();
+        for (Order order : validOrders) {
+            LngLat restLocation = order.getRestaurant().getLngLat();
+            if (this.legCache.get(this.currentPos, restLocation) == null) {
+                restLocations.add(restLocation);
+            }
+        }
+        if (restLocations.size() < 2) {
+            return; // Nothing is shared with a single search.
+        }
+        ArrayList<LngLat> targets = new ArrayList<>(restLocations);
+        ArrayList<ArrayList<Node>> paths;
+        try {
+            paths = this.pathFinder.findPaths(this.currentPos, targets, this.clock);
+        } catch (SearchAbandonedException e) {
+            return; // Each route is searched for on its own, and reported if that search is abandoned too.
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            if (paths.get(i) != null) {
+                this.searchedPaths.add(paths.get(i));
+                this.legCache.put(this.currentPos, targets.get(i), paths.get(i));
+            }
+        }
+    }
+
+    /**
+     * Method to replan the day after the no-fly zones change. The deliveries the drone has already flown are
+     * kept, the later deliveries are undone, and the cached routes that pass near an added, changed or removed
+     * zone are invalidated. Only the orders whose routes were invalidated, and the valid orders that were not
+     * queued (as they had no route before the change), are costed again; the other orders keep their costs, and
+     * their routes are not looked up until they are delivered. The orders are then delivered again, so the work
+     * grows with the routes the change affects rather than with the day's orders.
+     * @param newNoFlyZones The no-fly zones in force from now on.
+     * @param ordersFlown The number of deliveries, in the order they were made, that have already been flown.
+     * @throws IOException If data from the REST server cannot be read.
+     */
+    public void replanAfterNoFlyZoneChange(NoFlyZone[] newNoFlyZones, int ordersFlown) throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        NoFlyZone[] oldNoFlyZones = dataFetcher.getNoFlyZones();
+
+        // Zones that were added, changed or removed are in one of the arrays but not the other.
+        LinkedHashSet<NoFlyZone> changedZones = new LinkedHashSet<>(Arrays.asList(oldNoFlyZones));
+        changedZones.addAll(Arrays.asList(newNoFlyZones));
+        changedZones.removeIf(zone -> Arrays.asList(oldNoFlyZones).contains(zone)
+                && Arrays.asList(newNoFlyZones).contains(zone));
+        dataFetcher.setNoFlyZones(newNoFlyZones);
+        HashSet<LegCache.Leg> invalidatedLegs = this.legCache.invalidate(changedZones);
+
+        // Undo the deliveries that have not been flown yet, and queue their orders again.
+        HashSet<Order> queuedOrders = new HashSet<>();
+        if (this.pendingOrders != null) {
+            queuedOrders.addAll(this.pendingOrders);
+        }
+        while (this.deliveredOrders.size() > ordersFlown) {
+            int lastDelivery = this.deliveredOrders.size() - 1;
+            Order order = this.deliveredOrders.remove(lastDelivery);
+            int startIndex = this.deliveryStartIndices.remove(lastDelivery);
+            order.setOrderOutcome(OrderOutcome.ValidButNotDelivered);
+            queuedOrders.add(order);
+            this.movesRemaining += this.allDroneMoves.size() - startIndex;
+            this.allDroneMoves.subList(startIndex, this.allDroneMoves.size()).clear();
+        }
+        this.currentPos = this.allDroneMoves.isEmpty()
+                ? this.startPos : this.allDroneMoves.get(this.allDroneMoves.size() - 1).toLngLat();
+
+        PriorityQueue<Order> orderPriorityQueue =
+                new PriorityQueue<>(Comparator.comparingInt(Order::getMovesToDeliver));
+        ArrayList<Order> ordersToCost = new ArrayList<>();
+        for (Order order : this.orders) {
+            if (order.getOrderOutcome() != OrderOutcome.ValidButNotDelivered) {
+                continue; // Delivered, or invalid.
+            }
+            if (!queuedOrders.contains(order) || this.usesAnyLeg(order, invalidatedLegs)) {
+                this.estimatedOrders.remove(order);
+                ordersToCost.add(order);
+            } else {
+                orderPriorityQueue.add(order);
+            }
+        }
+        orderPriorityQueue.addAll(this.costOrders(ordersToCost));
+        this.pendingOrders = orderPriorityQueue;
+        this.deliverPendingOrders();
+    }
+
     /**
      * Method to create a list of DroneMove objects, representing each move the drone must make to follow points
      * in a one-way route between two locations. The method also calls the addHoverStep method to add a hover
      * step at the end of all moves, to represent the drone hovering at delivery and collection points of an order.
+     * A route this drone did not search for itself was taken from the leg cache, stamped by the clock of the drone
+     * that searched for it, so its moves are stamped with this drone's ticks when the route was taken instead.
      * @param pathPoints ArrayList of Node objects representing the points in the route between two locations.
      * @param order Order object representing the order being delivered by the drone.
      * @return ArrayList of DroneMove objects representing the moves the drone must make to follow the route between
@@ -137,11 +532,13 @@ public class Drone {
      */
     private ArrayList<DroneMove> createDroneSteps(ArrayList<Node> pathPoints, Order order) {
         ArrayList<DroneMove> droneMoves = new ArrayList<>();
+        boolean searched = this.searchedPaths.contains(pathPoints);
+        long cachedTicks = this.clock.getTicks();
         for (int i = 0; i < pathPoints.size() - 1; i++) {
             Node fromNode = pathPoints.get(i);
             Node toNode = pathPoints.get(i + 1);
             DroneMove droneMove = new DroneMove(fromNode.getLngLat(), toNode.getLngLat(), toNode.getAngleFromParent(),
-                    toNode.getTicksSinceStartOfCalculation(), order.getOrderNo());
+                    searched ? toNode.getTicksSinceStartOfCalculation() : cachedTicks, order.getOrderNo());
             droneMoves.add(droneMove);
         }
         addHoverMove(droneMoves);
@@ -158,7 +555,7 @@ public class Drone {
         DroneMove lastMove = droneMoves.get(droneMoves.size() - 1);
         LngLat hoverPoint = lastMove.toLngLat();
         DroneMove hoverMove = new DroneMove(hoverPoint, hoverPoint, null,
-                System.nanoTime() - this.startTime, lastMove.orderNo());
+                this.clock.getTicks(), lastMove.orderNo());
         droneMoves.add(hoverMove);
     }
 
@@ -172,18 +569,117 @@ public class Drone {
         // Prioritise orders by fewer moves required to deliver them.
         PriorityQueue<Order> orderPriorityQueue =
                 new PriorityQueue<>(Comparator.comparingInt(Order::getMovesToDeliver));
-        Order[] orders = DataFetcher.getInstance().getOrders();
-        for (Order order : orders) {
+        ArrayList<Order> validOrders = new ArrayList<>();
+        this.estimatedOrders.clear();
+        for (Order order : this.orders) {
+            if (order.getOrderOutcome() == OrderOutcome.Delivered) {
+                continue; // Already delivered earlier in the day.
+            }
             if (order.isOrderValid()) {
-                ArrayList<DroneMove> fullDeliveryPath = this.getFullOrderPath(order);
-                // Approximate number of moves required to deliver the order.
-                order.setMovesToDeliver(fullDeliveryPath.size());
-                orderPriorityQueue.add(order);
+                validOrders.add(order);
             }
         }
+        orderPriorityQueue.addAll(this.costOrders(validOrders));
         return orderPriorityQueue;
     }
 
+    /**
+     * Method to set the number of moves required to deliver each of a batch of valid orders from the drone's
+     * current position: looked up in the distance fields, estimated by a lower bound if orders are prioritised
+     * lazily, or otherwise found by planning the order's routes.
+     * @param validOrders The valid orders to cost.
+     * @return The orders that can be delivered, without those that have no route to the restaurant or back.
+     * @throws IOException If data from the REST server cannot be read.
+     */
+    private ArrayList<Order> costOrders(ArrayList<Order> validOrders) throws IOException {
+        ArrayList<Order> costedOrders = new ArrayList<>(validOrders);
+        ArrayList<Order> ordersToPlan = new ArrayList<>();
+        for (Order order : validOrders) {
+            int movesToDeliver = this.lookUpMovesToDeliver(order);
+            if (movesToDeliver >= 0) {
+                order.setMovesToDeliver(movesToDeliver);
+            } else if (this.lazyPrioritisation) {
+                order.setMovesToDeliver(this.getMinMovesToDeliver(order));
+                this.estimatedOrders.add(order); // Its routes are planned when it reaches the head.
+            } else {
+                ordersToPlan.add(order); // Not covered by distance fields, so its routes are planned.
+            }
+        }
+        if (this.oneToManyPlanning) {
+            this.planLegsToRestaurants(ordersToPlan);
+        }
+        if (this.planningExecutor != null) {
+            this.planLegsInParallel(ordersToPlan);
+        }
+        for (Order order : ordersToPlan) {
+            ArrayList<DroneMove> fullOrderPath = this.getFullOrderPath(order);
+            if (fullOrderPath == null) {
+                costedOrders.remove(order); // No route to the restaurant or back, so it is never delivered.
+            } else {
+                // Approximate number of moves required to deliver the order.
+                order.setMovesToDeliver(fullOrderPath.size());
+            }
+        }
+        return costedOrders;
+    }
+
+    /**
+     * Method to check if an order's routes use one of a set of legs: the route to its restaurant, or the route
+     * back to the start position from its collection point, which is close to the restaurant.
+     * @param order Order object representing the order.
+     * @param legs The legs to check.
+     * @return True if one of the legs may be a route of the order, false otherwise.
+     */
+    private boolean usesAnyLeg(Order order, Set<LegCache.Leg> legs) {
+        LngLat restLocation = order.getRestaurant().getLngLat();
+        for (LegCache.Leg leg : legs) {
+            if (leg.target().equals(restLocation)
+                    || (leg.target().equals(this.startPos) && leg.start().closeTo(restLocation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to look up the approximate number of moves required to deliver an order from the drone's current
+     * position in the PathFinder's precomputed distance fields, without planning its routes.
+     * @param order Order object representing the order to deliver.
+     * @return The approximate number of moves, including the hover moves at the restaurant and the drone's
+     *         start position, or -1 if the PathFinder has no distance fields or they do not cover the route.
+     * @throws IOException If data from the REST server cannot be read.
+     */
+    private int lookUpMovesToDeliver(Order order) throws IOException {
+        DistanceFieldStore distanceFields = this.pathFinder.getDistanceFields();
+        if (distanceFields == null) {
+            return -1;
+        }
+        LngLat restLocation = order.getRestaurant().getLngLat();
+        DistanceField restaurantField = distanceFields.getField(restLocation);
+        DistanceField startField = distanceFields.getField(this.startPos);
+        if (restaurantField == null || startField == null) {
+            return -1;
+        }
+        double moves = restaurantField.getInterpolatedMovesToSource(this.currentPos)
+                + startField.getInterpolatedMovesToSource(restLocation);
+        return Double.isInfinite(moves) ? -1 : (int) Math.ceil(moves) + 2;
+    }
+
+    /**
+     * Method to get a lower bound on the number of moves required to deliver an order from the drone's current
+     * position, from the straight-line distances to its restaurant and back, without planning its routes. Each
+     * leg ends within one move of its target, so it needs at least one move fewer than its straight-line distance
+     * in moves, and the leg back starts up to one move further from the start position than the restaurant is.
+     * @param order Order object representing the order to deliver.
+     * @return The lower bound, including the hover moves at the restaurant and the drone's start position.
+     */
+    private int getMinMovesToDeliver(Order order) {
+        LngLat restLocation = order.getRestaurant().getLngLat();
+        int movesToRestaurant = (int) Math.ceil(this.currentPos.distanceTo(restLocation) / MOVE_LENGTH) - 1;
+        int movesToStart = (int) Math.ceil(restLocation.distanceTo(this.startPos) / MOVE_LENGTH) - 2;
+        return Math.max(0, movesToRestaurant) + Math.max(0, movesToStart) + 2;
+    }
+
     /**
      * Method the get the number of moves the drone can make before it runs out of battery.
      * @return Number of moves the drone can make before it runs out of battery.
@@ -192,6 +688,15 @@ public class Drone {
         return this.movesRemaining;
     }
 
+    /**
+     * Method to get the orders that have not been delivered because a search for one of their routes was
+     * abandoned at the PathFinder's live node limit, so it is not known whether they could have been delivered.
+     * @return ArrayList of the abandoned orders, in the order they were abandoned.
+     */
+    public ArrayList<Order> getAbandonedOrders() {
+        return new ArrayList<>(this.abandonedOrders);
+    }
+
     /**
      * Method to get the full flight path (all moves made by the drone), consisting of individual moves, taken
      * by the drone on a given day.
@@ -200,4 +705,13 @@ public class Drone {
     public ArrayList<DroneMove> getAllDroneMoves() {
         return allDroneMoves;
     }
+
+    /**
+     * Method to get the full flight path taken by the drone on a given day, compressed into runs of moves in
+     * the same direction. The path is built from the drone's moves on each call, for output only.
+     * @return CompressedFlightPath object representing all the moves made by the drone.
+     */
+    public CompressedFlightPath getCompressedFlightPath() {
+        return CompressedFlightPath.of(this.allDroneMoves);
+    }
 }
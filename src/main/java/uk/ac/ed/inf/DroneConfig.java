@@ -0,0 +1,297 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Class to represent the drone and world parameters used for planning: the drone's battery (maximum moves per
+ * day), the length of a move, the location of the depot (Appleton Tower), the weight of the path search
+ * heuristic and the kind of clock stamping the drone's moves. Parameters are read from a properties file and
+ * can be overridden with "key=value" arguments or with system properties named "pizzadronz.key", so experiments
+ * do not need the code to be recompiled.
+ * <p>
+ * The startup configuration sets the constants in Drone and Node, so the move length and depot, which define the
+ * lattice every path is planned on, are fixed for the whole process and must be configured before any planning
+ * class is used. The battery, heuristic weight and clock can also be given to each Drone and PathFinder, so
+ * different values can be compared in one process.
+ */
+public class DroneConfig {
+
+    /**
+     * Name of the properties file read from the working directory when no other file is given.
+     */
+    public static final String DEFAULT_FILE_NAME = "pizzadronz.properties";
+
+    /**
+     * Name of the system property giving the path of the properties file.
+     */
+    public static final String FILE_PROPERTY = "pizzadronz.config";
+
+    /**
+     * Keys of the parameters that can be configured.
+     */
+    public static final String[] KEYS = {"maxDroneMoves", "moveLength", "depotLng", "depotLat", "heuristicWeight",
+            "tickClock"};
+
+    /**
+     * Keys of the parameters that are fixed for the whole process by the startup configuration.
+     */
+    public static final String[] STARTUP_KEYS = {"moveLength", "depotLng", "depotLat"};
+
+    // Prefix of the system properties overriding parameters.
+    private static final String SYSTEM_PROPERTY_PREFIX = "pizzadronz.";
+
+    // Configuration the constants in Drone and Node are set from, or null if it has not been loaded yet.
+    private static DroneConfig startupConfig;
+
+    // Field to store whether the startup configuration has been read, after which it can no longer change.
+    private static boolean startupConfigUsed;
+
+    // Maximum number of moves a drone can make in a day.
+    private final int maxDroneMoves;
+
+    // Distance (in degrees) a drone travels in one move.
+    private final double moveLength;
+
+    // Coordinates of the depot, where the drone starts and delivers orders.
+    private final double depotLng;
+    private final double depotLat;
+
+    // Weight of the straight-line distance heuristic in the path search.
+    private final double heuristicWeight;
+
+    // Kind of clock stamping the drone's moves, one of TickClock.NAMES.
+    private final String tickClock;
+
+    /**
+     * Class constructor to initialise a new configuration.
+     * @param maxDroneMoves Maximum number of moves a drone can make in a day.
+     * @param moveLength Distance (in degrees) a drone travels in one move.
+     * @param depotLng Longitude of the depot.
+     * @param depotLat Latitude of the depot.
+     * @param heuristicWeight Weight of the straight-line distance heuristic in the path search.
+     * @param tickClock Kind of clock stamping the drone's moves, one of TickClock.NAMES.
+     * @throws IllegalArgumentException If the battery, move length or heuristic weight is not positive, or the
+     *                                  kind of clock is unknown.
+     */
+    public DroneConfig(int maxDroneMoves, double moveLength, double depotLng, double depotLat,
+                       double heuristicWeight, String tickClock) {
+        if (maxDroneMoves <= 0 || !(moveLength > 0) || !(heuristicWeight > 0)) {
+            throw new IllegalArgumentException("Drone moves, move length and heuristic weight must be positive.");
+        }
+        if (!Arrays.asList(TickClock.NAMES).contains(tickClock)) {
+            throw new IllegalArgumentException("Unknown tick clock: " + tickClock);
+        }
+        this.maxDroneMoves = maxDroneMoves;
+        this.moveLength = moveLength;
+        this.depotLng = depotLng;
+        this.depotLat = depotLat;
+        this.heuristicWeight = heuristicWeight;
+        this.tickClock = tickClock;
+    }
+
+    /**
+     * Method to get the default configuration, used for any parameter that is not configured.
+     * @return The default configuration.
+     */
+    public static DroneConfig getDefault() {
+        return new DroneConfig(2000, 0.00015, -3.186874, 55.944494, 1.5, "real");
+    }
+
+    /**
+     * Method to load a configuration from a properties file, with overrides applied on top of it.
+     * @param file Path of the properties file. The defaults are used if it is null or does not exist.
+     * @param overrides Overrides of the form "key=value".
+     * @return The loaded configuration.
+     * @throws IOException If the file exists but cannot be read.
+     * @throws IllegalArgumentException If a key is unknown or a value is invalid.
+     */
+    public static DroneConfig load(Path file, String[] overrides) throws IOException {
+        DroneConfig config = getDefault();
+        if (file != null && Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                config = config.with(key, properties.getProperty(key));
+            }
+        }
+        return config.withOverrides(overrides);
+    }
+
+    /**
+     * Method to get a copy of this configuration with overrides applied.
+     * @param overrides Overrides of the form "key=value".
+     * @return The changed configuration.
+     * @throws IllegalArgumentException If an override is malformed, or its key is unknown or value invalid.
+     */
+    public DroneConfig withOverrides(String[] overrides) {
+        DroneConfig config = this;
+        for (String override : overrides) {
+            String[] keyValue = override.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Configuration overrides must be of the form key=value: "
+                        + override);
+            }
+            config = config.with(keyValue[0].trim(), keyValue[1].trim());
+        }
+        return config;
+    }
+
+    /**
+     * Method to get a copy of this configuration with one parameter changed.
+     * @param key The key of the parameter, one of KEYS.
+     * @param value The new value of the parameter.
+     * @return The changed configuration.
+     * @throws IllegalArgumentException If the key is unknown or the value is invalid.
+     */
+    public DroneConfig with(String key, String value) {
+        try {
+            switch (key) {
+                case "maxDroneMoves":
+                    return new DroneConfig(Integer.parseInt(value), this.moveLength, this.depotLng, this.depotLat,
+                            this.heuristicWeight, this.tickClock);
+                case "moveLength":
+                    return new DroneConfig(this.maxDroneMoves, Double.parseDouble(value), this.depotLng,
+                            this.depotLat, this.heuristicWeight, this.tickClock);
+                case "depotLng":
+                    return new DroneConfig(this.maxDroneMoves, this.moveLength, Double.parseDouble(value),
+                            this.depotLat, this.heuristicWeight, this.tickClock);
+                case "depotLat":
+                    return new DroneConfig(this.maxDroneMoves, this.moveLength, this.depotLng,
+                            Double.parseDouble(value), this.heuristicWeight, this.tickClock);
+                case "heuristicWeight":
+                    return new DroneConfig(this.maxDroneMoves, this.moveLength, this.depotLng, this.depotLat,
+                            Double.parseDouble(value), this.tickClock);
+                case "tickClock":
+                    return new DroneConfig(this.maxDroneMoves, this.moveLength, this.depotLng, this.depotLat,
+                            this.heuristicWeight, value);
+                default:
+                    throw new IllegalArgumentException("Unknown configuration key: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Method to get the startup configuration, which sets the constants in Drone and Node. Unless configure was
+     * called first, it is loaded from the file named by the "pizzadronz.config" system property (or
+     * DEFAULT_FILE_NAME in the working directory), with "pizzadronz.key" system properties as overrides.
+     * @return The startup configuration.
+     * @throws IllegalStateException If the configuration file cannot be read or is invalid.
+     */
+    public static synchronized DroneConfig getStartupConfig() {
+        if (startupConfig == null) {
+            startupConfig = loadStartupConfig();
+        }
+        startupConfigUsed = true;
+        return startupConfig;
+    }
+
+    /**
+     * Method to load the startup configuration from the configuration file and system properties.
+     * @return The loaded configuration.
+     * @throws IllegalStateException If the configuration file cannot be read or is invalid.
+     */
+    private static DroneConfig loadStartupConfig() {
+        ArrayList<String> overrides = new ArrayList<>();
+        for (String key : KEYS) {
+            String value = System.getProperty(SYSTEM_PROPERTY_PREFIX + key);
+            if (value != null) {
+                overrides.add(key + "=" + value);
+            }
+        }
+        try {
+            return load(Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE_NAME)),
+                    overrides.toArray(new String[0]));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Could not load the drone configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Method to set the startup configuration from the configuration file and command line overrides. Must be
+     * called before any planning class reads the startup configuration.
+     * @param overrides Overrides of the form "key=value", applied after the file and system properties.
+     * @throws IllegalStateException If the startup configuration has already been read, or the configuration
+     *                               file cannot be read.
+     * @throws IllegalArgumentException If an override is malformed, or its key is unknown or value invalid.
+     */
+    public static synchronized void configure(String[] overrides) {
+        if (startupConfigUsed) {
+            throw new IllegalStateException("The drone configuration must be set before planning starts.");
+        }
+        startupConfig = loadStartupConfig().withOverrides(overrides);
+    }
+
+    /**
+     * Method to check whether a configuration has the same move length and depot as the startup configuration,
+     * so it can be used for planning in this process.
+     * @return True if the move length and depot match the startup configuration, false otherwise.
+     */
+    public boolean matchesStartupConfig() {
+        DroneConfig startup = getStartupConfig();
+        return this.moveLength == startup.moveLength && this.depotLng == startup.depotLng
+                && this.depotLat == startup.depotLat;
+    }
+
+    /**
+     * Method to get the maximum number of moves a drone can make in a day.
+     * @return The maximum number of moves.
+     */
+    public int getMaxDroneMoves() {
+        return this.maxDroneMoves;
+    }
+
+    /**
+     * Method to get the distance (in degrees) a drone travels in one move.
+     * @return The move length.
+     */
+    public double getMoveLength() {
+        return this.moveLength;
+    }
+
+    /**
+     * Method to get the location of the depot, where the drone starts and delivers orders.
+     * @return The location of the depot.
+     */
+    public LngLat getDepot() {
+        return new LngLat(this.depotLng, this.depotLat);
+    }
+
+    /**
+     * Method to get the weight of the straight-line distance heuristic in the path search.
+     * @return The heuristic weight.
+     */
+    public double getHeuristicWeight() {
+        return this.heuristicWeight;
+    }
+
+    /**
+     * Method to get the kind of clock stamping the drone's moves.
+     * @return The name of the kind of clock, one of TickClock.NAMES.
+     */
+    public String getTickClock() {
+        return this.tickClock;
+    }
+
+    /**
+     * Method to get the configuration as a list of "key=value" pairs.
+     * @return The configuration as a string.
+     */
+    @Override
+    public String toString() {
+        return "maxDroneMoves=" + this.maxDroneMoves + " moveLength=" + this.moveLength + " depotLng="
+                + this.depotLng + " depotLat=" + this.depotLat + " heuristicWeight=" + this.heuristicWeight
+                + " tickClock=" + this.tickClock;
+    }
+
+}
@@ -0,0 +1,290 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+
+/**
+ * Class to represent the edges of a set of no-fly zones as a structure of arrays (the coordinates and extents of
+ * every edge in flat arrays), so a move can be tested against all of them in one tight loop, without allocating a
+ * Line2D per edge. Each edge is first rejected if both its ends are strictly on the same side of the move, or both
+ * ends of the move are strictly on the same side of it, using the same orientation products as
+ * Line2D.linesIntersect. Only the few edges that are not rejected are passed to Line2D.linesIntersect, so the
+ * result is always the same as testing every edge with it.
+ * <p>
+ * Zones whose outlines overlap or touch are merged into clusters, and each cluster is bounded by a hull: the
+ * range of its vertices along each of HULL_AXES fixed axes, widened by HULL_TOLERANCE. A move whose range along
+ * any axis misses the hull cannot cross the cluster's edges, so they are only tested for moves entering the hull,
+ * and rejecting a cluster costs the same however many vertices its zones have. Every edge is kept as served, as
+ * Line2D.linesIntersect treats a repeated vertex as an edge of its own.
+ */
+public class EdgeSet {
+
+    /**
+     * Number of axes each cluster's hull is bounded along, at every 22.5 degrees over half a turn, so every
+     * compass direction a move can take is along or perpendicular to one of them.
+     */
+    public static final int HULL_AXES = 8;
+
+    /**
+     * Distance (in degrees) each cluster's hull is widened by on every axis, far more than the rounding of a
+     * projection, so a move touching an edge is never rejected by the hull.
+     */
+    public static final double HULL_TOLERANCE = 1e-9;
+
+    // Components of the unit vector along each hull axis.
+    private static final double[] AXIS_LNGS = new double[HULL_AXES];
+    private static final double[] AXIS_LATS = new double[HULL_AXES];
+
+    static {
+        for (int axis = 0; axis < HULL_AXES; axis++) {
+            double angle = Math.toRadians(axis * 180.0 / HULL_AXES);
+            AXIS_LNGS[axis] = Math.cos(angle);
+            AXIS_LATS[axis] = Math.sin(angle);
+        }
+    }
+
+    // No-fly zones the edges belong to.
+    private final NoFlyZone[] noFlyZones;
+
+    // Index of the first edge of each cluster, followed by the number of edges, so the edges of cluster c are
+    // clusterStarts[c] to clusterStarts[c + 1] - 1.
+    private final int[] clusterStarts;
+
+    // Least and greatest projections of each cluster's vertices onto each axis, widened by HULL_TOLERANCE, at
+    // index cluster * HULL_AXES + axis.
+    private final double[] hullMins;
+    private final double[] hullMaxs;
+
+    // Coordinates of the start of each edge.
+    private final double[] startLngs;
+    private final double[] startLats;
+
+    // Coordinates of the end of each edge.
+    private final double[] endLngs;
+    private final double[] endLats;
+
+    // Change in longitude and latitude from the start to the end of each edge.
+    private final double[] deltaLngs;
+    private final double[] deltaLats;
+
+    /**
+     * Class constructor to initialise the edges of a set of no-fly zones, grouped into clusters of overlapping or
+     * touching zones. Each zone's vertices are joined in order, and its last vertex is expected to repeat its first.
+     * @param noFlyZones The no-fly zones.
+     */
+    public EdgeSet(NoFlyZone[] noFlyZones) {
+        this.noFlyZones = noFlyZones;
+
+        // Hull of each zone, then clusters of zones whose hulls overlap, merged until no two clusters overlap.
+        ArrayList<ArrayList<LngLat[]>> clusters = new ArrayList<>();
+        ArrayList<double[]> clusterHulls = new ArrayList<>();
+        for (NoFlyZone noFlyZone : noFlyZones) {
+            LngLat[] nfz = noFlyZone.getCoordinatesLngLat();
+            ArrayList<LngLat[]> cluster = new ArrayList<>();
+            cluster.add(nfz);
+            clusters.add(cluster);
+            clusterHulls.add(getHull(nfz));
+        }
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < clusters.size() && !merged; i++) {
+                for (int j = i + 1; j < clusters.size() && !merged; j++) {
+                    if (hullsOverlap(clusterHulls.get(i), clusterHulls.get(j))) {
+                        clusters.get(i).addAll(clusters.remove(j));
+                        double[] hull = clusterHulls.get(i);
+                        double[] otherHull = clusterHulls.remove(j);
+                        for (int axis = 0; axis < HULL_AXES; axis++) {
+                            hull[axis] = Math.min(hull[axis], otherHull[axis]);
+                            hull[HULL_AXES + axis] = Math.max(hull[HULL_AXES + axis], otherHull[HULL_AXES + axis]);
+                        }
+                        merged = true;
+                    }
+                }
+            }
+        }
+
+        int edgeCount = 0;
+        for (NoFlyZone noFlyZone : noFlyZones) {
+            edgeCount += Math.max(0, noFlyZone.getCoordinatesLngLat().length - 1);
+        }
+        this.startLngs = new double[edgeCount];
+        this.startLats = new double[edgeCount];
+        this.endLngs = new double[edgeCount];
+        this.endLats = new double[edgeCount];
+        this.deltaLngs = new double[edgeCount];
+        this.deltaLats = new double[edgeCount];
+        this.clusterStarts = new int[clusters.size() + 1];
+        this.hullMins = new double[clusters.size() * HULL_AXES];
+        this.hullMaxs = new double[clusters.size() * HULL_AXES];
+        int edge = 0;
+        for (int cluster = 0; cluster < clusters.size(); cluster++) {
+            this.clusterStarts[cluster] = edge;
+            double[] hull = clusterHulls.get(cluster);
+            for (int axis = 0; axis < HULL_AXES; axis++) {
+                this.hullMins[cluster * HULL_AXES + axis] = hull[axis] - HULL_TOLERANCE;
+                this.hullMaxs[cluster * HULL_AXES + axis] = hull[HULL_AXES + axis] + HULL_TOLERANCE;
+            }
+            for (LngLat[] nfz : clusters.get(cluster)) {
+                for (int i = 0; i < nfz.length - 1; i++) {
+                    this.startLngs[edge] = nfz[i].lng();
+                    this.startLats[edge] = nfz[i].lat();
+                    this.endLngs[edge] = nfz[i + 1].lng();
+                    this.endLats[edge] = nfz[i + 1].lat();
+                    this.deltaLngs[edge] = nfz[i + 1].lng() - nfz[i].lng();
+                    this.deltaLats[edge] = nfz[i + 1].lat() - nfz[i].lat();
+                    edge++;
+                }
+            }
+        }
+        this.clusterStarts[clusters.size()] = edge;
+    }
+
+    /**
+     * Method to get the hull of a zone's vertices: their least projection onto each axis, followed by their
+     * greatest projection onto each axis.
+     * @param vertices The vertices of the zone.
+     * @return The hull, HULL_AXES least projections followed by HULL_AXES greatest projections.
+     */
+    private static double[] getHull(LngLat[] vertices) {
+        double[] hull = new double[2 * HULL_AXES];
+        for (int axis = 0; axis < HULL_AXES; axis++) {
+            hull[axis] = Double.POSITIVE_INFINITY;
+            hull[HULL_AXES + axis] = Double.NEGATIVE_INFINITY;
+            for (LngLat vertex : vertices) {
+                double projection = vertex.lng() * AXIS_LNGS[axis] + vertex.lat() * AXIS_LATS[axis];
+                hull[axis] = Math.min(hull[axis], projection);
+                hull[HULL_AXES + axis] = Math.max(hull[HULL_AXES + axis], projection);
+            }
+        }
+        return hull;
+    }
+
+    /**
+     * Method to check whether two hulls overlap or touch, once widened by HULL_TOLERANCE, along every axis.
+     * @param hull The first hull.
+     * @param otherHull The second hull.
+     * @return True if the hulls overlap along every axis, false otherwise.
+     */
+    private static boolean hullsOverlap(double[] hull, double[] otherHull) {
+        for (int axis = 0; axis < HULL_AXES; axis++) {
+            if (hull[axis] > otherHull[HULL_AXES + axis] + 2 * HULL_TOLERANCE
+                    || otherHull[axis] > hull[HULL_AXES + axis] + 2 * HULL_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to get the no-fly zones the edges belong to.
+     * @return The no-fly zones.
+     */
+    public NoFlyZone[] getNoFlyZones() {
+        return this.noFlyZones;
+    }
+
+    /**
+     * Method to get the number of edges in the set.
+     * @return The number of edges.
+     */
+    public int size() {
+        return this.startLngs.length;
+    }
+
+    /**
+     * Method to get the number of clusters the zones were merged into.
+     * @return The number of clusters.
+     */
+    public int getClusterCount() {
+        return this.clusterStarts.length - 1;
+    }
+
+    /**
+     * Method to check whether a move crosses or touches any edge, with the same result as testing it against every
+     * edge with Line2D.linesIntersect for any move of non-zero length. Only the edges of clusters whose hull the
+     * move enters are tested.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @return True if the move crosses or touches an edge, false otherwise.
+     */
+    public boolean crossesAny(LngLat from, LngLat to) {
+        double fromLng = from.lng();
+        double fromLat = from.lat();
+        double toLng = to.lng();
+        double toLat = to.lat();
+        double moveDeltaLng = toLng - fromLng;
+        double moveDeltaLat = toLat - fromLat;
+        for (int cluster = 0; cluster < this.clusterStarts.length - 1; cluster++) {
+            if (!this.entersHull(cluster, fromLng, fromLat, toLng, toLat)) {
+                continue;
+            }
+            if (this.crossesCluster(cluster, fromLng, fromLat, toLng, toLat, moveDeltaLng, moveDeltaLat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to check whether a move's range along every axis meets a cluster's hull, which it must if it crosses
+     * or touches any of the cluster's edges.
+     * @param cluster The index of the cluster.
+     * @param fromLng The longitude of the start of the move.
+     * @param fromLat The latitude of the start of the move.
+     * @param toLng The longitude of the end of the move.
+     * @param toLat The latitude of the end of the move.
+     * @return True if the move enters the hull, false if it misses the hull along some axis.
+     */
+    private boolean entersHull(int cluster, double fromLng, double fromLat, double toLng, double toLat) {
+        int hull = cluster * HULL_AXES;
+        for (int axis = 0; axis < HULL_AXES; axis++) {
+            double fromProjection = fromLng * AXIS_LNGS[axis] + fromLat * AXIS_LATS[axis];
+            double toProjection = toLng * AXIS_LNGS[axis] + toLat * AXIS_LATS[axis];
+            if (Math.max(fromProjection, toProjection) < this.hullMins[hull + axis]
+                    || Math.min(fromProjection, toProjection) > this.hullMaxs[hull + axis]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to check whether a move crosses or touches any edge of a cluster.
+     * @param cluster The index of the cluster.
+     * @param fromLng The longitude of the start of the move.
+     * @param fromLat The latitude of the start of the move.
+     * @param toLng The longitude of the end of the move.
+     * @param toLat The latitude of the end of the move.
+     * @param moveDeltaLng The change in longitude over the move.
+     * @param moveDeltaLat The change in latitude over the move.
+     * @return True if the move crosses or touches an edge of the cluster, false otherwise.
+     */
+    private boolean crossesCluster(int cluster, double fromLng, double fromLat, double toLng, double toLat,
+                                   double moveDeltaLng, double moveDeltaLat) {
+        for (int i = this.clusterStarts[cluster]; i < this.clusterStarts[cluster + 1]; i++) {
+            // Orientation of the edge's ends relative to the move, as computed by Line2D.relativeCCW.
+            double startSide = (this.startLngs[i] - fromLng) * moveDeltaLat
+                    - (this.startLats[i] - fromLat) * moveDeltaLng;
+            double endSide = (this.endLngs[i] - fromLng) * moveDeltaLat - (this.endLats[i] - fromLat) * moveDeltaLng;
+            if ((startSide > 0 && endSide > 0) || (startSide < 0 && endSide < 0)) {
+                continue;
+            }
+            // Orientation of the move's ends relative to the edge.
+            double fromSide = (fromLng - this.startLngs[i]) * this.deltaLats[i]
+                    - (fromLat - this.startLats[i]) * this.deltaLngs[i];
+            double toSide = (toLng - this.startLngs[i]) * this.deltaLats[i]
+                    - (toLat - this.startLats[i]) * this.deltaLngs[i];
+            if ((fromSide > 0 && toSide > 0) || (fromSide < 0 && toSide < 0)) {
+                continue;
+            }
+            // The ends are on opposite sides of both lines, or collinear with one, which the exact test resolves.
+            if (Line2D.linesIntersect(fromLng, fromLat, toLng, toLat, this.startLngs[i], this.startLats[i],
+                    this.endLngs[i], this.endLats[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,32 @@
+package uk.ac.ed.inf;
+
+/**
+ * Heuristic estimating the remaining distance as the weighted straight-line (Euclidean) distance to the
+ * target. A weight above 1 makes the search greedier, expanding fewer nodes at the cost of paths that may
+ * be slightly longer than the shortest.
+ */
+public class EuclideanHeuristic implements Heuristic {
+
+    // Weighting factor applied to the straight-line distance.
+    private final double weight;
+
+    /**
+     * Class constructor to initialise a new Euclidean heuristic.
+     * @param weight Weighting factor applied to the straight-line distance.
+     */
+    public EuclideanHeuristic(double weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Method to estimate the remaining distance as the weighted straight-line distance to the target.
+     * @param point The point the estimate is made from.
+     * @param target The target point of the path.
+     * @return The weighted straight-line distance (in degrees) to the target.
+     */
+    @Override
+    public double estimate(LngLat point, LngLat target) {
+        return this.weight * point.distanceTo(target);
+    }
+
+}
@@ -0,0 +1,18 @@
+package uk.ac.ed.inf;
+
+/**
+ * Interface for the heuristic (h cost) used by the A* search pathfinding algorithm to estimate the
+ * remaining distance from a point to the target point of a path.
+ */
+public interface Heuristic {
+
+    /**
+     * Method to estimate the distance (in degrees) the drone still has to travel from a point to get
+     * close to the target point of a path.
+     * @param point The point the estimate is made from.
+     * @param target The target point of the path.
+     * @return The estimated remaining distance (in degrees).
+     */
+    double estimate(LngLat point, LngLat target);
+
+}
@@ -37,8 +37,15 @@ public class JsonMaker {
      * @throws IOException if the file cannot be created/overwritten.
      */
     private static void writeToFile(String filePath, JsonNode jsonNode) throws IOException {
-        ObjectWriter objectWriter = OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
-        objectWriter.writeValue(Paths.get(filePath).toFile(), jsonNode);
+        JsonWriteEvent writeEvent = new JsonWriteEvent();
+        writeEvent.begin();
+        try {
+            ObjectWriter objectWriter = OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
+            objectWriter.writeValue(Paths.get(filePath).toFile(), jsonNode);
+        } finally {
+            writeEvent.filePath = filePath;
+            writeEvent.commit();
+        }
     }
 
     /**
@@ -48,8 +55,18 @@ public class JsonMaker {
      */
     public static void createDeliveriesJson() throws IOException {
         DataFetcher dataFetcher = DataFetcher.getInstance();
+        String filePath = "resultfiles/deliveries-" + dataFetcher.getDate() + ".json";
+        writeToFile(filePath, getDeliveriesJson(dataFetcher.getOrders()));
+    }
+
+    /**
+     * Method to create a JSON array with details about all the orders delivered and not delivered
+     * by the drone.
+     * @param orders Array of Order objects whose outcomes are included.
+     * @return ArrayNode containing the order number, outcome and cost of each order.
+     */
+    public static ArrayNode getDeliveriesJson(Order[] orders) {
         ArrayNode deliveries = OBJECT_MAPPER.createArrayNode();
-        Order[] orders = dataFetcher.getOrders();
         for (Order order : orders) {
             ObjectNode orderNode = OBJECT_MAPPER.createObjectNode();
             orderNode.put("orderNo", order.getOrderNo());
@@ -57,8 +74,7 @@ public class JsonMaker {
             orderNode.put("costInPence", order.getPriceTotalInPence());
             deliveries.add(orderNode);
         }
-        String filePath = "resultfiles/deliveries-" + dataFetcher.getDate() + ".json";
-        writeToFile(filePath, deliveries);
+        return deliveries;
     }
 
     /**
@@ -68,6 +84,16 @@ public class JsonMaker {
      * @throws IOException if the file cannot be created/overwritten.
      */
     public static void createFlightPathJson(ArrayList<DroneMove> allDroneMoves) throws IOException {
+        String filePath = "resultfiles/flightpath-" + DataFetcher.getInstance().getDate() + ".json";
+        writeToFile(filePath, getFlightPathJson(allDroneMoves));
+    }
+
+    /**
+     * Method to create a JSON array with details about all the moves made by the drone.
+     * @param allDroneMoves ArrayList of DroneMove objects representing all the moves made by the drone.
+     * @return ArrayNode containing the details of each move.
+     */
+    public static ArrayNode getFlightPathJson(ArrayList<DroneMove> allDroneMoves) {
         ArrayNode flightPath = OBJECT_MAPPER.createArrayNode();
         for (DroneMove droneMove : allDroneMoves) {
             ObjectNode moveNode = OBJECT_MAPPER.createObjectNode();
@@ -80,8 +106,44 @@ public class JsonMaker {
             moveNode.put("ticksSinceStartOfCalculation", droneMove.ticksSinceStartOfCalculation());
             flightPath.add(moveNode);
         }
-        String filePath = "resultfiles/flightpath-" + DataFetcher.getInstance().getDate() + ".json";
-        writeToFile(filePath, flightPath);
+        return flightPath;
+    }
+
+    /**
+     * Method to create/overwrite a JSON file and populating it with the runs of moves made by the drone
+     * on a given day, with one entry for each run of consecutive moves in the same direction.
+     * @param flightPath CompressedFlightPath object representing all the moves made by the drone.
+     * @throws IOException if the file cannot be created/overwritten.
+     */
+    public static void createCompressedFlightPathJson(CompressedFlightPath flightPath) throws IOException {
+        String filePath = "resultfiles/flightpath-compressed-" + DataFetcher.getInstance().getDate() + ".json";
+        writeToFile(filePath, getCompressedFlightPathJson(flightPath));
+    }
+
+    /**
+     * Method to create a JSON array with details about the runs of moves made by the drone. Each entry has
+     * the fields of a move in the flight path JSON, with the number of moves in the run. The angle is that of
+     * the run's first move, or null for a run of hover moves, and the alternate angle is that of the run's
+     * second, fourth, etc. move, or null if every move in the run has the same angle.
+     * @param flightPath CompressedFlightPath object representing all the moves made by the drone.
+     * @return ArrayNode containing the details of each run of moves.
+     */
+    public static ArrayNode getCompressedFlightPathJson(CompressedFlightPath flightPath) {
+        ArrayNode segments = OBJECT_MAPPER.createArrayNode();
+        for (CompressedFlightPath.Segment segment : flightPath.getSegments()) {
+            ObjectNode segmentNode = OBJECT_MAPPER.createObjectNode();
+            segmentNode.put("orderNo", segment.orderNo());
+            segmentNode.put("fromLongitude", segment.fromLngLat().lng());
+            segmentNode.put("fromLatitude", segment.fromLngLat().lat());
+            segmentNode.put("angle", segment.direction() == null ? null : segment.direction().getAngle());
+            segmentNode.put("alternateAngle",
+                    segment.alternateDirection() == null ? null : segment.alternateDirection().getAngle());
+            segmentNode.put("moves", segment.moveCount());
+            segmentNode.put("toLongitude", segment.toLngLat().lng());
+            segmentNode.put("toLatitude", segment.toLngLat().lat());
+            segments.add(segmentNode);
+        }
+        return segments;
     }
 
     /**
@@ -92,13 +154,74 @@ public class JsonMaker {
      * @throws IOException If the output file cannot be created/overwritten.
      */
     public static void createDroneGeoJson(ArrayList<DroneMove> allDroneMoves) throws IOException {
+        String filePath = "resultfiles/drone-" + DataFetcher.getInstance().getDate() + ".geojson";
+        writeToFile(filePath, getDroneGeoJson(allDroneMoves));
+    }
+
+    /**
+     * Method to create/overwrite a GeoJSON file, separate from the drone's per-move GeoJSON file, and populating
+     * it with a FeatureCollection containing the drone's flight path as a simplified LineString feature, with
+     * one vertex per run of moves.
+     * @param flightPath CompressedFlightPath object representing all the moves made by the drone in a given day.
+     * @throws IOException If the output file cannot be created/overwritten.
+     */
+    public static void createSimplifiedDroneGeoJson(CompressedFlightPath flightPath) throws IOException {
+        String filePath = "resultfiles/drone-simplified-" + DataFetcher.getInstance().getDate() + ".geojson";
+        writeToFile(filePath, getSimplifiedDroneGeoJson(flightPath));
+    }
+
+    /**
+     * Method to create a GeoJSON FeatureCollection containing the drone's flight path as a simplified
+     * LineString feature. The line starts at the drone's starting point and has a vertex at the end of each
+     * run of moves, so a zigzag between two directions is drawn as a straight chord, within one move length of
+     * the path flown but not along it. Hover moves add no vertices.
+     * @param flightPath CompressedFlightPath object representing all the moves made by the drone.
+     * @return ObjectNode containing the GeoJSON FeatureCollection.
+     */
+    public static ObjectNode getSimplifiedDroneGeoJson(CompressedFlightPath flightPath) {
+        ArrayNode coordinates = OBJECT_MAPPER.createArrayNode();
+        for (CompressedFlightPath.Segment segment : flightPath.getSegments()) {
+            if (coordinates.isEmpty()) {
+                coordinates.add(getCoordinateJson(segment.fromLngLat()));
+            }
+            if (segment.direction() != null) {
+                coordinates.add(getCoordinateJson(segment.toLngLat()));
+            }
+        }
+        return getLineStringFeatureCollection(coordinates);
+    }
+
+    /**
+     * Method to create a GeoJSON FeatureCollection containing the drone's flight path as a LineString feature.
+     * @param allDroneMoves ArrayList of DroneMove objects representing all the moves made by the drone.
+     * @return ObjectNode containing the GeoJSON FeatureCollection.
+     */
+    public static ObjectNode getDroneGeoJson(ArrayList<DroneMove> allDroneMoves) {
         ArrayNode coordinates = OBJECT_MAPPER.createArrayNode();
         for (DroneMove droneMove : allDroneMoves) {
-            ArrayNode coordinate = OBJECT_MAPPER.createArrayNode();
-            coordinate.add(droneMove.toLngLat().lng());
-            coordinate.add(droneMove.toLngLat().lat());
-            coordinates.add(coordinate);
+            coordinates.add(getCoordinateJson(droneMove.toLngLat()));
         }
+        return getLineStringFeatureCollection(coordinates);
+    }
+
+    /**
+     * Method to create a GeoJSON position for a point.
+     * @param lngLat The point.
+     * @return ArrayNode containing the longitude and latitude of the point.
+     */
+    private static ArrayNode getCoordinateJson(LngLat lngLat) {
+        ArrayNode coordinate = OBJECT_MAPPER.createArrayNode();
+        coordinate.add(lngLat.lng());
+        coordinate.add(lngLat.lat());
+        return coordinate;
+    }
+
+    /**
+     * Method to create a GeoJSON FeatureCollection containing a single LineString feature.
+     * @param coordinates ArrayNode containing the positions of the line's vertices.
+     * @return ObjectNode containing the GeoJSON FeatureCollection.
+     */
+    private static ObjectNode getLineStringFeatureCollection(ArrayNode coordinates) {
         ObjectNode geometry = OBJECT_MAPPER.createObjectNode();
         geometry.put("type", "LineString");
         geometry.set("coordinates", coordinates);
@@ -116,9 +239,7 @@ public class JsonMaker {
         ObjectNode featureCollection = OBJECT_MAPPER.createObjectNode();
         featureCollection.put("type", "FeatureCollection");
         featureCollection.set("features", features);
-
-        String filePath = "resultfiles/drone-" + DataFetcher.getInstance().getDate() + ".geojson";
-        writeToFile(filePath, featureCollection);
+        return featureCollection;
     }
 
 }
@@ -0,0 +1,21 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event recorded around each JSON/GeoJSON file written by the JsonMaker class.
+ */
+@Name("uk.ac.ed.inf.JsonWrite")
+@Label("JSON Write")
+@Category({"PizzaDronz", "Output"})
+@Description("Write of a JSON or GeoJSON result file.")
+public class JsonWriteEvent extends jdk.jfr.Event {
+
+    // Field to store the path of the file being written.
+    @Label("File Path")
+    public String filePath;
+
+}
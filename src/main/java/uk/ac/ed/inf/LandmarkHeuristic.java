@@ -0,0 +1,107 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Heuristic using precomputed distance fields from landmark points (the depot and the restaurants) to bound
+ * the remaining distance with the triangle inequality (the ALT heuristic): the distance from a point to the
+ * target is at least the difference of their distances to any landmark. Because the fields route around
+ * no-fly zones, the estimate accounts for obstacles, and it is exact up to the grid's resolution when the
+ * target is itself a landmark. The estimate is never lower than the octile heuristic's.
+ */
+public class LandmarkHeuristic implements Heuristic {
+
+    /**
+     * Margin (in degrees) by which the landmark grid extends beyond the depot, restaurants, central area
+     * and no-fly zones, leaving room for routes around zones at the edge of the area. A route cut off by the
+     * grid's edge would make a grid distance too long, and the landmark bound too high.
+     */
+    public static final double GRID_MARGIN = 30 * Drone.MOVE_LENGTH;
+
+    /* Factor and slack (in moves) applied to a landmark bound so it stays a lower bound despite grid routes
+       being up to about 1.5% longer than the drone's shortest move sequences, the points being anywhere in
+       their cells, and a path ending anywhere within one move of its target. On generated worlds, the difference
+       of two points' grid distances exceeds the shortest path between them by up to about 3 moves next to no-fly
+       zones, and the scaled bound stays more than a move below it (see AppTest.heuristicAdmissibilityTest). */
+    private static final double GRID_STRETCH_FACTOR = 0.985;
+    private static final double GRID_SLACK_MOVES = 3;
+
+    // Distance fields from each landmark.
+    private final DistanceField[] landmarks;
+
+    // Octile heuristic, used when it gives a higher estimate than every landmark.
+    private final OctileHeuristic octileHeuristic;
+
+    /**
+     * Class constructor to initialise a new landmark heuristic from distance fields.
+     * @param landmarks Distance fields from each landmark.
+     */
+    public LandmarkHeuristic(DistanceField[] landmarks) {
+        this.landmarks = landmarks;
+        this.octileHeuristic = new OctileHeuristic();
+    }
+
+    /**
+     * Method to create a landmark heuristic with the depot and every restaurant as landmarks, computing their
+     * distance fields over a grid covering the world fetched from the REST server.
+     * @return The new landmark heuristic.
+     * @throws IOException If the world data cannot be fetched from the REST server.
+     */
+    public static LandmarkHeuristic create() throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        ArrayList<LngLat> landmarkPoints = new ArrayList<>();
+        landmarkPoints.add(Drone.APPLETON_TOWER_COORDINATES);
+        for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+            landmarkPoints.add(restaurant.getLngLat());
+        }
+        LatticeGrid grid = LatticeGrid.create(getWorldPoints(landmarkPoints), dataFetcher.getNoFlyZones(), GRID_MARGIN);
+
+        DistanceField[] landmarks = new DistanceField[landmarkPoints.size()];
+        for (int i = 0; i < landmarks.length; i++) {
+            landmarks[i] = DistanceField.compute(grid, landmarkPoints.get(i));
+        }
+        return new LandmarkHeuristic(landmarks);
+    }
+
+    /**
+     * Method to get the points a landmark grid must cover: the landmarks, and the vertices of the central
+     * area and every no-fly zone.
+     * @param landmarkPoints The landmark points.
+     * @return The points the grid must cover.
+     * @throws IOException If the world data cannot be fetched from the REST server.
+     */
+    static LngLat[] getWorldPoints(ArrayList<LngLat> landmarkPoints) throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        ArrayList<LngLat> worldPoints = new ArrayList<>(landmarkPoints);
+        worldPoints.addAll(Arrays.asList(dataFetcher.getCentralArea()));
+        for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+            worldPoints.addAll(Arrays.asList(noFlyZone.getCoordinatesLngLat()));
+        }
+        return worldPoints.toArray(new LngLat[0]);
+    }
+
+    /**
+     * Method to estimate the remaining distance as the largest lower bound given by any landmark or by the
+     * octile heuristic.
+     * @param point The point the estimate is made from.
+     * @param target The target point of the path.
+     * @return The estimated remaining distance (in degrees).
+     */
+    @Override
+    public double estimate(LngLat point, LngLat target) {
+        double bestEstimate = this.octileHeuristic.estimate(point, target);
+        for (DistanceField landmark : this.landmarks) {
+            double pointMoves = landmark.getMovesToSource(point);
+            double targetMoves = landmark.getMovesToSource(target);
+            if (Double.isInfinite(pointMoves) || Double.isInfinite(targetMoves)) {
+                continue; // Outside the grid, the landmark gives no bound.
+            }
+            double boundMoves = GRID_STRETCH_FACTOR * Math.abs(targetMoves - pointMoves) - GRID_SLACK_MOVES;
+            bestEstimate = Math.max(bestEstimate, boundMoves * Drone.MOVE_LENGTH);
+        }
+        return bestEstimate;
+    }
+
+}
@@ -0,0 +1,269 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+
+/**
+ * Class to represent a bounded grid of cells, one drone move wide, covering the area the drone flies in. Each
+ * cell is connected to 16 neighbouring cells (the 8 adjacent cells and the 8 cells a knight's move away), which
+ * approximates the drone's 16 compass directions, and the connections that cross a no-fly zone edge are blocked.
+ * The grid is used to compute distance fields without searching the drone's exact move lattice.
+ */
+public class LatticeGrid {
+
+    /**
+     * Column and row offsets of the 16 neighbours of a cell, anticlockwise from east.
+     */
+    private static final int[][] NEIGHBOUR_OFFSETS = {
+            {1, 0}, {2, 1}, {1, 1}, {1, 2}, {0, 1}, {-1, 2}, {-1, 1}, {-2, 1},
+            {-1, 0}, {-2, -1}, {-1, -1}, {-1, -2}, {0, -1}, {1, -2}, {1, -1}, {2, -1}
+    };
+
+    /**
+     * Number of neighbours of each cell.
+     */
+    public static final int NEIGHBOUR_COUNT = NEIGHBOUR_OFFSETS.length;
+
+    // Length (in cells) of the connection to each neighbour of a cell.
+    private static final double[] NEIGHBOUR_DISTANCES = new double[NEIGHBOUR_COUNT];
+
+    static {
+        for (int k = 0; k < NEIGHBOUR_COUNT; k++) {
+            NEIGHBOUR_DISTANCES[k] = Math.hypot(NEIGHBOUR_OFFSETS[k][0], NEIGHBOUR_OFFSETS[k][1]);
+        }
+    }
+
+    // Coordinates of the south-west corner of the grid.
+    private final double minLng;
+    private final double minLat;
+
+    // Width and height (in degrees) of each cell.
+    private final double cellSize;
+
+    // Number of columns and rows of cells in the grid.
+    private final int columns;
+    private final int rows;
+
+    // Bitset storing whether the connection from each cell to each of its neighbours is blocked,
+    // with the bit for neighbour k of cell c at index c * NEIGHBOUR_COUNT + k.
+    private final long[] blockedConnections;
+
+    /**
+     * Class constructor to initialise a new grid from its dimensions and blocked connections.
+     * @param minLng Longitude of the west edge of the grid.
+     * @param minLat Latitude of the south edge of the grid.
+     * @param cellSize Width and height (in degrees) of each cell.
+     * @param columns Number of columns of cells.
+     * @param rows Number of rows of cells.
+     * @param blockedConnections Bitset storing whether each connection is blocked.
+     */
+    LatticeGrid(double minLng, double minLat, double cellSize, int columns, int rows, long[] blockedConnections) {
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.blockedConnections = blockedConnections;
+    }
+
+    /**
+     * Method to create a grid covering a set of points with a margin around them, blocking the connections
+     * between cells that cross an edge of a no-fly zone.
+     * @param points The points the grid must cover, such as the depot, restaurants and no-fly zone vertices.
+     * @param noFlyZones The no-fly zones whose edges block connections.
+     * @param margin Distance (in degrees) the grid extends beyond the points.
+     * @return The new grid.
+     */
+    public static LatticeGrid create(LngLat[] points, NoFlyZone[] noFlyZones, double margin) {
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (LngLat point : points) {
+            minLng = Math.min(minLng, point.lng());
+            minLat = Math.min(minLat, point.lat());
+            maxLng = Math.max(maxLng, point.lng());
+            maxLat = Math.max(maxLat, point.lat());
+        }
+        double cellSize = Drone.MOVE_LENGTH;
+        minLng -= margin;
+        minLat -= margin;
+        int columns = (int) Math.ceil((maxLng + margin - minLng) / cellSize) + 1;
+        int rows = (int) Math.ceil((maxLat + margin - minLat) / cellSize) + 1;
+
+        long[] blockedConnections = new long[(columns * rows * NEIGHBOUR_COUNT + 63) / 64];
+        LatticeGrid grid = new LatticeGrid(minLng, minLat, cellSize, columns, rows, blockedConnections);
+        for (NoFlyZone noFlyZone : noFlyZones) {
+            LngLat[] nfz = noFlyZone.getCoordinatesLngLat();
+            for (int i = 0; i < nfz.length - 1; i++) {
+                grid.blockConnectionsCrossing(nfz[i], nfz[i + 1]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Method to block every connection between cells that crosses an edge. Only the cells within a knight's
+     * move of the edge's bounding box are checked.
+     * @param edgeStart The start of the edge.
+     * @param edgeEnd The end of the edge.
+     */
+    private void blockConnectionsCrossing(LngLat edgeStart, LngLat edgeEnd) {
+        int minColumn = Math.max(0, this.getColumn(Math.min(edgeStart.lng(), edgeEnd.lng())) - 2);
+        int maxColumn = Math.min(this.columns - 1, this.getColumn(Math.max(edgeStart.lng(), edgeEnd.lng())) + 2);
+        int minRow = Math.max(0, this.getRow(Math.min(edgeStart.lat(), edgeEnd.lat())) - 2);
+        int maxRow = Math.min(this.rows - 1, this.getRow(Math.max(edgeStart.lat(), edgeEnd.lat())) + 2);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = row * this.columns + column;
+                LngLat centre = this.getCellCentre(cell);
+                for (int k = 0; k < NEIGHBOUR_COUNT; k++) {
+                    int neighbour = this.getNeighbour(cell, k);
+                    if (neighbour < 0) {
+                        continue;
+                    }
+                    LngLat neighbourCentre = this.getCellCentre(neighbour);
+                    if (Line2D.linesIntersect(edgeStart.lng(), edgeStart.lat(), edgeEnd.lng(), edgeEnd.lat(),
+                            centre.lng(), centre.lat(), neighbourCentre.lng(), neighbourCentre.lat())) {
+                        int bit = cell * NEIGHBOUR_COUNT + k;
+                        this.blockedConnections[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to get the column of cells containing a longitude, which may be outside the grid.
+     * @param lng The longitude.
+     * @return The column index.
+     */
+    private int getColumn(double lng) {
+        return (int) Math.floor((lng - this.minLng) / this.cellSize);
+    }
+
+    /**
+     * Method to get the row of cells containing a latitude, which may be outside the grid.
+     * @param lat The latitude.
+     * @return The row index.
+     */
+    private int getRow(double lat) {
+        return (int) Math.floor((lat - this.minLat) / this.cellSize);
+    }
+
+    /**
+     * Method to get the index of the cell containing a point.
+     * @param point The point.
+     * @return The index of the cell containing the point, or -1 if the point is outside the grid.
+     */
+    public int getCellIndex(LngLat point) {
+        int column = this.getColumn(point.lng());
+        int row = this.getRow(point.lat());
+        if (column < 0 || column >= this.columns || row < 0 || row >= this.rows) {
+            return -1;
+        }
+        return row * this.columns + column;
+    }
+
+    /**
+     * Method to get the centre point of a cell.
+     * @param cell The index of the cell.
+     * @return The centre point of the cell.
+     */
+    public LngLat getCellCentre(int cell) {
+        int column = cell % this.columns;
+        int row = cell / this.columns;
+        return new LngLat(this.minLng + (column + 0.5) * this.cellSize, this.minLat + (row + 0.5) * this.cellSize);
+    }
+
+    /**
+     * Method to get the index of a neighbour of a cell.
+     * @param cell The index of the cell.
+     * @param k The index (0 to NEIGHBOUR_COUNT - 1) of the neighbour.
+     * @return The index of the neighbouring cell, or -1 if it is outside the grid.
+     */
+    public int getNeighbour(int cell, int k) {
+        int column = cell % this.columns + NEIGHBOUR_OFFSETS[k][0];
+        int row = cell / this.columns + NEIGHBOUR_OFFSETS[k][1];
+        if (column < 0 || column >= this.columns || row < 0 || row >= this.rows) {
+            return -1;
+        }
+        return row * this.columns + column;
+    }
+
+    /**
+     * Method to check whether the connection from a cell to one of its neighbours crosses a no-fly zone edge.
+     * @param cell The index of the cell.
+     * @param k The index (0 to NEIGHBOUR_COUNT - 1) of the neighbour.
+     * @return True if the connection is blocked, false otherwise.
+     */
+    public boolean isConnectionBlocked(int cell, int k) {
+        int bit = cell * NEIGHBOUR_COUNT + k;
+        return (this.blockedConnections[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Method to get the length (in cells, equivalently in drone moves) of the connection to a neighbour.
+     * @param k The index (0 to NEIGHBOUR_COUNT - 1) of the neighbour.
+     * @return The length of the connection.
+     */
+    public static double getConnectionLength(int k) {
+        return NEIGHBOUR_DISTANCES[k];
+    }
+
+    /**
+     * Method to get the longitude of the west edge of the grid.
+     * @return The longitude of the west edge.
+     */
+    public double getMinLng() {
+        return this.minLng;
+    }
+
+    /**
+     * Method to get the latitude of the south edge of the grid.
+     * @return The latitude of the south edge.
+     */
+    public double getMinLat() {
+        return this.minLat;
+    }
+
+    /**
+     * Method to get the width and height (in degrees) of each cell.
+     * @return The size of each cell.
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Method to get the number of columns of cells in the grid.
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Method to get the number of rows of cells in the grid.
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Method to get the bitset storing whether each connection is blocked, so it can be saved to a file.
+     * @return The bitset of blocked connections, which must not be modified.
+     */
+    long[] getBlockedConnections() {
+        return this.blockedConnections;
+    }
+
+    /**
+     * Method to get the total number of cells in the grid.
+     * @return The number of cells.
+     */
+    public int getCellCount() {
+        return this.columns * this.rows;
+    }
+
+}
@@ -0,0 +1,128 @@
+package uk.ac.ed.inf;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Class to represent a point on the lattice of positions the drone can reach from an origin point by moving
+ * in the 16 compass directions. The 16 directions are the unit vectors at multiples of 22.5 degrees, and each
+ * of them is plus or minus one of the 8 basis directions at 0, 22.5, ..., 157.5 degrees, which are linearly
+ * independent over the rationals. A point is therefore stored exactly as the integer number of moves along
+ * each basis direction, and its coordinates are always computed from those counts in the same way, so points
+ * reached by different sequences of moves are equal and have bit-identical coordinates.
+ */
+public final class LatticePoint {
+
+    // Number of basis directions of the lattice.
+    private static final int BASIS_SIZE = 8;
+
+    // Change in longitude and latitude of one move along each basis direction.
+    private static final double[] BASIS_LNG_OFFSETS = new double[BASIS_SIZE];
+    private static final double[] BASIS_LAT_OFFSETS = new double[BASIS_SIZE];
+
+    // Basis direction index and sign (+1 or -1) of each compass direction, indexed by CompassDirection ordinal.
+    private static final int[] DIRECTION_BASIS = new int[CompassDirection.values().length];
+    private static final int[] DIRECTION_SIGN = new int[CompassDirection.values().length];
+
+    static {
+        for (int i = 0; i < BASIS_SIZE; i++) {
+            double radianAngle = Math.toRadians(i * 22.5);
+            BASIS_LNG_OFFSETS[i] = Drone.MOVE_LENGTH * Math.cos(radianAngle);
+            BASIS_LAT_OFFSETS[i] = Drone.MOVE_LENGTH * Math.sin(radianAngle);
+        }
+        for (CompassDirection direction : CompassDirection.values()) {
+            int multiple = (int) Math.round(direction.getAngle() / 22.5); // 0 to 15.
+            DIRECTION_BASIS[direction.ordinal()] = multiple % BASIS_SIZE;
+            DIRECTION_SIGN[direction.ordinal()] = multiple < BASIS_SIZE ? 1 : -1;
+        }
+    }
+
+    // The point all moves are counted from.
+    private final LngLat origin;
+
+    // Number of moves made along each basis direction from the origin (negative for the opposite direction).
+    private final int[] moveCounts;
+
+    // Coordinates of this point.
+    private final LngLat lngLat;
+
+    /**
+     * Class constructor to initialise a new LatticePoint at the origin of a lattice.
+     * @param origin The point all moves are counted from.
+     */
+    public LatticePoint(LngLat origin) {
+        this.origin = origin;
+        this.moveCounts = new int[BASIS_SIZE];
+        this.lngLat = origin;
+    }
+
+    /**
+     * Class constructor to initialise a new LatticePoint from its move counts.
+     * @param origin The point all moves are counted from.
+     * @param moveCounts Number of moves made along each basis direction from the origin.
+     */
+    private LatticePoint(LngLat origin, int[] moveCounts) {
+        this.origin = origin;
+        this.moveCounts = moveCounts;
+        double lngOffset = 0;
+        double latOffset = 0;
+        for (int i = 0; i < BASIS_SIZE; i++) {
+            lngOffset += moveCounts[i] * BASIS_LNG_OFFSETS[i];
+            latOffset += moveCounts[i] * BASIS_LAT_OFFSETS[i];
+        }
+        this.lngLat = new LngLat(origin.lng() + lngOffset, origin.lat() + latOffset);
+    }
+
+    /**
+     * Method to get the lattice point reached by moving once in a compass direction from this point.
+     * @param compassDirection the direction in which the drone is moving, or null for a hover move.
+     * @return The LatticePoint reached after the move.
+     */
+    public LatticePoint nextPoint(CompassDirection compassDirection) {
+        if (compassDirection == null) { // Hover move for the drone.
+            return this;
+        }
+        int[] nextMoveCounts = this.moveCounts.clone();
+        nextMoveCounts[DIRECTION_BASIS[compassDirection.ordinal()]] += DIRECTION_SIGN[compassDirection.ordinal()];
+        return new LatticePoint(this.origin, nextMoveCounts);
+    }
+
+    /**
+     * Method to get the point all moves of this lattice are counted from.
+     * @return The origin of the lattice.
+     */
+    public LngLat getOrigin() {
+        return this.origin;
+    }
+
+    /**
+     * Method to get the coordinates of this point.
+     * @return LngLat object representing the coordinates of this point.
+     */
+    public LngLat getLngLat() {
+        return this.lngLat;
+    }
+
+    /**
+     * Overridden equals method to check if two LatticePoint objects are equal. Two points are equal if
+     * they are on the same lattice and are reached by the same number of moves along each basis direction.
+     * @param o The object to compare this LatticePoint object to.
+     * @return Whether the two LatticePoint objects are equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LatticePoint latticePoint = (LatticePoint) o;
+        return Arrays.equals(moveCounts, latticePoint.moveCounts) && Objects.equals(origin, latticePoint.origin);
+    }
+
+    /**
+     * Overridden hashCode method to generate a hash code for this LatticePoint object.
+     * @return The hash code for this LatticePoint object.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(origin) + Arrays.hashCode(moveCounts);
+    }
+}
@@ -0,0 +1,188 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Class to cache the one-way paths (legs) found between pairs of points, so a leg is only searched for once.
+ * Each leg is stored as a future, so a leg that is requested again while it is still being searched for waits
+ * on the same search instead of starting another. When no-fly zones change, only the legs that pass near a
+ * changed zone are invalidated.
+ */
+public class LegCache {
+
+    /**
+     * Distance (in degrees) from the edge of a changed no-fly zone within which a point on a cached leg
+     * causes the leg to be invalidated. A move that crosses an edge always has an end point within one move
+     * length of it, and legs that passed close to a removed or shrunk zone may now have a shorter route.
+     */
+    private static final double INVALIDATION_DISTANCE = 2 * Drone.MOVE_LENGTH;
+
+    /**
+     * Record to represent the start and target points of a leg.
+     * @param start The start point of the leg.
+     * @param target The target point of the leg.
+     */
+    public record Leg(LngLat start, LngLat target) {
+
+    }
+
+    // Cached paths, completed or still being searched for, keyed by their start and target points. Safe to share
+    // between drones planning concurrently.
+    private final ConcurrentHashMap<Leg, CompletableFuture<ArrayList<Node>>> paths;
+
+    /**
+     * Class constructor to initialise a new, empty leg cache.
+     */
+    public LegCache() {
+        this.paths = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Method to get the cached path between two points.
+     * @param start The start point of the path.
+     * @param target The target point of the path.
+     * @return The cached path, or null if no path has been cached between the points or its search has not
+     *         finished.
+     */
+    public ArrayList<Node> get(LngLat start, LngLat target) {
+        CompletableFuture<ArrayList<Node>> path = this.paths.get(new Leg(start, target));
+        return path != null && path.isDone() && !path.isCompletedExceptionally() ? path.join() : null;
+    }
+
+    /**
+     * Method to cache the path found between two points.
+     * @param start The start point of the path.
+     * @param target The target point of the path.
+     * @param path The path found between the points.
+     */
+    public void put(LngLat start, LngLat target, ArrayList<Node> path) {
+        this.paths.put(new Leg(start, target), CompletableFuture.completedFuture(path));
+    }
+
+    /**
+     * Method to get the path between two points, searching for it if it is neither cached nor already being
+     * searched for. The first request for a leg starts its search, and every later request gets the same future,
+     * so a leg is never searched for twice at once. Searches that fail or find no path are not cached, so the
+     * leg is searched for again when it is next requested.
+     * @param start The start point of the path.
+     * @param target The target point of the path.
+     * @param search The search for the path, returning null if no path is found.
+     * @param executor Executor to run the search on, or null to run it in the calling thread.
+     * @return A future completed with the path, or with null if no path is found.
+     */
+    public CompletableFuture<ArrayList<Node>> plan(LngLat start, LngLat target, Callable<ArrayList<Node>> search,
+                                                   Executor executor) {
+        Leg leg = new Leg(start, target);
+        CompletableFuture<ArrayList<Node>> path = new CompletableFuture<>();
+        CompletableFuture<ArrayList<Node>> existingPath = this.paths.putIfAbsent(leg, path);
+        if (existingPath != null) {
+            return existingPath;
+        }
+        Runnable searchTask = () -> {
+            try {
+                ArrayList<Node> foundPath = search.call();
+                if (foundPath == null) {
+                    this.paths.remove(leg, path);
+                }
+                path.complete(foundPath);
+            } catch (Exception e) {
+                this.paths.remove(leg, path);
+                path.completeExceptionally(e);
+            }
+        };
+        if (executor == null) {
+            searchTask.run();
+        } else {
+            executor.execute(searchTask);
+        }
+        return path;
+    }
+
+    /**
+     * Method to get the number of cached legs.
+     * @return The number of cached legs.
+     */
+    public int size() {
+        return this.paths.size();
+    }
+
+    /**
+     * Method to remove the cached legs that pass within INVALIDATION_DISTANCE of any edge of the changed
+     * no-fly zones. Changed zones should include both the old version of a zone that was changed or removed
+     * and the new version of a zone that was changed or added.
+     * @param changedZones The no-fly zones that were added, changed or removed.
+     * @return The legs that were invalidated.
+     */
+    public HashSet<Leg> invalidate(Collection<NoFlyZone> changedZones) {
+        HashSet<Leg> invalidatedLegs = new HashSet<>();
+        if (changedZones.isEmpty()) {
+            return invalidatedLegs;
+        }
+        // Bounding box around all changed zones, grown by the invalidation distance, for fast rejection.
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (NoFlyZone zone : changedZones) {
+            for (LngLat vertex : zone.getCoordinatesLngLat()) {
+                minLng = Math.min(minLng, vertex.lng() - INVALIDATION_DISTANCE);
+                minLat = Math.min(minLat, vertex.lat() - INVALIDATION_DISTANCE);
+                maxLng = Math.max(maxLng, vertex.lng() + INVALIDATION_DISTANCE);
+                maxLat = Math.max(maxLat, vertex.lat() + INVALIDATION_DISTANCE);
+            }
+        }
+
+        Iterator<Map.Entry<Leg, CompletableFuture<ArrayList<Node>>>> iterator = this.paths.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Leg, CompletableFuture<ArrayList<Node>>> entry = iterator.next();
+            CompletableFuture<ArrayList<Node>> futurePath = entry.getValue();
+            if (!futurePath.isDone() || futurePath.isCompletedExceptionally()) {
+                // A search still running may have started before the change, so it cannot be trusted.
+                iterator.remove();
+                invalidatedLegs.add(entry.getKey());
+                continue;
+            }
+            for (Node node : futurePath.join()) {
+                LngLat point = node.getLngLat();
+                if (point.lng() >= minLng && point.lng() <= maxLng && point.lat() >= minLat && point.lat() <= maxLat
+                        && isNearZoneEdge(point, changedZones)) {
+                    iterator.remove();
+                    invalidatedLegs.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return invalidatedLegs;
+    }
+
+    /**
+     * Method to check if a point is within INVALIDATION_DISTANCE of an edge of any of the given no-fly zones.
+     * @param point The point to check.
+     * @param zones The no-fly zones to check against.
+     * @return True if the point is near an edge of a zone, false otherwise.
+     */
+    private static boolean isNearZoneEdge(LngLat point, Collection<NoFlyZone> zones) {
+        double maxDistanceSq = INVALIDATION_DISTANCE * INVALIDATION_DISTANCE;
+        for (NoFlyZone zone : zones) {
+            LngLat[] nfz = zone.getCoordinatesLngLat();
+            for (int i = 0; i < nfz.length; i++) {
+                LngLat next = nfz[(i + 1) % nfz.length];
+                if (Line2D.ptSegDistSq(nfz[i].lng(), nfz[i].lat(), next.lng(), next.lat(),
+                        point.lng(), point.lat()) < maxDistanceSq) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -11,6 +11,18 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties("name")
 public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latitude") double lat) {
 
+    // Change in longitude and latitude of one move in each compass direction, indexed by CompassDirection ordinal.
+    private static final double[] MOVE_LNG_OFFSETS = new double[CompassDirection.values().length];
+    private static final double[] MOVE_LAT_OFFSETS = new double[CompassDirection.values().length];
+
+    static {
+        for (CompassDirection direction : CompassDirection.values()) {
+            double radianAngle = Math.toRadians(direction.getAngle());
+            MOVE_LNG_OFFSETS[direction.ordinal()] = Drone.MOVE_LENGTH * Math.cos(radianAngle);
+            MOVE_LAT_OFFSETS[direction.ordinal()] = Drone.MOVE_LENGTH * Math.sin(radianAngle);
+        }
+    }
+
     /**
      * Method to return the Euclidean distance between the current point and another point.
      * @param otherPoint the point distance is being calculated to.
@@ -44,10 +56,8 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
         if (compassDirection == null) { // Hover move for the drone.
             return this;
         }
-        double radianAngle = Math.toRadians(compassDirection.getAngle());
-        double newLng = this.lng + (Drone.MOVE_LENGTH * Math.cos(radianAngle));
-        double newLat = this.lat + (Drone.MOVE_LENGTH * Math.sin(radianAngle));
-        return new LngLat(newLng, newLat);
+        int directionIndex = compassDirection.ordinal();
+        return new LngLat(this.lng + MOVE_LNG_OFFSETS[directionIndex], this.lat + MOVE_LAT_OFFSETS[directionIndex]);
     }
 
 }
@@ -0,0 +1,174 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class to load-test the drone's order planning offline, against generated worlds served by a
+ * LocalRestServer at multiples of a normal day's order volume, comparing the path finding engines.
+ */
+public class LoadTest {
+
+    /**
+     * Number of orders on a normal day, which the scale factors multiply.
+     */
+    public static final int BASE_ORDERS_PER_DAY = 50;
+
+    /**
+     * Number of open nodes the "beam" engine keeps when its open list is trimmed.
+     */
+    public static final int BEAM_WIDTH = 64;
+
+    /**
+     * Names of the path finding engines compared by the load test.
+     */
+    public static final String[] ENGINES = {"default", "sight", "exact", "pruned", "euclidean", "octile", "landmark",
+            "fields", "coarse", "parallel", "lazy", "beam", "multi"};
+
+    /**
+     * Method to create a PathFinder configured as one of the engines compared by the load test.
+     * @param engine Name of the engine, one of ENGINES.
+     * @return A new PathFinder configured as the engine.
+     * @throws IOException If the world data needed by the engine cannot be fetched from the REST server.
+     */
+    public static PathFinder createPathFinder(String engine) throws IOException {
+        PathFinder pathFinder = new PathFinder();
+        switch (engine) {
+            case "default":
+            case "parallel":
+            case "lazy":
+            case "multi":
+                break;
+            case "sight":
+                pathFinder.setLineOfSight(true);
+                break;
+            case "exact":
+                pathFinder.setObstacleBitmap(false);
+                break;
+            case "beam":
+                pathFinder.setBeamWidth(BEAM_WIDTH);
+                break;
+            case "coarse":
+                pathFinder.setCoarseToFine(true);
+                break;
+            case "pruned":
+                pathFinder.setNeighbourPruning(true);
+                break;
+            case "euclidean":
+                pathFinder.setHeuristic(new EuclideanHeuristic(1));
+                break;
+            case "octile":
+                pathFinder.setHeuristic(new OctileHeuristic());
+                break;
+            case "landmark":
+                pathFinder.setHeuristic(LandmarkHeuristic.create());
+                break;
+            case "fields":
+                Path fieldsFile = Files.createTempFile("pizzadronz-", "-" + DistanceFieldStore.DEFAULT_FILE_NAME);
+                fieldsFile.toFile().deleteOnExit();
+                Files.delete(fieldsFile); // Computed when first needed.
+                pathFinder.setDistanceFields(new DistanceFieldStore(fieldsFile));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown path finding engine: " + engine);
+        }
+        return pathFinder;
+    }
+
+    /**
+     * Method to create a Drone that plans its routes with a PathFinder configured as one of the engines. The
+     * "parallel" engine searches for the routes of every order in parallel on the common ForkJoinPool, and the
+     * "lazy" engine only plans the routes of orders that reach the head of the drone's queue, and the "multi"
+     * engine finds the routes to every restaurant with one search.
+     * @param engine Name of the engine, one of ENGINES.
+     * @param pathFinder PathFinder configured as the engine.
+     * @return A new Drone using the PathFinder.
+     */
+    public static Drone createDrone(String engine, PathFinder pathFinder) {
+        if (engine.equals("parallel")) {
+            return new Drone(pathFinder, new LegCache(), ForkJoinPool.commonPool());
+        }
+        Drone drone = new Drone(pathFinder);
+        if (engine.equals("lazy")) {
+            drone.setLazyPrioritisation(true);
+        } else if (engine.equals("multi")) {
+            drone.setOneToManyPlanning(true);
+        }
+        return drone;
+    }
+
+    /**
+     * Method to deliver the orders of a generated world for a date, and print the number of valid and
+     * delivered orders, the nodes expanded by the path finder and the time taken to plan and deliver them.
+     * @param worldGenerator Generator of the world to deliver orders in.
+     * @param date The date for which orders are delivered.
+     * @param engine Name of the path finding engine to use, one of ENGINES.
+     * @param label Label printed at the start of the results line.
+     * @throws IOException If the local REST server cannot be started or read from.
+     */
+    public static void runDay(WorldGenerator worldGenerator, LocalDate date, String engine, String label)
+            throws IOException {
+        LocalRestServer server = new LocalRestServer(worldGenerator, 0);
+        server.start();
+        try {
+            DataFetcher dataFetcher = DataFetcher.getInstance();
+            dataFetcher.setBaseUrl(server.getBaseUrl());
+            dataFetcher.setDate(date);
+            Order[] orders = dataFetcher.getOrders(); // Fetched before timing, so only planning is timed.
+
+            long startTime = System.nanoTime();
+            PathFinder pathFinder = createPathFinder(engine);
+            Drone drone = createDrone(engine, pathFinder);
+            drone.deliverOrders();
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            int validCount = 0;
+            int delivered = 0;
+            for (Order order : orders) {
+                if (order.getOrderOutcome() == OrderOutcome.Delivered) {
+                    delivered++;
+                    validCount++;
+                } else if (order.getOrderOutcome() == OrderOutcome.ValidButNotDelivered) {
+                    validCount++;
+                }
+            }
+            System.out.println(label + " " + engine + ": orders=" + orders.length + " valid=" + validCount
+                    + " delivered=" + delivered + " movesRemaining=" + drone.getMovesRemaining()
+                    + " expansions=" + pathFinder.getTotalExpansions() + " timeMs=" + elapsedMillis);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Main method to run the load test for each given scale factor and path finding engine.
+     * @param args the date, comma-separated scale factors of the order volume (e.g. "1,10,100"), and optionally
+     *             the seed, number of restaurants, number of no-fly zones, vertices per no-fly zone and
+     *             comma-separated names of the engines to compare (all engines by default).
+     */
+    public static void main(String[] args) {
+        try {
+            LocalDate date = LocalDate.parse(args[0]);
+            String[] scales = args.length > 1 ? args[1].split(",") : new String[] {"1", "10"};
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+            String[] engines = args.length > 6 ? args[6].split(",") : ENGINES;
+
+            for (String scale : scales) {
+                WorldGenerator worldGenerator = new WorldGenerator(seed);
+                if (args.length > 3) worldGenerator.setRestaurantCount(Integer.parseInt(args[3]));
+                if (args.length > 4) worldGenerator.setNoFlyZoneCount(Integer.parseInt(args[4]));
+                if (args.length > 5) worldGenerator.setNoFlyZoneVertexCount(Integer.parseInt(args[5]));
+                worldGenerator.setOrdersPerDay(BASE_ORDERS_PER_DAY * Integer.parseInt(scale.trim()));
+                for (String engine : engines) {
+                    runDay(worldGenerator, date, engine.trim(), "x" + scale.trim());
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class to run a local HTTP stand-in for the REST server, serving the centralarea, restaurants,
+ * noflyzones and orders/{date} endpoints of a world created by a WorldGenerator, so the drone
+ * can be run entirely offline.
+ */
+public class LocalRestServer {
+
+    // ObjectMapper object to serialise the served JSON.
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // Generator of the world that is served.
+    private final WorldGenerator worldGenerator;
+
+    // HTTP server serving the endpoints.
+    private final HttpServer httpServer;
+
+    // Executor running the HTTP server's request handlers.
+    private final ExecutorService executor;
+
+    // Serialised orders for each date requested so far, so each day is only generated once.
+    private final ConcurrentHashMap<LocalDate, byte[]> ordersByDate;
+
+    /**
+     * Class constructor to initialise a new local REST server on the loopback interface.
+     * @param worldGenerator Generator of the world to serve.
+     * @param port Port to listen on, or 0 to use any free port.
+     * @throws IOException If the server cannot be bound to the port.
+     */
+    public LocalRestServer(WorldGenerator worldGenerator, int port) throws IOException {
+        this.worldGenerator = worldGenerator;
+        this.ordersByDate = new ConcurrentHashMap<>();
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.httpServer.setExecutor(this.executor);
+
+        byte[] centralArea = OBJECT_MAPPER.writeValueAsBytes(worldGenerator.getCentralAreaJson());
+        byte[] restaurants = OBJECT_MAPPER.writeValueAsBytes(worldGenerator.getRestaurantsJson());
+        byte[] noFlyZones = OBJECT_MAPPER.writeValueAsBytes(worldGenerator.getNoFlyZonesJson());
+        this.httpServer.createContext("/centralarea", exchange -> sendJson(exchange, centralArea));
+        this.httpServer.createContext("/restaurants", exchange -> sendJson(exchange, restaurants));
+        this.httpServer.createContext("/noflyzones", exchange -> sendJson(exchange, noFlyZones));
+        this.httpServer.createContext("/orders/", this::handleOrders);
+    }
+
+    /**
+     * Method to start serving requests.
+     */
+    public void start() {
+        this.httpServer.start();
+    }
+
+    /**
+     * Method to stop serving requests and release the port.
+     */
+    public void stop() {
+        this.httpServer.stop(0);
+        this.executor.shutdown();
+    }
+
+    /**
+     * Method to get the base url of the server, to be passed to DataFetcher.setBaseUrl.
+     * @return The base url of the server, ending with a slash.
+     */
+    public String getBaseUrl() {
+        return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + this.httpServer.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Method to handle a request to the orders/{date} endpoint.
+     * @param exchange The HTTP request and response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        String dateString = exchange.getRequestURI().getPath().substring("/orders/".length());
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateString);
+        } catch (DateTimeParseException e) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+        byte[] orders = this.ordersByDate.computeIfAbsent(date, d -> toBytes(this.worldGenerator.getOrdersJson(d)));
+        sendJson(exchange, orders);
+    }
+
+    /**
+     * Method to serialise a JSON node.
+     * @param jsonNode The JSON node to serialise.
+     * @return The UTF-8 bytes of the serialised JSON.
+     */
+    private static byte[] toBytes(JsonNode jsonNode) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(jsonNode);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialise generated JSON.", e);
+        }
+    }
+
+    /**
+     * Method to send a JSON response body with status 200.
+     * @param exchange The HTTP request and response.
+     * @param body The UTF-8 bytes of the JSON response body.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void sendJson(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Main method to serve a generated world until the process is stopped.
+     * @param args optional arguments: port, seed, number of restaurants, number of no-fly zones,
+     *             vertices per no-fly zone, orders per day and fraction of invalid orders.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        WorldGenerator worldGenerator = new WorldGenerator(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        if (args.length > 2) worldGenerator.setRestaurantCount(Integer.parseInt(args[2]));
+        if (args.length > 3) worldGenerator.setNoFlyZoneCount(Integer.parseInt(args[3]));
+        if (args.length > 4) worldGenerator.setNoFlyZoneVertexCount(Integer.parseInt(args[4]));
+        if (args.length > 5) worldGenerator.setOrdersPerDay(Integer.parseInt(args[5]));
+        if (args.length > 6) worldGenerator.setInvalidOrderFraction(Double.parseDouble(args[6]));
+
+        LocalRestServer server = new LocalRestServer(worldGenerator, port);
+        server.start();
+        System.out.println("Serving generated world at " + server.getBaseUrl());
+    }
+
+}
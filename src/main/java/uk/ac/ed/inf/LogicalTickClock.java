@@ -0,0 +1,33 @@
+package uk.ac.ed.inf;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock counting the batches of work done since it was created (one per node expanded by the path search)
+ * instead of the time elapsed. A plan calculated one search at a time gets the same ticks on every run, so the
+ * output files of two runs can be compared byte for byte. When searches run in parallel, the ticks depend on how
+ * the searches were scheduled.
+ */
+public class LogicalTickClock implements TickClock {
+
+    // Field to store the number of times the clock has been advanced.
+    private final AtomicLong ticks = new AtomicLong();
+
+    /**
+     * Method to get the number of times the clock has been advanced.
+     * @return The number of ticks.
+     */
+    @Override
+    public long getTicks() {
+        return this.ticks.get();
+    }
+
+    /**
+     * Method to advance the clock by one tick.
+     */
+    @Override
+    public void advance() {
+        this.ticks.incrementAndGet();
+    }
+
+}
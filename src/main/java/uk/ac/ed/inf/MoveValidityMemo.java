@@ -0,0 +1,191 @@
+package uk.ac.ed.inf;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class to remember, for moves tested exactly, whether each move crosses a no-fly zone edge and whether it crosses
+ * the central area boundary, so searches that expand the same points again (such as the points around the depot
+ * and each restaurant, which every search to or from them starts on the same lattice) do not repeat the tests.
+ * <p>
+ * The memo is a fixed number of slots, each holding the last move stored in it, so it never grows and lookups need no
+ * locks: a move is hashed to one slot, entries are immutable and replaced whole, and a lookup only uses an entry
+ * for exactly the same move and the same central area and no-fly zones, so an entry overwritten or left over from
+ * before the zones changed is never mistaken for the move looked up. Storing a move tested against a different
+ * central area or no-fly zones empties the memo first, so apart from moves stored by searches still running on the
+ * old world, it only holds the entries of one world and does not keep replaced zones reachable.
+ * <p>
+ * Each move stored allocates an entry, so a memo only pays for itself when the same moves are tested again, as
+ * when the same world is planned for several days. Moves are matched by their exact coordinates, and each search
+ * builds its lattice from its own start point, so the moves shared are mostly those of searches starting at the
+ * same point. PathFinders have no memo unless they are given one; PlanningServer and ParameterSweep each give
+ * every PathFinder they create one shared memo.
+ */
+public class MoveValidityMemo {
+
+    /**
+     * Number of slots enough to hold the moves tested exactly while planning a day.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Flag set in a move's results if it crosses a no-fly zone edge.
+     */
+    public static final int CROSSES_NO_FLY_ZONE = 1;
+
+    /**
+     * Flag set in a move's results if it crosses the central area boundary.
+     */
+    public static final int CROSSES_CENTRAL_AREA = 2;
+
+    /**
+     * Results returned for a move that is not stored.
+     */
+    public static final int MISSING = -1;
+
+    /**
+     * Record to represent the results of testing one move exactly.
+     * @param fromLng The longitude of the start of the move.
+     * @param fromLat The latitude of the start of the move.
+     * @param toLng The longitude of the end of the move.
+     * @param toLat The latitude of the end of the move.
+     * @param noFlyZones The no-fly zones the move was tested against.
+     * @param centralArea The central area the move was tested against.
+     * @param crossings The move's results: CROSSES_NO_FLY_ZONE and CROSSES_CENTRAL_AREA, if set.
+     */
+    private record Entry(double fromLng, double fromLat, double toLng, double toLat, NoFlyZone[] noFlyZones,
+                         CentralArea centralArea, int crossings) {
+
+    }
+
+    // Slots of the memo, each holding the last entry stored in it, or null.
+    private final AtomicReferenceArray<Entry> slots;
+
+    // Mask selecting a slot from a move's hash.
+    private final int slotMask;
+
+    // Field to store the no-fly zones and central area of the entries stored, or null if none have been stored.
+    private volatile NoFlyZone[] noFlyZones;
+    private volatile CentralArea centralArea;
+
+    // Number of lookups that found the move, and that did not.
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Class constructor to initialise a new, empty memo.
+     * @param capacity The number of slots, rounded up to a power of two.
+     * @throws IllegalArgumentException If the capacity is not positive, or is more than 2^30.
+     */
+    public MoveValidityMemo(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Memo capacity must be positive and at most 2^30: " + capacity);
+        }
+        int slotCount = Integer.highestOneBit(capacity);
+        if (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.slotMask = slotCount - 1;
+    }
+
+    /**
+     * Method to look up the results of testing a move against a central area and set of no-fly zones.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @param noFlyZones The no-fly zones the move is tested against.
+     * @param centralArea The central area the move is tested against.
+     * @return The stored results (CROSSES_NO_FLY_ZONE and CROSSES_CENTRAL_AREA, if set), or MISSING if they are
+     *         not stored.
+     */
+    public int get(LngLat from, LngLat to, NoFlyZone[] noFlyZones, CentralArea centralArea) {
+        Entry entry = this.slots.get(this.getSlot(from, to));
+        if (entry != null && entry.noFlyZones() == noFlyZones && entry.centralArea() == centralArea
+                && sameCoordinate(entry.fromLng(), from.lng()) && sameCoordinate(entry.fromLat(), from.lat())
+                && sameCoordinate(entry.toLng(), to.lng()) && sameCoordinate(entry.toLat(), to.lat())) {
+            this.hits.increment();
+            return entry.crossings();
+        }
+        this.misses.increment();
+        return MISSING;
+    }
+
+    /**
+     * Method to store the results of testing a move, replacing whatever move was stored in its slot. If the move
+     * was tested against a different central area or no-fly zones from the moves already stored, they are all
+     * removed first.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @param noFlyZones The no-fly zones the move was tested against.
+     * @param centralArea The central area the move was tested against.
+     * @param crossings The move's results: CROSSES_NO_FLY_ZONE and CROSSES_CENTRAL_AREA, if set.
+     */
+    public void put(LngLat from, LngLat to, NoFlyZone[] noFlyZones, CentralArea centralArea, int crossings) {
+        if (noFlyZones != this.noFlyZones || centralArea != this.centralArea) {
+            this.changeWorld(noFlyZones, centralArea);
+        }
+        this.slots.set(this.getSlot(from, to), new Entry(from.lng(), from.lat(), to.lng(), to.lat(), noFlyZones,
+                centralArea, crossings));
+    }
+
+    /**
+     * Method to get the number of lookups that found the move looked up.
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Method to get the number of lookups that did not find the move looked up.
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Method to remove every stored move, once moves start being tested against a different central area or
+     * no-fly zones. Only the first thread to see the change removes them.
+     * @param noFlyZones The no-fly zones moves are now tested against.
+     * @param centralArea The central area moves are now tested against.
+     */
+    private synchronized void changeWorld(NoFlyZone[] noFlyZones, CentralArea centralArea) {
+        if (noFlyZones == this.noFlyZones && centralArea == this.centralArea) {
+            return;
+        }
+        for (int i = 0; i < this.slots.length(); i++) {
+            this.slots.set(i, null);
+        }
+        this.noFlyZones = noFlyZones;
+        this.centralArea = centralArea;
+    }
+
+    /**
+     * Method to get the slot a move is stored in, from a hash of its exact coordinates.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @return The index of the slot.
+     */
+    private int getSlot(LngLat from, LngLat to) {
+        long hash = Double.doubleToRawLongBits(from.lng());
+        hash = hash * 31 + Double.doubleToRawLongBits(from.lat());
+        hash = hash * 31 + Double.doubleToRawLongBits(to.lng());
+        hash = hash * 31 + Double.doubleToRawLongBits(to.lat());
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 32;
+        return (int) hash & this.slotMask;
+    }
+
+    /**
+     * Method to check whether two coordinates are bit-identical.
+     * @param coordinate The first coordinate.
+     * @param otherCoordinate The second coordinate.
+     * @return True if the coordinates have the same bits, false otherwise.
+     */
+    private static boolean sameCoordinate(double coordinate, double otherCoordinate) {
+        return Double.doubleToRawLongBits(coordinate) == Double.doubleToRawLongBits(otherCoordinate);
+    }
+
+}
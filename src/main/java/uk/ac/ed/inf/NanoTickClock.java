@@ -0,0 +1,36 @@
+package uk.ac.ed.inf;
+
+/**
+ * Clock counting the nanoseconds elapsed since it was created, reading the system timer every time it is read.
+ * This is the most precise clock, at the cost of a call to the system timer for every node created.
+ */
+public class NanoTickClock implements TickClock {
+
+    // Field to store the value of the system timer when the clock was created.
+    private final long startTime;
+
+    /**
+     * Class constructor to initialise a new clock, started now.
+     */
+    public NanoTickClock() {
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Method to get the nanoseconds elapsed since the clock was created.
+     * @return The nanoseconds elapsed.
+     */
+    @Override
+    public long getTicks() {
+        return System.nanoTime() - this.startTime;
+    }
+
+    /**
+     * Method to advance the clock, which does nothing as the system timer is read every time the clock is read.
+     */
+    @Override
+    public void advance() {
+
+    }
+
+}
@@ -0,0 +1,237 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class to represent a precomputed classification of the points within a distance of an obstacle edge: a no-fly
+ * zone edge or the central area boundary. The plane around the obstacles is divided into cells one move length
+ * wide, and each cell is classified once as entirely within the distance of an edge, entirely beyond it, or
+ * crossed by the distance's limit. Points in the first two kinds of cell are answered with a single lookup, and
+ * only points in cells crossed by the limit are tested exactly, against the few edges close to their cell, so the
+ * answer is always the same as testing every edge. Every polygon is closed by joining its last vertex back to its
+ * first.
+ */
+public class NearBoundaryGrid {
+
+    // Class of a cell whose points are all at least the distance from every edge.
+    private static final byte FAR = 0;
+
+    // Class of a cell whose points are all within the distance of an edge.
+    private static final byte NEAR = 1;
+
+    // Class of a cell crossed by the limit of the distance, whose points are tested exactly.
+    private static final byte MIXED = 2;
+
+    // Width and height (in degrees) of each cell.
+    private static final double CELL_SIZE = Drone.MOVE_LENGTH;
+
+    // Central area and no-fly zones the grid was computed for.
+    private final LngLat[] centralArea;
+    private final NoFlyZone[] noFlyZones;
+
+    // Distance (in degrees) from an edge within which a point is near it.
+    private final double distance;
+
+    // Coordinates of each edge, as start longitude, start latitude, end longitude and end latitude.
+    private final double[][] edges;
+
+    // Coordinates of the south-west corner of the grid.
+    private final double minLng;
+    private final double minLat;
+
+    // Number of columns and rows of cells in the grid.
+    private final int columns;
+    private final int rows;
+
+    // Class of each cell, at index row * columns + column.
+    private final byte[] cellClasses;
+
+    // Indices of the edges that might be within the distance of a point in each cell crossed by the limit, or
+    // null for the other cells.
+    private final int[][] cellEdges;
+
+    /**
+     * Class constructor to classify the cells around the edges of the central area and no-fly zones. Only the
+     * cells within the distance and a cell of an edge are measured; cells outside the grid are far from every edge.
+     * @param centralArea The vertices of the central area.
+     * @param noFlyZones The no-fly zones.
+     * @param distance Distance (in degrees) from an edge within which a point is near it.
+     */
+    public NearBoundaryGrid(LngLat[] centralArea, NoFlyZone[] noFlyZones, double distance) {
+        this.centralArea = centralArea;
+        this.noFlyZones = noFlyZones;
+        this.distance = distance;
+
+        LngLat[][] polygons = new LngLat[noFlyZones.length + 1][];
+        polygons[0] = centralArea;
+        int edgeCount = centralArea.length;
+        for (int i = 0; i < noFlyZones.length; i++) {
+            polygons[i + 1] = noFlyZones[i].getCoordinatesLngLat();
+            edgeCount += polygons[i + 1].length;
+        }
+        this.edges = new double[edgeCount][];
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        int edge = 0;
+        for (LngLat[] polygon : polygons) {
+            for (int i = 0; i < polygon.length; i++) {
+                LngLat start = polygon[i];
+                LngLat end = polygon[(i + 1) % polygon.length];
+                this.edges[edge++] = new double[] {start.lng(), start.lat(), end.lng(), end.lat()};
+                minLng = Math.min(minLng, start.lng());
+                minLat = Math.min(minLat, start.lat());
+                maxLng = Math.max(maxLng, start.lng());
+                maxLat = Math.max(maxLat, start.lat());
+            }
+        }
+        double margin = distance + CELL_SIZE;
+        this.minLng = minLng - margin;
+        this.minLat = minLat - margin;
+        this.columns = Math.max(0, (int) Math.ceil((maxLng + margin - this.minLng) / CELL_SIZE));
+        this.rows = Math.max(0, (int) Math.ceil((maxLat + margin - this.minLat) / CELL_SIZE));
+
+        // Least distance from each cell's centre to an edge, measured only for the cells close to each edge.
+        double[] centreDistancesSq = new double[this.columns * this.rows];
+        Arrays.fill(centreDistancesSq, Double.POSITIVE_INFINITY);
+        for (double[] e : this.edges) {
+            int[] box = this.getCellBox(e, margin);
+            for (int row = box[2]; row <= box[3]; row++) {
+                for (int column = box[0]; column <= box[1]; column++) {
+                    int cell = row * this.columns + column;
+                    centreDistancesSq[cell] = Math.min(centreDistancesSq[cell], this.getCentreDistanceSq(e, cell));
+                }
+            }
+        }
+
+        // A cell is near if its farthest point is within the distance, and far if its closest point is not.
+        double cellRadius = CELL_SIZE * Math.sqrt(0.5);
+        this.cellClasses = new byte[this.columns * this.rows];
+        for (int cell = 0; cell < this.cellClasses.length; cell++) {
+            double centreDistance = Math.sqrt(centreDistancesSq[cell]);
+            if (centreDistance + cellRadius < distance) {
+                this.cellClasses[cell] = NEAR;
+            } else if (centreDistance - cellRadius >= distance) {
+                this.cellClasses[cell] = FAR;
+            } else {
+                this.cellClasses[cell] = MIXED;
+            }
+        }
+
+        // Edges close enough to the centre of each mixed cell to be within the distance of one of its points.
+        ArrayList<ArrayList<Integer>> candidates = new ArrayList<>();
+        int[] candidateIndices = new int[this.cellClasses.length];
+        Arrays.fill(candidateIndices, -1);
+        double reachSq = (distance + cellRadius) * (distance + cellRadius);
+        for (int e = 0; e < this.edges.length; e++) {
+            int[] box = this.getCellBox(this.edges[e], margin);
+            for (int row = box[2]; row <= box[3]; row++) {
+                for (int column = box[0]; column <= box[1]; column++) {
+                    int cell = row * this.columns + column;
+                    if (this.cellClasses[cell] == MIXED && this.getCentreDistanceSq(this.edges[e], cell) < reachSq) {
+                        if (candidateIndices[cell] < 0) {
+                            candidateIndices[cell] = candidates.size();
+                            candidates.add(new ArrayList<>());
+                        }
+                        candidates.get(candidateIndices[cell]).add(e);
+                    }
+                }
+            }
+        }
+        this.cellEdges = new int[this.cellClasses.length][];
+        for (int cell = 0; cell < this.cellEdges.length; cell++) {
+            if (this.cellClasses[cell] == MIXED) {
+                this.cellEdges[cell] = candidates.get(candidateIndices[cell]).stream().mapToInt(i -> i).toArray();
+            }
+        }
+    }
+
+    /**
+     * Method to get the range of cells within a margin of an edge's bounding box, clipped to the grid.
+     * @param edge The coordinates of the edge.
+     * @param margin Distance (in degrees) the bounding box is grown by.
+     * @return The least and greatest column, followed by the least and greatest row.
+     */
+    private int[] getCellBox(double[] edge, double margin) {
+        return new int[] {
+                Math.max(0, this.getColumn(Math.min(edge[0], edge[2]) - margin)),
+                Math.min(this.columns - 1, this.getColumn(Math.max(edge[0], edge[2]) + margin)),
+                Math.max(0, this.getRow(Math.min(edge[1], edge[3]) - margin)),
+                Math.min(this.rows - 1, this.getRow(Math.max(edge[1], edge[3]) + margin))};
+    }
+
+    /**
+     * Method to get the squared distance from the centre of a cell to an edge.
+     * @param edge The coordinates of the edge.
+     * @param cell The index of the cell.
+     * @return The squared distance (in degrees squared).
+     */
+    private double getCentreDistanceSq(double[] edge, int cell) {
+        double centreLng = this.minLng + (cell % this.columns + 0.5) * CELL_SIZE;
+        double centreLat = this.minLat + (cell / this.columns + 0.5) * CELL_SIZE;
+        return Line2D.ptSegDistSq(edge[0], edge[1], edge[2], edge[3], centreLng, centreLat);
+    }
+
+    /**
+     * Method to get the central area the grid was computed for.
+     * @return The vertices of the central area.
+     */
+    public LngLat[] getCentralArea() {
+        return this.centralArea;
+    }
+
+    /**
+     * Method to get the no-fly zones the grid was computed for.
+     * @return The no-fly zones.
+     */
+    public NoFlyZone[] getNoFlyZones() {
+        return this.noFlyZones;
+    }
+
+    /**
+     * Method to check if a point is within the distance of a no-fly zone edge or central area edge.
+     * @param point The point to check.
+     * @return True if the point is near an edge, false otherwise.
+     */
+    public boolean isNearBoundary(LngLat point) {
+        int column = this.getColumn(point.lng());
+        int row = this.getRow(point.lat());
+        if (column < 0 || column >= this.columns || row < 0 || row >= this.rows) {
+            return false;
+        }
+        byte cellClass = this.cellClasses[row * this.columns + column];
+        if (cellClass != MIXED) {
+            return cellClass == NEAR;
+        }
+        double maxDistanceSq = this.distance * this.distance;
+        for (int edge : this.cellEdges[row * this.columns + column]) {
+            double[] e = this.edges[edge];
+            if (Line2D.ptSegDistSq(e[0], e[1], e[2], e[3], point.lng(), point.lat()) < maxDistanceSq) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to get the column of cells containing a longitude, which may be outside the grid.
+     * @param lng The longitude.
+     * @return The column index.
+     */
+    private int getColumn(double lng) {
+        return (int) Math.floor((lng - this.minLng) / CELL_SIZE);
+    }
+
+    /**
+     * Method to get the row of cells containing a latitude, which may be outside the grid.
+     * @param lat The latitude.
+     * @return The row index.
+     */
+    private int getRow(double lat) {
+        return (int) Math.floor((lat - this.minLat) / CELL_SIZE);
+    }
+
+}
@@ -2,6 +2,9 @@ package uk.ac.ed.inf;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 /**
  * Class to represent a No-Fly Zone for the drone in the delivery service.
  */
@@ -25,6 +28,27 @@ public class NoFlyZone {
 
     }
 
+    /**
+     * Class constructor to initialise a new no-fly zone object from its name and vertices.
+     * @param name The name of the no-fly zone.
+     * @param vertices The vertices of the no-fly zone, with the first vertex repeated at the end to close it.
+     */
+    public NoFlyZone(String name, LngLat[] vertices) {
+        this.name = name;
+        this.coordinates = new double[vertices.length][];
+        for (int i = 0; i < vertices.length; i++) {
+            this.coordinates[i] = new double[] {vertices[i].lng(), vertices[i].lat()};
+        }
+    }
+
+    /**
+     * Method to get the name of the no-fly zone.
+     * @return The name of the no-fly zone.
+     */
+    public String getName() {
+        return this.name;
+    }
+
     /**
      * Method to return a list of LngLat objects representing the vertices of the no-fly zone.
      * @return Array of LngLat objects representing the vertices of the no-fly zone.
@@ -38,4 +62,27 @@ public class NoFlyZone {
         }
         return this.coordinatesLngLat;
     }
-}
\ No newline at end of file
+
+    /**
+     * Overridden equals method to check if two NoFlyZone objects are equal. Two no-fly zones are equal if
+     * they have the same name and the same vertices.
+     * @param o The object to compare this NoFlyZone object to.
+     * @return Whether the two NoFlyZone objects are equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NoFlyZone noFlyZone = (NoFlyZone) o;
+        return Objects.equals(name, noFlyZone.name) && Arrays.deepEquals(coordinates, noFlyZone.coordinates);
+    }
+
+    /**
+     * Overridden hashCode method to generate a hash code for this NoFlyZone object.
+     * @return The hash code for this NoFlyZone object.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(name) + Arrays.deepHashCode(coordinates);
+    }
+}
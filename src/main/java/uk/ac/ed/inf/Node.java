@@ -13,16 +13,22 @@ public class Node {
      * Weighting factor for the heuristic (h cost - estimated distance to the target point)
      * in the weighted A* search algorithm.
      */
-    private static final double H_WEIGHT = 1.5;
+    private static final double H_WEIGHT = DroneConfig.getStartupConfig().getHeuristicWeight();
+
+    /**
+     * Heuristic used by nodes when no other heuristic is given: the straight-line distance to the
+     * target, weighted by H_WEIGHT.
+     */
+    public static final Heuristic DEFAULT_HEURISTIC = new EuclideanHeuristic(H_WEIGHT);
 
     // Field to represent the parent node (point before) of this node.
     private final Node parent;
 
-    // LngLat object to represent the location coordinates of this node.
-    private final LngLat lngLat;
+    // LatticePoint object to represent the exact location of this node on the lattice of the path's moves.
+    private final LatticePoint latticePoint;
 
-    // Field to store the angle (w.r.t East) travelled to get from the parent node to this node.
-    private final Double angleFromParent;
+    // Field to store the compass direction travelled to get from the parent node to this node.
+    private final CompassDirection directionFromParent;
 
     // Field to store the number of nodes between the start node of the path and this node.
     private final int stepsFromStart;
@@ -33,21 +39,43 @@ public class Node {
     // Field to store the target point of the path.
     private final LngLat targetLngLat;
 
+    // Field to store the heuristic used to estimate the distance from this node to the target point.
+    private final Heuristic heuristic;
+
+    // Field to store the estimated distance to the target point, computed when first needed.
+    private double hCost = Double.NaN;
+
     // Field to store the time since the start of the pathfinding process, when this node was added to the path.
     private final long ticksSinceStartOfCalculation;
 
     /**
-     * Class constructor to initialise a new Node instance, representing the starting point of a path.
+     * Class constructor to initialise a new Node instance, representing the starting point of a path. The
+     * starting point is the origin of the lattice of points the path's moves can reach.
      * @param lngLat The LngLat object representing the starting point of the path.
      * @param targetLngLat The LngLat object representing the target point of the path.
      * @param ticksSinceStartOfCalculation The time since the start of the pathfinding process,
      *                                     when this node was added to the path.
      */
     public Node(LngLat lngLat, LngLat targetLngLat, long ticksSinceStartOfCalculation) {
-        this.lngLat = lngLat;
+        this(lngLat, targetLngLat, DEFAULT_HEURISTIC, ticksSinceStartOfCalculation);
+    }
+
+    /**
+     * Class constructor to initialise a new Node instance, representing the starting point of a path searched
+     * for with a given heuristic. The starting point is the origin of the lattice of points the path's moves
+     * can reach, and every node reached from it uses the same heuristic.
+     * @param lngLat The LngLat object representing the starting point of the path.
+     * @param targetLngLat The LngLat object representing the target point of the path.
+     * @param heuristic The heuristic used to estimate the distance from a node to the target point.
+     * @param ticksSinceStartOfCalculation The time since the start of the pathfinding process,
+     *                                     when this node was added to the path.
+     */
+    public Node(LngLat lngLat, LngLat targetLngLat, Heuristic heuristic, long ticksSinceStartOfCalculation) {
+        this.latticePoint = new LatticePoint(lngLat);
         this.parent = null;
         this.targetLngLat = targetLngLat;
-        this.angleFromParent = null;
+        this.heuristic = heuristic;
+        this.directionFromParent = null;
         this.stepsFromStart = 0;
         this.isCaBoundaryCrossed = false;
         this.ticksSinceStartOfCalculation = ticksSinceStartOfCalculation;
@@ -55,17 +83,19 @@ public class Node {
 
     /**
      * Class constructor to initialise a new Node instance, representing a point in a path.
-     * @param lngLat The LngLat object representing the location of this node.
+     * @param latticePoint The LatticePoint object representing the location of this node.
      * @param parent The parent node (point before) of this node.
-     * @param angleFromParent The angle (w.r.t East) travelled to get from the parent node to this node.
+     * @param directionFromParent The compass direction travelled to get from the parent node to this node.
      * @param ticksSinceStartOfCalculation The time since the start of the pathfinding process,
      *                                     when this node was added to the path.
      */
-    public Node(LngLat lngLat, Node parent, Double angleFromParent, long ticksSinceStartOfCalculation) {
-        this.lngLat = lngLat;
+    public Node(LatticePoint latticePoint, Node parent, CompassDirection directionFromParent,
+                long ticksSinceStartOfCalculation) {
+        this.latticePoint = latticePoint;
         this.parent = parent;
         this.targetLngLat = parent.getTargetLngLat();
-        this.angleFromParent = angleFromParent;
+        this.heuristic = parent.heuristic;
+        this.directionFromParent = directionFromParent;
         this.stepsFromStart = parent.getStepsFromStart() + 1;
         this.isCaBoundaryCrossed = parent.isCaBoundaryCrossed();
         this.ticksSinceStartOfCalculation = ticksSinceStartOfCalculation;
@@ -92,7 +122,16 @@ public class Node {
      * @return The LngLat object representing the location coordinates of this node.
      */
     public LngLat getLngLat() {
-        return this.lngLat;
+        return this.latticePoint.getLngLat();
+    }
+
+    /**
+     * Method to get the LatticePoint object representing the exact location of this node on the lattice
+     * of the path's moves.
+     * @return The LatticePoint object representing the location of this node.
+     */
+    public LatticePoint getLatticePoint() {
+        return this.latticePoint;
     }
 
     /**
@@ -100,7 +139,16 @@ public class Node {
      * @return The angle (w.r.t East) travelled to get from the parent node to this node.
      */
     public Double getAngleFromParent() {
-        return angleFromParent;
+        return this.directionFromParent == null ? null : this.directionFromParent.getAngle();
+    }
+
+    /**
+     * Method to get the compass direction travelled to get from the parent node to this node.
+     * @return The compass direction travelled to get from the parent node to this node. Null for the
+     *         start node of a path.
+     */
+    public CompassDirection getDirectionFromParent() {
+        return this.directionFromParent;
     }
 
     /**
@@ -145,18 +193,33 @@ public class Node {
      * @return The weighted F cost of this node in the A* Search pathfinding algorithm.
      */
     public double getFCost() {
-        // Distance travelled to reach this node in the path.
-        double gCost = this.stepsFromStart * Drone.MOVE_LENGTH;
+        return this.getGCost() + this.getHCost();
+    }
 
-        // Estimated distance from this node to the target node
-        double hCost = this.lngLat.distanceTo(this.targetLngLat);
+    /**
+     * Method to get the G cost of this node in the A* Search pathfinding algorithm: the distance travelled from
+     * the start of the path to reach this node.
+     * @return The G cost of this node.
+     */
+    public double getGCost() {
+        return this.stepsFromStart * Drone.MOVE_LENGTH;
+    }
 
-        return gCost + (H_WEIGHT * hCost);
+    /**
+     * Method to get the H cost of this node in the A* Search pathfinding algorithm: the distance to the
+     * target node estimated by the path's heuristic. It is computed the first time it is needed.
+     * @return The H cost of this node.
+     */
+    public double getHCost() {
+        if (Double.isNaN(this.hCost)) {
+            this.hCost = this.heuristic.estimate(this.getLngLat(), this.targetLngLat);
+        }
+        return this.hCost;
     }
 
     /**
      * Overridden equals method to check if two Node objects are equal. Two Node objects are equal if
-     * they have the same location coordinates.
+     * they are at the same point on the lattice of the path's moves.
      * @param o The object to compare this Node object to.
      * @return Whether the two Node objects are equal.
      */
@@ -165,7 +228,7 @@ public class Node {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Node node = (Node) o;
-        return Objects.equals(lngLat, node.lngLat);
+        return Objects.equals(latticePoint, node.latticePoint);
     }
 
     /**
@@ -174,6 +237,6 @@ public class Node {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(lngLat);
+        return Objects.hash(latticePoint);
     }
 }
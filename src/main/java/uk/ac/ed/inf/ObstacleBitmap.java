@@ -0,0 +1,312 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Class to represent a precomputed bitmap of the moves that might cross an obstacle: a no-fly zone edge or the
+ * central area boundary. The bitmap covers a grid of cells, one move length wide, over the bounding box of the
+ * central area and no-fly zones, and holds one bit for each cell and each of the 16 compass directions. The bit is
+ * set if a move in that direction from any point in the cell might cross an obstacle edge, so a move whose bit is
+ * clear is known to be legal with a single lookup, and only moves near an edge need the exact line intersection
+ * tests. Points outside the grid are more than a move from every edge.
+ * <p>
+ * The bitmap can be saved to a file with a fingerprint of the obstacles it was computed for, and loaded again on
+ * later days while the central area and no-fly zones are unchanged.
+ */
+public class ObstacleBitmap {
+
+    // Number identifying an obstacle bitmap file ("PZOB").
+    private static final int MAGIC = 0x505A4F42;
+
+    // Version of the file format, which is part of the fingerprint so files of older formats are recomputed.
+    private static final int VERSION = 1;
+
+    // Size (in bytes) of the file header.
+    private static final int HEADER_BYTES = 48;
+
+    // Width and height (in degrees) of each cell.
+    private static final double CELL_SIZE = Drone.MOVE_LENGTH;
+
+    // Distance (in degrees) the box a move can sweep is grown by, so an edge that only touches it is counted.
+    private static final double BOX_TOLERANCE = 1e-9;
+
+    // Number of compass directions a move can be made in.
+    private static final int DIRECTION_COUNT = CompassDirection.values().length;
+
+    // Change in longitude and latitude of a move in each direction, indexed by the direction's ordinal.
+    private static final double[] MOVE_LNG_OFFSETS = new double[DIRECTION_COUNT];
+    private static final double[] MOVE_LAT_OFFSETS = new double[DIRECTION_COUNT];
+
+    static {
+        LngLat origin = new LngLat(0, 0);
+        for (CompassDirection direction : CompassDirection.values()) {
+            LngLat offset = origin.nextPosition(direction);
+            MOVE_LNG_OFFSETS[direction.ordinal()] = offset.lng();
+            MOVE_LAT_OFFSETS[direction.ordinal()] = offset.lat();
+        }
+    }
+
+    // Fingerprint of the obstacles the bitmap was computed for.
+    private final long fingerprint;
+
+    // Coordinates of the south-west corner of the grid.
+    private final double minLng;
+    private final double minLat;
+
+    // Number of columns and rows of cells in the grid.
+    private final int columns;
+    private final int rows;
+
+    // Bitset storing whether a move in each direction from each cell might cross an obstacle edge, with the bit
+    // for direction d of the cell in a column and row at index (row * columns + column) * DIRECTION_COUNT + d.
+    private final long[] nearObstacleMoves;
+
+    /**
+     * Class constructor to initialise a bitmap from its dimensions and bits.
+     * @param fingerprint Fingerprint of the obstacles the bitmap was computed for.
+     * @param minLng Longitude of the west edge of the grid.
+     * @param minLat Latitude of the south edge of the grid.
+     * @param columns Number of columns of cells.
+     * @param rows Number of rows of cells.
+     * @param nearObstacleMoves Bitset storing whether each move might cross an obstacle edge.
+     */
+    private ObstacleBitmap(long fingerprint, double minLng, double minLat, int columns, int rows,
+                           long[] nearObstacleMoves) {
+        this.fingerprint = fingerprint;
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.columns = columns;
+        this.rows = rows;
+        this.nearObstacleMoves = nearObstacleMoves;
+    }
+
+    /**
+     * Method to compute the bitmap of the moves that might cross the edges of the central area or a no-fly zone.
+     * @param centralArea The vertices of the central area.
+     * @param noFlyZones The no-fly zones.
+     * @return The new bitmap.
+     */
+    public static ObstacleBitmap create(LngLat[] centralArea, NoFlyZone[] noFlyZones) {
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (LngLat[] polygon : getPolygons(centralArea, noFlyZones)) {
+            for (LngLat vertex : polygon) {
+                minLng = Math.min(minLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLng = Math.max(maxLng, vertex.lng());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        // Moves from outside the grid must be more than one move from every edge.
+        double margin = Drone.MOVE_LENGTH + CELL_SIZE;
+        minLng -= margin;
+        minLat -= margin;
+        int columns = (int) Math.ceil((maxLng + margin - minLng) / CELL_SIZE);
+        int rows = (int) Math.ceil((maxLat + margin - minLat) / CELL_SIZE);
+
+        ObstacleBitmap bitmap = new ObstacleBitmap(computeFingerprint(centralArea, noFlyZones), minLng, minLat,
+                columns, rows, new long[(columns * rows * DIRECTION_COUNT + 63) / 64]);
+        for (LngLat[] polygon : getPolygons(centralArea, noFlyZones)) {
+            for (int i = 0; i < polygon.length; i++) {
+                bitmap.markMovesNear(polygon[i], polygon[(i + 1) % polygon.length]);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Method to load the bitmap saved in a file if it was computed for the same obstacles, or otherwise compute
+     * it and save it to the file.
+     * @param file Path of the file.
+     * @param centralArea The vertices of the central area.
+     * @param noFlyZones The no-fly zones.
+     * @return The bitmap of the obstacles.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static ObstacleBitmap loadOrCreate(Path file, LngLat[] centralArea, NoFlyZone[] noFlyZones)
+            throws IOException {
+        if (Files.exists(file)) {
+            ObstacleBitmap bitmap = load(file);
+            if (bitmap != null && bitmap.fingerprint == computeFingerprint(centralArea, noFlyZones)) {
+                return bitmap;
+            }
+        }
+        ObstacleBitmap bitmap = create(centralArea, noFlyZones);
+        bitmap.save(file);
+        return bitmap;
+    }
+
+    /**
+     * Method to get the polygons whose edges are obstacles: the central area followed by each no-fly zone.
+     * @param centralArea The vertices of the central area.
+     * @param noFlyZones The no-fly zones.
+     * @return The vertices of each polygon.
+     */
+    private static LngLat[][] getPolygons(LngLat[] centralArea, NoFlyZone[] noFlyZones) {
+        LngLat[][] polygons = new LngLat[noFlyZones.length + 1][];
+        polygons[0] = centralArea;
+        for (int i = 0; i < noFlyZones.length; i++) {
+            polygons[i + 1] = noFlyZones[i].getCoordinatesLngLat();
+        }
+        return polygons;
+    }
+
+    /**
+     * Method to set the bit of every move that might cross an edge. A move in a direction from anywhere in a cell
+     * stays within the bounding box of the cell and the cell moved one move length in that direction, so the bit
+     * is set if the edge meets that box. Only the cells within a move and a cell of the edge are checked.
+     * @param edgeStart The start of the edge.
+     * @param edgeEnd The end of the edge.
+     */
+    private void markMovesNear(LngLat edgeStart, LngLat edgeEnd) {
+        int minColumn = Math.max(0, this.getColumn(Math.min(edgeStart.lng(), edgeEnd.lng()) - Drone.MOVE_LENGTH));
+        int maxColumn = Math.min(this.columns - 1,
+                this.getColumn(Math.max(edgeStart.lng(), edgeEnd.lng()) + Drone.MOVE_LENGTH));
+        int minRow = Math.max(0, this.getRow(Math.min(edgeStart.lat(), edgeEnd.lat()) - Drone.MOVE_LENGTH));
+        int maxRow = Math.min(this.rows - 1,
+                this.getRow(Math.max(edgeStart.lat(), edgeEnd.lat()) + Drone.MOVE_LENGTH));
+        Line2D edge = new Line2D.Double(edgeStart.lng(), edgeStart.lat(), edgeEnd.lng(), edgeEnd.lat());
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                double cellLng = this.minLng + column * CELL_SIZE;
+                double cellLat = this.minLat + row * CELL_SIZE;
+                for (int d = 0; d < DIRECTION_COUNT; d++) {
+                    double boxLng = cellLng + Math.min(0, MOVE_LNG_OFFSETS[d]) - BOX_TOLERANCE;
+                    double boxLat = cellLat + Math.min(0, MOVE_LAT_OFFSETS[d]) - BOX_TOLERANCE;
+                    if (edge.intersects(boxLng, boxLat, CELL_SIZE + Math.abs(MOVE_LNG_OFFSETS[d]) + 2 * BOX_TOLERANCE,
+                            CELL_SIZE + Math.abs(MOVE_LAT_OFFSETS[d]) + 2 * BOX_TOLERANCE)) {
+                        int bit = (row * this.columns + column) * DIRECTION_COUNT + d;
+                        this.nearObstacleMoves[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to check whether a move might cross a no-fly zone edge or the central area boundary. If it cannot,
+     * the move is legal and does not change whether the drone is inside the central area.
+     * @param from The start of the move.
+     * @param direction The direction of the move.
+     * @return True if the move starts near an obstacle edge it might cross, false if it cannot cross one.
+     */
+    public boolean mightCrossObstacle(LngLat from, CompassDirection direction) {
+        int column = this.getColumn(from.lng());
+        int row = this.getRow(from.lat());
+        if (column < 0 || column >= this.columns || row < 0 || row >= this.rows) {
+            return false;
+        }
+        int bit = (row * this.columns + column) * DIRECTION_COUNT + direction.ordinal();
+        return (this.nearObstacleMoves[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Method to get the column of cells containing a longitude, which may be outside the grid.
+     * @param lng The longitude.
+     * @return The column index.
+     */
+    private int getColumn(double lng) {
+        return (int) Math.floor((lng - this.minLng) / CELL_SIZE);
+    }
+
+    /**
+     * Method to get the row of cells containing a latitude, which may be outside the grid.
+     * @param lat The latitude.
+     * @return The row index.
+     */
+    private int getRow(double lat) {
+        return (int) Math.floor((lat - this.minLat) / CELL_SIZE);
+    }
+
+    /**
+     * Method to compute the fingerprint of a set of obstacles, from the vertices of the central area and of each
+     * no-fly zone and the move length.
+     * @param centralArea The vertices of the central area.
+     * @param noFlyZones The no-fly zones.
+     * @return The fingerprint of the obstacles.
+     */
+    private static long computeFingerprint(LngLat[] centralArea, NoFlyZone[] noFlyZones) {
+        LngLat[][] polygons = getPolygons(centralArea, noFlyZones);
+        int vertexCount = 0;
+        for (LngLat[] polygon : polygons) {
+            vertexCount += polygon.length;
+        }
+        ByteBuffer data = ByteBuffer.allocate(16 + 4 * polygons.length + 16 * vertexCount);
+        data.putInt(VERSION);
+        data.putDouble(Drone.MOVE_LENGTH);
+        data.putInt(polygons.length);
+        for (LngLat[] polygon : polygons) {
+            data.putInt(polygon.length);
+            for (LngLat vertex : polygon) {
+                data.putDouble(vertex.lng());
+                data.putDouble(vertex.lat());
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data.array());
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Method to save the bitmap to a file. The bitmap is written to a temporary file which then replaces the
+     * file, so the file is never seen half written.
+     * @param file Path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * this.nearObstacleMoves.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(this.fingerprint);
+        buffer.putDouble(this.minLng);
+        buffer.putDouble(this.minLat);
+        buffer.putInt(this.columns);
+        buffer.putInt(this.rows);
+        buffer.putInt(this.nearObstacleMoves.length);
+        buffer.putInt(0); // Padding, so the bits start on an 8 byte boundary.
+        buffer.asLongBuffer().put(this.nearObstacleMoves);
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        Files.write(temporaryFile, buffer.array());
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method to load a bitmap saved in a file.
+     * @param file Path of the file.
+     * @return The bitmap, or null if the file is not an obstacle bitmap file of the current format.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ObstacleBitmap load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        long fingerprint = buffer.getLong();
+        double minLng = buffer.getDouble();
+        double minLat = buffer.getDouble();
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        long[] nearObstacleMoves = new long[buffer.getInt()];
+        buffer.getInt(); // Padding.
+        if (buffer.remaining() != 8 * nearObstacleMoves.length) {
+            return null;
+        }
+        buffer.asLongBuffer().get(nearObstacleMoves);
+        return new ObstacleBitmap(fingerprint, minLng, minLat, columns, rows, nearObstacleMoves);
+    }
+
+}
@@ -0,0 +1,70 @@
+package uk.ac.ed.inf;
+
+/**
+ * Heuristic estimating the remaining distance with the lower bound on path length imposed by the drone's
+ * 16-direction move lattice, the 16-direction analogue of the octile distance on 8-connected grids. The
+ * shortest lattice route to a point uses only the two compass directions bracketing the bearing to it, so
+ * its length is the straight-line distance stretched by how far the bearing is from a compass direction.
+ * With a weight of 1 the heuristic never overestimates, so A* finds the shortest paths.
+ */
+public class OctileHeuristic implements Heuristic {
+
+    // Angle (in radians) between adjacent compass directions.
+    private static final double SECTOR_ANGLE = Math.PI / 8;
+
+    /* Distance (in degrees) subtracted from the lattice distance so the estimate stays a lower bound when the
+       path ends anywhere within one move of the target: moving the end point by a distance d changes the
+       lattice distance by at most d / cos(11.25 degrees). */
+    private static final double CLOSE_TO_SLACK = Drone.MOVE_LENGTH / Math.cos(SECTOR_ANGLE / 2);
+
+    // Weighting factor applied to the lattice distance.
+    private final double weight;
+
+    /**
+     * Class constructor to initialise a new, admissible octile heuristic.
+     */
+    public OctileHeuristic() {
+        this(1.0);
+    }
+
+    /**
+     * Class constructor to initialise a new octile heuristic with a weighting factor.
+     * @param weight Weighting factor applied to the lattice distance.
+     */
+    public OctileHeuristic(double weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Method to get the length of the shortest route between two points using moves in the two compass
+     * directions bracketing the bearing between them.
+     * @param point The start of the route.
+     * @param target The end of the route.
+     * @return The length (in degrees) of the shortest lattice route between the points.
+     */
+    public static double latticeDistance(LngLat point, LngLat target) {
+        double lngDif = target.lng() - point.lng();
+        double latDif = target.lat() - point.lat();
+        double distance = Math.sqrt(lngDif * lngDif + latDif * latDif);
+        if (distance == 0) {
+            return 0;
+        }
+        // Angle between the bearing and the compass direction before it, between 0 and 22.5 degrees.
+        double bearing = Math.atan2(latDif, lngDif);
+        double offset = bearing - SECTOR_ANGLE * Math.floor(bearing / SECTOR_ANGLE);
+        return distance * (Math.sin(offset) + Math.sin(SECTOR_ANGLE - offset)) / Math.sin(SECTOR_ANGLE);
+    }
+
+    /**
+     * Method to estimate the remaining distance as the weighted lattice distance to the target, less the
+     * distance within which the target counts as reached.
+     * @param point The point the estimate is made from.
+     * @param target The target point of the path.
+     * @return The estimated remaining distance (in degrees).
+     */
+    @Override
+    public double estimate(LngLat point, LngLat target) {
+        return this.weight * Math.max(0, latticeDistance(point, target) - CLOSE_TO_SLACK);
+    }
+
+}
@@ -61,6 +61,29 @@ public class Order {
 
     }
 
+    /**
+     * Class constructor to initialise an order from its fields, as read from an order file.
+     * @param orderNo The order number of the order.
+     * @param orderDate The date of the order, in the format yyyy-MM-dd.
+     * @param customer The name of the customer who placed the order.
+     * @param creditCardNumber The credit card number used to pay for the order.
+     * @param creditCardExpiry The expiry date of the credit card, in the format MM/yy.
+     * @param cvv The CVV of the credit card.
+     * @param priceTotalInPence The total price of the order (in pence), including the delivery charge.
+     * @param orderItems The names of the pizzas ordered.
+     */
+    public Order(String orderNo, String orderDate, String customer, String creditCardNumber, String creditCardExpiry,
+                 String cvv, int priceTotalInPence, String[] orderItems) {
+        this.orderNo = orderNo;
+        this.orderDate = orderDate;
+        this.customer = customer;
+        this.creditCardNumber = creditCardNumber;
+        this.creditCardExpiry = creditCardExpiry;
+        this.cvv = cvv;
+        this.priceTotalInPence = priceTotalInPence;
+        this.orderItems = orderItems;
+    }
+
     /**
      * Method to get an OrderOutcome instance that represents the outcome of the order.
      * @return OrderOutcome instance that represents the outcome of the order.
@@ -102,6 +125,14 @@ public class Order {
         return this.orderNo;
     }
 
+    /**
+     * Method to get the date of the order.
+     * @return The date of the order, in the format yyyy-MM-dd.
+     */
+    public String getOrderDate() {
+        return this.orderDate;
+    }
+
     /**
      * Method to get the price total in pence of the order, received from the REST server.
      * @return Integer representing the price total in pence of the order (from the REST server).
@@ -167,6 +198,24 @@ public class Order {
      * @return True if the order is valid for the given world state, false otherwise.
      */
     public boolean isOrderValid() throws IOException {
+        OrderValidationEvent validationEvent = new OrderValidationEvent();
+        validationEvent.begin();
+        try {
+            return this.checkOrderValidity();
+        } finally {
+            validationEvent.orderNo = this.orderNo;
+            validationEvent.outcome = String.valueOf(this.orderOutcome);
+            validationEvent.commit();
+        }
+    }
+
+    /**
+     * Method to run the validity checks on the order, setting the order outcome to the reason the order is
+     * invalid, or to OrderOutcome.ValidButNotDelivered if all checks pass.
+     * @return True if the order is valid for the given world state, false otherwise.
+     * @throws IOException If the participating restaurants could not be fetched from the REST server.
+     */
+    private boolean checkOrderValidity() throws IOException {
         // The number of pizzas ordered must be greater than 0 and up to 5.
         if (this.orderItems.length < 1 || this.orderItems.length > 5) {
             this.orderOutcome = OrderOutcome.InvalidPizzaCount;
@@ -0,0 +1,29 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event recorded when the drone commits the moves for delivering an order.
+ */
+@Name("uk.ac.ed.inf.OrderDelivery")
+@Label("Order Delivery")
+@Category({"PizzaDronz", "Orders"})
+@Description("Commit of the moves made by the drone to deliver an order.")
+public class OrderDeliveryEvent extends jdk.jfr.Event {
+
+    // Field to store the order number of the order being delivered.
+    @Label("Order Number")
+    public String orderNo;
+
+    // Field to store the number of moves committed to deliver the order.
+    @Label("Moves")
+    public int moves;
+
+    // Field to store the number of moves the drone has remaining after delivering the order.
+    @Label("Moves Remaining")
+    public int movesRemaining;
+
+}
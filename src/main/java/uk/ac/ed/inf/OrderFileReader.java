@@ -0,0 +1,434 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Class to read orders from a local order file, for backfills and load tests, instead of the REST server. A file is
+ * either newline-delimited JSON (one order per line, as the REST server serves them) or the binary format written
+ * by writeBinary, which starts with MAGIC and holds the orders in blocks of whole records.
+ * <p>
+ * The file is split into chunks at record boundaries (the first line starting in each chunk of a JSON file, or
+ * each block of a binary file), and the chunks are memory-mapped, parsed and validated in parallel on the common
+ * ForkJoinPool. Each order is passed on as a compact OrderRecord as soon as it is validated, so a file of any size
+ * is read without ever holding all of its orders in memory.
+ */
+public class OrderFileReader {
+
+    /**
+     * Number of bytes in each chunk of a JSON file parsed by one task, and the most bytes of records written to
+     * each block of a binary file, unless another size is set.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    /**
+     * Longest line (in bytes) a JSON file may hold, so a chunk never needs to map more than this past its end to
+     * finish its last line.
+     */
+    public static final int MAX_RECORD_BYTES = 1 << 20;
+
+    // Magic number ("PZOR") and version at the start of a binary order file.
+    private static final int MAGIC = 0x505A4F52;
+    private static final int VERSION = 1;
+
+    // Number of bytes in the header of a binary order file, and in the header of each of its blocks.
+    private static final int HEADER_BYTES = 8;
+    private static final int BLOCK_HEADER_BYTES = 8;
+
+    // Reader mapping a line of JSON to an Order, shared by every chunk as it is thread-safe.
+    private static final ObjectReader ORDER_READER = new ObjectMapper().readerFor(Order.class);
+
+    /**
+     * Record to represent a chunk of an order file parsed by one task.
+     * @param start The offset of the first byte of the chunk.
+     * @param end The offset just after the last byte of the chunk.
+     * @param recordCount The number of records in the chunk, if it is a block of a binary file, or -1 otherwise.
+     */
+    private record Chunk(long start, long end, int recordCount) {
+
+    }
+
+    // Field to store the path of the order file.
+    private final Path file;
+
+    // Field to store the number of bytes in each chunk of a JSON file, and the most in each block written.
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+
+    /**
+     * Class constructor to initialise a reader of an order file.
+     * @param file Path of the order file.
+     */
+    public OrderFileReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Method to set the number of bytes in each chunk of a JSON file parsed by one task, which is also the most
+     * bytes of records writeBinary writes to each block.
+     * @param chunkBytes The number of bytes in each chunk.
+     * @throws IllegalArgumentException If the number of bytes is not positive.
+     */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkBytes);
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Method to read, validate and pass on every order in the file. The chunks of the file are parsed in parallel,
+     * so the action is called from several threads at once, and in no particular order.
+     * @param action The action to pass each validated order to, which must be thread-safe.
+     * @throws IOException If the file cannot be read or is malformed, or the restaurants cannot be fetched from
+     *                     the REST server.
+     */
+    public void forEachOrder(Consumer<OrderRecord> action) throws IOException {
+        // Fetched before the chunks are parsed, so every task validates against the same restaurants.
+        Restaurant[] restaurants = DataFetcher.getInstance().getRestaurants();
+        IdentityHashMap<Restaurant, Integer> restaurantIndices = new IdentityHashMap<>();
+        for (int i = 0; i < restaurants.length; i++) {
+            restaurantIndices.put(restaurants[i], i);
+        }
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            boolean binary = isBinary(channel);
+            ArrayList<Chunk> chunks = binary ? getBlocks(channel) : this.getLineChunks(channel.size());
+            chunks.parallelStream().forEach(chunk -> {
+                try {
+                    if (binary) {
+                        parseBlock(channel, chunk, restaurantIndices, action);
+                    } else {
+                        parseLines(channel, chunk, restaurantIndices, action);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Method to convert the file, which must be newline-delimited JSON, to the binary format, in blocks holding
+     * at most the chunk size of records. The JSON file is read one line at a time, so it can be of any size.
+     * @param binaryFile Path of the binary file to write.
+     * @throws IOException If the file cannot be read or the binary file cannot be written, or an order has a
+     *                     field that is too long to store.
+     */
+    public void writeBinary(Path binaryFile) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(binaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            int blockRecords = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                byte[] record = encodeRecord(mapper.readTree(line));
+                if (record.length > this.chunkBytes) {
+                    throw new IOException("Order is longer than a block of " + this.chunkBytes + " bytes: " + line);
+                }
+                if (block.size() + record.length > this.chunkBytes) {
+                    writeBlock(output, block, blockRecords);
+                    blockRecords = 0;
+                }
+                block.write(record);
+                blockRecords++;
+            }
+            if (blockRecords > 0) {
+                writeBlock(output, block, blockRecords);
+            }
+        }
+    }
+
+    /**
+     * Method to check whether an order file is in the binary format, from the magic number at its start.
+     * @param channel The channel the file is open on.
+     * @return True if the file is binary, false if it is newline-delimited JSON.
+     * @throws IOException If the file cannot be read, or is binary of another version.
+     */
+    private static boolean isBinary(FileChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            return false;
+        }
+        if (header.getInt() != VERSION) {
+            throw new IOException("Not a binary order file of version " + VERSION + ".");
+        }
+        return true;
+    }
+
+    /**
+     * Method to split a JSON file into chunks of the chunk size. A chunk's task parses every line that starts in
+     * it, reading past its end to finish its last line, so each line is parsed by exactly one task.
+     * @param size The size of the file (in bytes).
+     * @return The chunks of the file.
+     */
+    private ArrayList<Chunk> getLineChunks(long size) {
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        for (long start = 0; start < size; start += this.chunkBytes) {
+            chunks.add(new Chunk(start, Math.min(size, start + this.chunkBytes), -1));
+        }
+        return chunks;
+    }
+
+    /**
+     * Method to find the blocks of a binary file from their headers, skipping over their records.
+     * @param channel The channel the file is open on.
+     * @return The blocks of the file.
+     * @throws IOException If the file cannot be read, or ends part way through a block.
+     */
+    private static ArrayList<Chunk> getBlocks(FileChannel channel) throws IOException {
+        ArrayList<Chunk> blocks = new ArrayList<>();
+        long size = channel.size();
+        long position = HEADER_BYTES;
+        while (position < size) {
+            ByteBuffer blockHeader = readFully(channel, position, BLOCK_HEADER_BYTES);
+            if (blockHeader.remaining() < BLOCK_HEADER_BYTES) {
+                throw new IOException("Binary order file ends part way through a block header.");
+            }
+            int blockBytes = blockHeader.getInt();
+            int recordCount = blockHeader.getInt();
+            long start = position + BLOCK_HEADER_BYTES;
+            if (blockBytes < 0 || recordCount < 0 || start + blockBytes > size) {
+                throw new IOException("Binary order file ends part way through a block.");
+            }
+            blocks.add(new Chunk(start, start + blockBytes, recordCount));
+            position = start + blockBytes;
+        }
+        return blocks;
+    }
+
+    /**
+     * Method to parse and validate the lines starting in a chunk of a JSON file. Blank lines are skipped.
+     * @param channel The channel the file is open on.
+     * @param chunk The chunk.
+     * @param restaurantIndices The index of each restaurant in DataFetcher.getRestaurants().
+     * @param action The action to pass each validated order to.
+     * @throws IOException If the file cannot be read, or a line cannot be parsed or is longer than
+     *                     MAX_RECORD_BYTES.
+     */
+    private static void parseLines(FileChannel channel, Chunk chunk, IdentityHashMap<Restaurant, Integer>
+            restaurantIndices, Consumer<OrderRecord> action) throws IOException {
+        long size = channel.size();
+        // Mapped from the byte before the chunk, to tell whether a line starts at its start.
+        long mapStart = Math.max(0, chunk.start() - 1);
+        long mapEnd = Math.min(size, chunk.end() + MAX_RECORD_BYTES);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int position = (int) (chunk.start() - mapStart);
+        int end = (int) (chunk.end() - mapStart);
+        if (chunk.start() > 0 && buffer.get(position - 1) != '\n') {
+            // The line running into the chunk started in the chunk before, whose task parses it.
+            position = findLineEnd(buffer, position) + 1;
+        }
+        byte[] line = new byte[256];
+        while (position < end) {
+            int lineEnd = findLineEnd(buffer, position);
+            if (lineEnd == buffer.limit() && mapEnd < size) {
+                throw new IOException("Order file has a line longer than " + MAX_RECORD_BYTES + " bytes.");
+            }
+            int length = lineEnd - position;
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+            if (length > line.length) {
+                line = new byte[Math.max(length, 2 * line.length)];
+            }
+            buffer.get(position, line, 0, length);
+            if (!isBlank(line, length)) {
+                Order order = ORDER_READER.readValue(line, 0, length);
+                action.accept(validate(order, restaurantIndices));
+            }
+            position = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Method to check whether a line holds only spaces and control characters.
+     * @param line The bytes of the line.
+     * @param length The length of the line.
+     * @return True if the line is blank, false otherwise.
+     */
+    private static boolean isBlank(byte[] line, int length) {
+        for (int i = 0; i < length; i++) {
+            if ((line[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to find the end of the line starting at a position in a buffer.
+     * @param buffer The buffer.
+     * @param position The position of the start of the line.
+     * @return The position of the newline ending the line, or the buffer's limit if no newline is found.
+     */
+    private static int findLineEnd(ByteBuffer buffer, int position) {
+        int lineEnd = position;
+        while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        return lineEnd;
+    }
+
+    /**
+     * Method to parse and validate the records of a block of a binary file.
+     * @param channel The channel the file is open on.
+     * @param block The block.
+     * @param restaurantIndices The index of each restaurant in DataFetcher.getRestaurants().
+     * @param action The action to pass each validated order to.
+     * @throws IOException If the file cannot be read, or the block's records run past its end.
+     */
+    private static void parseBlock(FileChannel channel, Chunk block, IdentityHashMap<Restaurant, Integer>
+            restaurantIndices, Consumer<OrderRecord> action) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, block.start(),
+                block.end() - block.start());
+        try {
+            for (int i = 0; i < block.recordCount(); i++) {
+                String orderNo = readString(buffer);
+                String orderDate = readString(buffer);
+                String customer = readString(buffer);
+                String creditCardNumber = readString(buffer);
+                String creditCardExpiry = readString(buffer);
+                String cvv = readString(buffer);
+                int priceTotalInPence = buffer.getInt();
+                String[] orderItems = new String[buffer.get() & 0xFF];
+                for (int j = 0; j < orderItems.length; j++) {
+                    orderItems[j] = readString(buffer);
+                }
+                Order order = new Order(orderNo, orderDate, customer, creditCardNumber, creditCardExpiry, cvv,
+                        priceTotalInPence, orderItems);
+                action.accept(validate(order, restaurantIndices));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Binary order file has a malformed block at byte " + block.start() + ".", e);
+        }
+    }
+
+    /**
+     * Method to validate an order and reduce it to an OrderRecord.
+     * @param order The order.
+     * @param restaurantIndices The index of each restaurant in DataFetcher.getRestaurants().
+     * @return The validated order.
+     * @throws IOException If the restaurants cannot be fetched from the REST server.
+     */
+    private static OrderRecord validate(Order order, IdentityHashMap<Restaurant, Integer> restaurantIndices)
+            throws IOException {
+        boolean valid = order.isOrderValid();
+        int restaurant = valid ? restaurantIndices.getOrDefault(order.getRestaurant(), -1) : -1;
+        return new OrderRecord(order.getOrderNo(), order.getOrderDate(), order.getOrderOutcome(), restaurant,
+                order.getPriceTotalInPence());
+    }
+
+    /**
+     * Method to encode an order, parsed from a line of JSON, as a record of the binary format: its text fields as
+     * UTF-8 strings prefixed by their length, its price, and its items prefixed by their number.
+     * @param order The order's JSON.
+     * @return The record.
+     * @throws IOException If a field is too long to store.
+     */
+    private static byte[] encodeRecord(JsonNode order) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(record);
+        for (String field : new String[] {"orderNo", "orderDate", "customer", "creditCardNumber", "creditCardExpiry",
+                "cvv"}) {
+            writeString(output, order.path(field).asText());
+        }
+        output.writeInt(order.path("priceTotalInPence").asInt());
+        JsonNode orderItems = order.path("orderItems");
+        if (orderItems.size() > 0xFF) {
+            throw new IOException("Order has too many items to store: " + orderItems.size());
+        }
+        output.writeByte(orderItems.size());
+        for (JsonNode item : orderItems) {
+            writeString(output, item.asText());
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Method to write a block of records, after its header giving its length and number of records, and empty
+     * the block.
+     * @param output The stream the binary file is written to.
+     * @param block The records of the block.
+     * @param recordCount The number of records in the block.
+     * @throws IOException If the block cannot be written.
+     */
+    private static void writeBlock(DataOutputStream output, ByteArrayOutputStream block, int recordCount)
+            throws IOException {
+        output.writeInt(block.size());
+        output.writeInt(recordCount);
+        block.writeTo(output);
+        block.reset();
+    }
+
+    /**
+     * Method to write a string as its length in UTF-8 bytes followed by the bytes.
+     * @param output The stream to write to.
+     * @param string The string.
+     * @throws IOException If the string is longer than 65535 bytes, or cannot be written.
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Order field is too long to store: " + bytes.length + " bytes.");
+        }
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Method to read a string written by writeString.
+     * @param buffer The buffer to read from.
+     * @return The string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method to read up to a number of bytes from a position in a file.
+     * @param channel The channel the file is open on.
+     * @param position The position to read from.
+     * @param length The number of bytes to read.
+     * @return A buffer holding the bytes read, fewer if the file ends first.
+     * @throws IOException If the file cannot be read.
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+}
@@ -0,0 +1,15 @@
+package uk.ac.ed.inf;
+
+/**
+ * Record to represent an order read from an order file and validated, keeping only what is needed once it has been
+ * validated, so large order files can be processed without holding every Order object in memory.
+ * @param orderNo The order number of the order.
+ * @param orderDate The date of the order, in the format yyyy-MM-dd.
+ * @param outcome The outcome of validating the order: ValidButNotDelivered, or the reason it is invalid.
+ * @param restaurant The index of the order's restaurant in DataFetcher.getRestaurants(), or -1 if it is invalid.
+ * @param priceTotalInPence The total price of the order (in pence), including the delivery charge.
+ */
+public record OrderRecord(String orderNo, String orderDate, OrderOutcome outcome, int restaurant,
+                          int priceTotalInPence) {
+
+}
@@ -0,0 +1,25 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event recorded around each validation of an order.
+ */
+@Name("uk.ac.ed.inf.OrderValidation")
+@Label("Order Validation")
+@Category({"PizzaDronz", "Orders"})
+@Description("Validation of an order against the current world state.")
+public class OrderValidationEvent extends jdk.jfr.Event {
+
+    // Field to store the order number of the order being validated.
+    @Label("Order Number")
+    public String orderNo;
+
+    // Field to store the outcome of the order after validation.
+    @Label("Outcome")
+    public String outcome;
+
+}
@@ -0,0 +1,155 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class to evaluate a grid of drone configurations over one day's orders, planning the day for every setting in
+ * parallel and reporting the deliveries made and time taken to plan for each. Settings that must be the same for
+ * the whole process (see DroneConfig.STARTUP_KEYS) can be given one value, which applies to every run.
+ */
+public class ParameterSweep {
+
+    /**
+     * Record to represent the result of planning a day with one configuration.
+     * @param config The configuration the day was planned with.
+     * @param validCount The number of valid orders.
+     * @param deliveredCount The number of orders delivered.
+     * @param movesRemaining The number of moves the drone had remaining at the end of the day.
+     * @param expansions The number of nodes expanded by the path finder.
+     * @param elapsedMillis The time taken to plan and deliver the orders, in milliseconds.
+     */
+    public record Result(DroneConfig config, int validCount, int deliveredCount, int movesRemaining,
+                         long expansions, long elapsedMillis) {
+
+    }
+
+    /**
+     * Method to build every combination of the values given for each swept parameter, applied to a base
+     * configuration.
+     * @param baseConfig The configuration the swept values are applied to.
+     * @param keys The keys of the swept parameters.
+     * @param values The values of each swept parameter, in the same order as the keys.
+     * @return The configurations, with the last parameter varying fastest.
+     */
+    public static ArrayList<DroneConfig> getConfigGrid(DroneConfig baseConfig, List<String> keys,
+                                                       List<String[]> values) {
+        ArrayList<DroneConfig> configs = new ArrayList<>();
+        configs.add(baseConfig);
+        for (int i = 0; i < keys.size(); i++) {
+            ArrayList<DroneConfig> expandedConfigs = new ArrayList<>();
+            for (DroneConfig config : configs) {
+                for (String value : values.get(i)) {
+                    expandedConfigs.add(config.with(keys.get(i), value.trim()));
+                }
+            }
+            configs = expandedConfigs;
+        }
+        return configs;
+    }
+
+    /**
+     * Method to plan a day's orders with one configuration. Each run fetches its own copy of the orders, so
+     * runs can be made in parallel.
+     * @param config The configuration to plan the day with.
+     * @param date The date whose orders are delivered.
+     * @param moveValidityMemo The memo of exactly tested moves shared with the other runs, or null to test
+     *                         every move again.
+     * @return The result of planning the day.
+     * @throws IOException If the orders or world data cannot be fetched from the REST server.
+     */
+    public static Result run(DroneConfig config, LocalDate date, MoveValidityMemo moveValidityMemo)
+            throws IOException {
+        Order[] orders = DataFetcher.getInstance().fetchOrders(date);
+
+        long startTime = System.nanoTime();
+        PathFinder pathFinder = new PathFinder(config);
+        pathFinder.setMoveValidityMemo(moveValidityMemo);
+        Drone drone = new Drone(pathFinder, new LegCache(), null, config);
+        drone.deliverOrders(orders);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        int validCount = 0;
+        int delivered = 0;
+        for (Order order : orders) {
+            if (order.getOrderOutcome() == OrderOutcome.Delivered) {
+                delivered++;
+                validCount++;
+            } else if (order.getOrderOutcome() == OrderOutcome.ValidButNotDelivered) {
+                validCount++;
+            }
+        }
+        return new Result(config, validCount, delivered, drone.getMovesRemaining(),
+                pathFinder.getTotalExpansions(), elapsedMillis);
+    }
+
+    /**
+     * Main method to run the sweep and print the result of each configuration.
+     * @param args the date, the REST server's base url, and "key=value1,value2,..." for each swept parameter.
+     *             Parameters fixed for the whole process take a single value.
+     */
+    public static void main(String[] args) {
+        try {
+            LocalDate date = LocalDate.parse(args[0]);
+            ArrayList<String> startupOverrides = new ArrayList<>();
+            ArrayList<String> sweptKeys = new ArrayList<>();
+            ArrayList<String[]> sweptValues = new ArrayList<>();
+            for (String arg : Arrays.copyOfRange(args, 2, args.length)) {
+                String[] keyValues = arg.split("=", 2);
+                if (keyValues.length != 2) {
+                    throw new IllegalArgumentException("Swept parameters must be of the form key=value1,value2: "
+                            + arg);
+                }
+                String key = keyValues[0].trim();
+                if (Arrays.asList(DroneConfig.STARTUP_KEYS).contains(key)) {
+                    if (keyValues[1].contains(",")) {
+                        throw new IllegalArgumentException(key + " is fixed for the process, give it one value.");
+                    }
+                    startupOverrides.add(arg);
+                } else {
+                    sweptKeys.add(key);
+                    sweptValues.add(keyValues[1].split(","));
+                }
+            }
+            DroneConfig.configure(startupOverrides.toArray(new String[0]));
+
+            DataFetcher dataFetcher = DataFetcher.getInstance();
+            dataFetcher.setBaseUrl(args[1]);
+            dataFetcher.getCentralAreaPolygon(); // Fetch the world once, before the runs start.
+            dataFetcher.getRestaurants();
+            dataFetcher.getNoFlyZones();
+
+            ArrayList<DroneConfig> configs = getConfigGrid(DroneConfig.getStartupConfig(), sweptKeys, sweptValues);
+            // Every run searches from the same depot and restaurants, so they test the same moves around them.
+            MoveValidityMemo moveValidityMemo = new MoveValidityMemo(MoveValidityMemo.DEFAULT_CAPACITY);
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                ArrayList<Future<Result>> results = new ArrayList<>();
+                for (DroneConfig config : configs) {
+                    Callable<Result> runTask = () -> run(config, date, moveValidityMemo);
+                    results.add(pool.submit(runTask));
+                }
+                for (Future<Result> futureResult : results) {
+                    Result result = futureResult.get();
+                    System.out.println(result.config() + ": valid=" + result.validCount()
+                            + " delivered=" + result.deliveredCount() + " movesRemaining=" + result.movesRemaining()
+                            + " expansions=" + result.expansions() + " timeMs=" + result.elapsedMillis());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+}
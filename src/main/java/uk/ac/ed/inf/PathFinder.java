@@ -1,13 +1,144 @@
 package uk.ac.ed.inf;
 
-import java.awt.geom.Line2D;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PathFinder {
 
+    /**
+     * Record to represent a node on the open list of a search for several targets, with its F cost towards the
+     * target currently searched for.
+     * @param node The node.
+     * @param fCost The node's G cost plus the heuristic's estimate of its distance to the current target.
+     * @param hCost The heuristic's estimate of the node's distance to the current target.
+     */
+    private record OpenNode(Node node, double fCost, double hCost) {
+
+    }
+
+    /**
+     * Record to represent the key of a node in a search's closed list. Two nodes at the same point on the lattice
+     * are only interchangeable if they are expanded in the same directions, which with neighbour pruning depend on
+     * the direction each node was reached by.
+     * @param point The node's point on the lattice.
+     * @param directions The directions the node is expanded in: ALL_DIRECTIONS or one of NATURAL_DIRECTIONS, which
+     *                   are shared arrays, so they are compared by identity.
+     */
+    private record SearchState(LatticePoint point, CompassDirection[] directions) {
+
+    }
+
+    // All compass directions, expanded from a node when no moves are pruned.
+    private static final CompassDirection[] ALL_DIRECTIONS = CompassDirection.values();
+
+    /* Directions expanded from a node away from every boundary when neighbour pruning is enabled, indexed by the
+       ordinal of the direction travelled to reach the node: that direction and the two directions 22.5 degrees
+       either side of it. */
+    private static final CompassDirection[][] NATURAL_DIRECTIONS = new CompassDirection[ALL_DIRECTIONS.length][];
+
+    static {
+        int directionCount = ALL_DIRECTIONS.length;
+        for (int i = 0; i < directionCount; i++) {
+            NATURAL_DIRECTIONS[i] = new CompassDirection[] {
+                    ALL_DIRECTIONS[i],
+                    ALL_DIRECTIONS[(i + 1) % directionCount],
+                    ALL_DIRECTIONS[(i + directionCount - 1) % directionCount]
+            };
+        }
+    }
+
+    // Directions whose angles bound each 22.5 degree sector of bearings, indexed by the sector's number counted
+    // anticlockwise from east: the direction at the sector's lower angle.
+    private static final CompassDirection[] SECTOR_DIRECTIONS = new CompassDirection[ALL_DIRECTIONS.length];
+
+    static {
+        for (int sector = 0; sector < SECTOR_DIRECTIONS.length; sector++) {
+            SECTOR_DIRECTIONS[sector] = CompassDirection.fromAngle(sector * 22.5);
+        }
+    }
+
+    // Number of coarse grid cells either side of the coarse route included in the corridor a search is confined to.
+    private static final int CORRIDOR_RADIUS = 1;
+
+    // Number of nodes a search for one segment of a coarse route may expand per move of the segment's
+    // straight-line length, plus a fixed allowance, before the coarse to fine search is abandoned.
+    private static final int SEGMENT_EXPANSIONS_PER_MOVE = 8;
+    private static final int SEGMENT_EXTRA_EXPANSIONS = 256;
+
+    /**
+     * Number of nodes a search may hold at once, open and explored, unless another limit is set. A target that
+     * cannot be reached leaves the search exploring an unbounded lattice, so it is abandoned at this limit, long
+     * before it runs out of memory, while every reachable target in the city needs far fewer nodes.
+     */
+    public static final int DEFAULT_MAX_LIVE_NODES = 1 << 19;
+
+    /**
+     * Distance (in degrees) from a no-fly zone or central area edge within which a node is always expanded
+     * in every direction, even when neighbour pruning is enabled.
+     */
+    private static final double PRUNING_BOUNDARY_DISTANCE = 2 * Drone.MOVE_LENGTH;
+
+    /* Limit on the moves of a path extracted by descending a distance field, as a multiple of the field's
+       distance from the start point plus a number of extra moves. Descents that take longer are abandoned. */
+    private static final double DESCENT_MOVE_ALLOWANCE = 1.25;
+    private static final int DESCENT_EXTRA_MOVES = 10;
+
+    // Field to store whether symmetric moves are pruned when expanding nodes away from every boundary.
+    private boolean neighbourPruning;
+
+    // Field to store whether the straight line to the target is tried before searching.
+    private boolean lineOfSight;
+
+    // Field to store whether searches are confined to a corridor around a route found on a coarse grid first.
+    private boolean coarseToFine;
+
+    // Field to store the coarse grid of the current no-fly zones, or null if it has not been built yet.
+    private volatile CoarseGrid coarseGrid;
+
+    // Field to store whether move legality is looked up in a precomputed obstacle bitmap before being tested exactly.
+    private boolean obstacleBitmapEnabled = true;
+
+    // Field to store the file the obstacle bitmap is saved to and reused from, or null if it is not saved.
+    private Path obstacleBitmapFile;
+
+    // Field to store the obstacle bitmap of the current world, and the central area and no-fly zones it was
+    // computed for, or null if it has not been computed yet.
+    private volatile ObstacleBitmap obstacleBitmap;
+    private volatile LngLat[] bitmapCentralArea;
+    private volatile NoFlyZone[] bitmapNoFlyZones;
+
+    // Field to store the edges of the current no-fly zones, or null if they have not been collected yet.
+    private volatile EdgeSet noFlyZoneEdges;
+
+    // Field to store the cells near an edge of the current world, or null if they have not been classified yet.
+    private volatile NearBoundaryGrid nearBoundaryGrid;
+
+    // Field to store the memo of exactly tested moves, or null if moves are always tested again.
+    private MoveValidityMemo moveValidityMemo;
+
+    // Field to store the number of nodes a search may hold at once, open and explored, before it is abandoned.
+    private int maxLiveNodes = DEFAULT_MAX_LIVE_NODES;
+
+    // Field to store the number of best open nodes kept when the open list is trimmed, or 0 if it is never trimmed.
+    private int beamWidth;
+
+    // Field to store the heuristic used to estimate the distance from a node to the target point.
+    private Heuristic heuristic = Node.DEFAULT_HEURISTIC;
+
+    // Field to store the precomputed distance fields descended to find paths to landmarks, or null if not used.
+    private DistanceFieldStore distanceFields;
+
+    // Field to store the total number of nodes expanded by all the searches made by this PathFinder, which may
+    // run concurrently.
+    private final LongAdder totalExpansions = new LongAdder();
+
     /**
      * Constructor to initialise a new PathFinder object.
      */
@@ -15,66 +146,780 @@ public class PathFinder {
 
     }
 
+    /**
+     * Constructor to initialise a new PathFinder object whose default heuristic is the straight-line distance
+     * to the target weighted by a configuration's heuristic weight.
+     * @param config DroneConfig object giving the heuristic weight.
+     */
+    public PathFinder(DroneConfig config) {
+        this.heuristic = new EuclideanHeuristic(config.getHeuristicWeight());
+    }
+
+    /**
+     * Method to set whether symmetric moves are pruned when expanding nodes. In open sky, paths that only differ
+     * in the order of their moves all reach the same points, so a node more than two moves away from every
+     * no-fly zone and central area edge is only expanded in the direction it was reached by and the two
+     * directions either side of it, which still allows every heading to be reached. Nodes near a boundary,
+     * and the start node, are expanded in all 16 directions. As the directions a node is expanded in then
+     * depend on the direction it was reached by, a point reached in different directions is explored once for
+     * each of them.
+     * @param neighbourPruning Whether symmetric moves are pruned.
+     */
+    public void setNeighbourPruning(boolean neighbourPruning) {
+        this.neighbourPruning = neighbourPruning;
+    }
+
+    /**
+     * Method to set whether the straight line to the target is tried before searching. When it is, a path is
+     * first traced along the one or two compass directions bracketing the bearing to the target, and is used
+     * without any search if every move is valid and it reaches the target in the fewest moves any path could,
+     * at a cost of one expansion per move. A traced path is therefore never longer than the path a search would
+     * find, but a trace that needs one more move is abandoned and its expansions are wasted.
+     * @param lineOfSight Whether the straight line is tried first. Disabled by default.
+     */
+    public void setLineOfSight(boolean lineOfSight) {
+        this.lineOfSight = lineOfSight;
+    }
+
+    /**
+     * Method to set whether searches are made coarse to fine. When they are, a route is first found on a grid of
+     * cells CoarseGrid.CELL_MOVES moves wide, blocked where they overlap a no-fly zone, and the move lattice is
+     * searched one short segment of that route at a time, confined to a corridor of cells around it. The whole
+     * lattice is searched if there is no coarse route, or a segment is not found. A leg around a U-shaped no-fly
+     * zone opening towards the start, which the lattice search alone abandons, is found in about one expansion per
+     * move, but the path keeps to the centres of free cells at the route's turns, so it may be up to a quarter
+     * longer than the shortest path around an obstacle a few cells across.
+     * @param coarseToFine Whether searches are made coarse to fine.
+     */
+    public void setCoarseToFine(boolean coarseToFine) {
+        this.coarseToFine = coarseToFine;
+    }
+
+    /**
+     * Method to set the number of nodes a search may hold at once, counting both the open list and the explored
+     * nodes. A search that reaches the limit is abandoned with a SearchAbandonedException, and its search event
+     * records that the limit was reached, so a target walled in by no-fly zones fails quickly instead of
+     * exhausting the heap.
+     * @param maxLiveNodes The maximum number of live nodes. DEFAULT_MAX_LIVE_NODES by default.
+     * @throws IllegalArgumentException If the limit is not positive.
+     */
+    public void setMaxLiveNodes(int maxLiveNodes) {
+        if (maxLiveNodes <= 0) {
+            throw new IllegalArgumentException("Maximum number of live nodes must be positive: " + maxLiveNodes);
+        }
+        this.maxLiveNodes = maxLiveNodes;
+    }
+
+    /**
+     * Method to set the width of the beam a search keeps. When it is set, the open list is trimmed to its best
+     * beamWidth nodes whenever it grows to twice that size, so the open list stays small however long the search
+     * runs, at the cost of the paths found no longer being guaranteed to be as short as the heuristic allows.
+     * @param beamWidth The number of open nodes kept when the open list is trimmed, or 0 to never trim it (the
+     *                  default).
+     * @throws IllegalArgumentException If the width is negative.
+     */
+    public void setBeamWidth(int beamWidth) {
+        if (beamWidth < 0) {
+            throw new IllegalArgumentException("Beam width cannot be negative: " + beamWidth);
+        }
+        this.beamWidth = beamWidth;
+    }
+
+    /**
+     * Method to set whether move legality is looked up in a bitmap of the moves that might cross a no-fly zone
+     * or central area edge. Moves whose bit is clear are legal without any intersection tests, and the exact
+     * tests are only made for moves near an edge, so the paths found are the same either way.
+     * @param obstacleBitmapEnabled Whether the obstacle bitmap is used. Enabled by default.
+     */
+    public void setObstacleBitmap(boolean obstacleBitmapEnabled) {
+        this.obstacleBitmapEnabled = obstacleBitmapEnabled;
+    }
+
+    /**
+     * Method to set a file the obstacle bitmap is saved to, and loaded from on later runs while the central area
+     * and no-fly zones are unchanged.
+     * @param obstacleBitmapFile Path of the file, or null to compute the bitmap in memory only.
+     */
+    public void setObstacleBitmapFile(Path obstacleBitmapFile) {
+        this.obstacleBitmapFile = obstacleBitmapFile;
+        this.obstacleBitmap = null;
+    }
+
+    /**
+     * Method to set the memo remembering the results of moves tested exactly. Giving the same memo to the
+     * PathFinders planning the same world on several days means the points every search around the depot or a
+     * restaurant expands are only tested once, at the cost of an entry allocated for each move stored.
+     * @param moveValidityMemo The memo to use, or null to always test moves again. Null by default.
+     */
+    public void setMoveValidityMemo(MoveValidityMemo moveValidityMemo) {
+        this.moveValidityMemo = moveValidityMemo;
+    }
+
+    /**
+     * Method to get the obstacle bitmap of the current world, computing or loading it again if the central area
+     * or no-fly zones have been replaced.
+     * @return The obstacle bitmap.
+     * @throws IOException If the world data could not be fetched from the REST server, or the bitmap file could
+     * not be read or written.
+     */
+    private ObstacleBitmap getObstacleBitmap() throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        LngLat[] centralArea = dataFetcher.getCentralArea();
+        NoFlyZone[] noFlyZones = dataFetcher.getNoFlyZones();
+        ObstacleBitmap bitmap = this.obstacleBitmap;
+        if (bitmap == null || this.bitmapCentralArea != centralArea || this.bitmapNoFlyZones != noFlyZones) {
+            synchronized (this) {
+                bitmap = this.obstacleBitmap;
+                if (bitmap == null || this.bitmapCentralArea != centralArea || this.bitmapNoFlyZones != noFlyZones) {
+                    bitmap = this.obstacleBitmapFile == null ? ObstacleBitmap.create(centralArea, noFlyZones)
+                            : ObstacleBitmap.loadOrCreate(this.obstacleBitmapFile, centralArea, noFlyZones);
+                    this.bitmapCentralArea = centralArea;
+                    this.bitmapNoFlyZones = noFlyZones;
+                    this.obstacleBitmap = bitmap;
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Method to get the coarse grid of the current no-fly zones, building it again if they have been replaced.
+     * @return The coarse grid.
+     * @throws IOException If the no-fly zones could not be fetched from the REST server.
+     */
+    private CoarseGrid getCoarseGrid() throws IOException {
+        NoFlyZone[] noFlyZones = DataFetcher.getInstance().getNoFlyZones();
+        CoarseGrid grid = this.coarseGrid;
+        if (grid == null || grid.getNoFlyZones() != noFlyZones) {
+            grid = new CoarseGrid(noFlyZones);
+            this.coarseGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * Method to set the heuristic used to estimate the distance from a node to the target point of a path.
+     * @param heuristic The heuristic to use in searches.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Method to set the precomputed distance fields used to find paths to the depot and restaurants. A path to
+     * a landmark is extracted by descending its distance field one move at a time, without searching, and the
+     * A* search is only used when the descent gets stuck or the target is not a landmark.
+     * @param distanceFields The distance fields to use, or null to always search.
+     */
+    public void setDistanceFields(DistanceFieldStore distanceFields) {
+        this.distanceFields = distanceFields;
+    }
+
+    /**
+     * Method to get the precomputed distance fields used to find paths to the depot and restaurants.
+     * @return The distance fields, or null if they are not used.
+     */
+    public DistanceFieldStore getDistanceFields() {
+        return this.distanceFields;
+    }
+
+    /**
+     * Method to get the total number of nodes expanded by all the searches made by this PathFinder.
+     * @return The total number of nodes expanded.
+     */
+    public long getTotalExpansions() {
+        return this.totalExpansions.sum();
+    }
+
     /**
      * Finds a one-way path from a start point to an end point, using weighted A* search. The method
      * returns a list of Node objects, each of which represents a point on the path (seperated by 1 drone move
      * length / 0.00015 degrees).
      * @param startPoint The start point of the path.
      * @param endPoint  The end point of the path.
-     * @param startTime The time at which the drone started calculating paths.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @return An ArrayList of Node objects representing the path. Null if every point reachable from the start
+     *         has been explored without reaching the end point.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     * @throws SearchAbandonedException If the search holds more live nodes than the limit before finding a path,
+     *                                  so it is not known whether the end point can be reached.
+     */
+    public ArrayList<Node> findPath(LngLat startPoint, LngLat endPoint, TickClock clock) throws IOException {
+        PathSearchEvent searchEvent = new PathSearchEvent();
+        searchEvent.begin();
+        ArrayList<Node> path = null;
+        try {
+            path = this.searchPath(startPoint, endPoint, clock, searchEvent);
+            return path;
+        } finally {
+            searchEvent.startLng = startPoint.lng();
+            searchEvent.startLat = startPoint.lat();
+            searchEvent.targetLng = endPoint.lng();
+            searchEvent.targetLat = endPoint.lat();
+            searchEvent.targetCount = 1;
+            searchEvent.pathFound = path != null;
+            searchEvent.commit();
+        }
+    }
+
+    /**
+     * Finds one-way paths from a start point to each of several end points with a single search, so the points
+     * around the start are only expanded once rather than once per end point. Each end point whose straight line
+     * is clear is traced as in findPath. The others are searched for in turn by one weighted A* search, which
+     * keeps every node it has explored and its open list from one end point to the next: every node generated is
+     * checked against each end point, so an end point already passed is found without expanding any more, and
+     * the search for the next end point continues outwards from the open list, ordered by the distance to that
+     * end point. The explored nodes were reached by a search weighted towards earlier end points, so a path may
+     * be a few moves longer than the path findPath would find.
+     * @param startPoint The start point of the paths.
+     * @param endPoints The end points of the paths.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @return An ArrayList holding, for each end point in order, an ArrayList of Node objects representing the
+     *         path to it, or null if every point reachable from the start has been explored without reaching it.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     * @throws SearchAbandonedException If the search holds more live nodes than the limit before finding a path
+     *                                  to every end point, so it is not known whether the rest can be reached.
+     */
+    public ArrayList<ArrayList<Node>> findPaths(LngLat startPoint, List<LngLat> endPoints, TickClock clock)
+            throws IOException {
+        PathSearchEvent searchEvent = new PathSearchEvent();
+        searchEvent.begin();
+        ArrayList<ArrayList<Node>> paths = new ArrayList<>();
+        try {
+            // Explored nodes, keyed by their exact point on the lattice and the directions they are expanded in,
+            // the open nodes left by each search, and the node reaching each end point in the fewest moves found.
+            HashMap<SearchState, Node> closedList = new HashMap<>();
+            ArrayList<Node> openNodes = new ArrayList<>();
+            openNodes.add(this.createStartNode(startPoint, startPoint, null, clock));
+            Node[] reachedNodes = new Node[endPoints.size()];
+            for (int i = 0; i < endPoints.size(); i++) {
+                ArrayList<Node> path = null;
+                if (this.lineOfSight) {
+                    path = this.traceLineOfSight(startPoint, endPoints.get(i), clock, searchEvent);
+                    searchEvent.lineOfSight |= path != null;
+                }
+                if (path == null) {
+                    Node endNode = this.continueSearch(i, endPoints, reachedNodes, closedList, openNodes, clock,
+                            searchEvent);
+                    if (searchEvent.liveNodeLimitReached) {
+                        throw new SearchAbandonedException("Search from " + startPoint + " to " + endPoints.get(i)
+                                + " abandoned after holding more than " + this.maxLiveNodes + " live nodes.");
+                    }
+                    path = endNode == null ? null : generatePathFromEnd(endNode);
+                }
+                paths.add(path);
+            }
+            return paths;
+        } finally {
+            searchEvent.startLng = startPoint.lng();
+            searchEvent.startLat = startPoint.lat();
+            searchEvent.targetLng = endPoints.isEmpty() ? Double.NaN : endPoints.get(0).lng();
+            searchEvent.targetLat = endPoints.isEmpty() ? Double.NaN : endPoints.get(0).lat();
+            searchEvent.targetCount = endPoints.size();
+            searchEvent.pathFound = !paths.contains(null) && paths.size() == endPoints.size();
+            searchEvent.commit();
+        }
+    }
+
+    /**
+     * Method to continue a search for several targets towards one of them. If no node generated so far reaches
+     * the target, the open nodes are expanded in order of their F cost towards it until one is. Each node is
+     * expanded in every direction before the search returns, and every node generated is checked against each
+     * target, so the nodes explored and left open can be continued from for the next target. Only the nodes
+     * generated are checked, so finding a target passed earlier costs nothing.
+     * @param targetIndex The index of the target the search must reach.
+     * @param targets Every target of the search.
+     * @param reachedNodes For each target, the node generated so far reaching it in the fewest moves, or null if
+     *                     none has, updated by the search.
+     * @param closedList The nodes explored so far, keyed by their search state, updated by the search.
+     * @param openNodes The nodes generated but not yet explored, replaced by the nodes left open by the search.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
+     * @return The node reaching the target, from which the path can be generated. Null if no path is found
+     *         within the live node limit, which the search event records if it is reached.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     */
+    private Node continueSearch(int targetIndex, List<LngLat> targets, Node[] reachedNodes,
+                                HashMap<SearchState, Node> closedList, ArrayList<Node> openNodes, TickClock clock,
+                                PathSearchEvent searchEvent) throws IOException {
+        if (reachedNodes[targetIndex] != null) {
+            return reachedNodes[targetIndex]; // The target was passed while searching for an earlier one.
+        }
+        LngLat target = targets.get(targetIndex);
+        PriorityQueue<OpenNode> openList = new PriorityQueue<>(
+                Comparator.comparingDouble(OpenNode::fCost).thenComparingDouble(OpenNode::hCost));
+        for (Node node : openNodes) {
+            openList.add(this.createOpenNode(node, target));
+        }
+        try {
+            while (openList.size() > 0) {
+                Node curNode = openList.poll().node();
+                SearchState curState = this.getSearchState(curNode);
+                Node exploredNode = closedList.get(curState);
+                if (exploredNode != null && exploredNode.getGCost() <= curNode.getGCost()) {
+                    continue; // The state has already been explored through a path that is at least as short.
+                }
+                closedList.put(curState, curNode);
+                searchEvent.expansions++;
+                this.totalExpansions.increment();
+                clock.advance(); // The node's neighbours are stamped with the same tick.
+                for (CompassDirection direction : curState.directions()) {
+                    LatticePoint neighbourPoint = curNode.getLatticePoint().nextPoint(direction);
+                    Node neighbourNode = new Node(neighbourPoint, curNode, direction, clock.getTicks());
+                    if (!isNodeValid(curNode, neighbourNode)) {
+                        continue;
+                    }
+                    SearchState neighbourState = this.getSearchState(neighbourNode);
+                    Node exploredNeighbour = closedList.get(neighbourState);
+                    if (exploredNeighbour == null || exploredNeighbour.getGCost() > neighbourNode.getGCost()) {
+                        // Kept open even if it reaches the target, as a later target may lie beyond it.
+                        closedList.remove(neighbourState);
+                        openList.add(this.createOpenNode(neighbourNode, target));
+                        for (int i = 0; i < targets.size(); i++) {
+                            reachedNodes[i] = getCloserToStart(reachedNodes[i], neighbourNode, targets.get(i));
+                        }
+                    }
+                }
+                if (reachedNodes[targetIndex] != null) {
+                    return reachedNodes[targetIndex]; // Every neighbour of the node has been generated.
+                }
+                if (openList.size() + closedList.size() > this.maxLiveNodes) {
+                    searchEvent.liveNodeLimitReached = true;
+                    return null; // The target is walled in, or too far to reach within the memory allowed.
+                }
+            }
+            return null; // No valid route found to the target.
+        } finally {
+            openNodes.clear();
+            for (OpenNode openNode : openList) {
+                openNodes.add(openNode.node());
+            }
+        }
+    }
+
+    /**
+     * Method to create the open list entry of a node in a search for several targets, ordered by its F cost
+     * towards the target currently searched for.
+     * @param node The node.
+     * @param target The target currently searched for.
+     * @return The open list entry.
+     */
+    private OpenNode createOpenNode(Node node, LngLat target) {
+        double hCost = this.heuristic.estimate(node.getLngLat(), target);
+        return new OpenNode(node, node.getGCost() + hCost, hCost);
+    }
+
+    /**
+     * Method to choose between the node found so far that reaches a target and another node: the other node
+     * replaces it if the other node is within one move of the target, is not the start node, and took fewer
+     * moves to reach.
+     * @param reachedNode The node found so far reaching the target, or null if none has been found.
+     * @param node The other node.
+     * @param target The target.
+     * @return The node reaching the target in the fewest moves, or null if neither node reaches it.
+     */
+    private static Node getCloserToStart(Node reachedNode, Node node, LngLat target) {
+        if (node.getParent() == null || !node.getLngLat().closeTo(target)) {
+            return reachedNode;
+        }
+        return reachedNode == null || node.getGCost() < reachedNode.getGCost() ? node : reachedNode;
+    }
+
+    /**
+     * Method to find a one-way path from a start point to an end point, counting the nodes expanded in the search
+     * event. The cheaper methods enabled are tried first (the line of sight, the distance field descent and the
+     * coarse to fine search), and the weighted A* search of the whole lattice is used if none finds a path.
+     * @param startPoint The start point of the path.
+     * @param endPoint  The end point of the path.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
      * @return An ArrayList of Node objects representing the path. Null if no path is found.
      * @throws IOException If the central area points or no-fly zone points could not be fetched from
      * the REST server.
+     * @throws SearchAbandonedException If the search of the whole lattice holds more live nodes than the limit.
      */
-    public ArrayList<Node> findPath(LngLat startPoint, LngLat endPoint, long startTime) throws IOException {
-        // Priority queue to store the nodes to be explored, sorted by their F cost.
-        PriorityQueue<Node> openList = new PriorityQueue<>(Comparator.comparingDouble(Node::getFCost));
-        ArrayList<Node> closedList = new ArrayList<>();
-        Node startNode = new Node(startPoint, endPoint, System.nanoTime() - startTime);
+    private ArrayList<Node> searchPath(LngLat startPoint, LngLat endPoint, TickClock clock,
+                                       PathSearchEvent searchEvent) throws IOException {
+        if (this.lineOfSight) {
+            ArrayList<Node> path = this.traceLineOfSight(startPoint, endPoint, clock, searchEvent);
+            if (path != null) {
+                searchEvent.lineOfSight = true;
+                return path;
+            }
+        }
+        if (this.distanceFields != null) {
+            DistanceField distanceField = this.distanceFields.getField(endPoint);
+            if (distanceField != null) {
+                ArrayList<Node> path = this.descendDistanceField(startPoint, endPoint, clock, distanceField,
+                        searchEvent);
+                if (path != null) {
+                    return path;
+                }
+            }
+        }
+        if (this.coarseToFine) {
+            ArrayList<Node> path = this.refineCoarseRoute(startPoint, endPoint, clock, searchEvent);
+            if (path != null) {
+                return path;
+            }
+        }
+        Node endNode = this.searchLattice(this.createStartNode(startPoint, endPoint, null, clock), endPoint,
+                Drone.MOVE_LENGTH, clock, searchEvent, null, Long.MAX_VALUE);
+        return endNode == null ? null : generatePathFromEnd(endNode);
+    }
+
+    /**
+     * Method to find a one-way path by first finding a route on the coarse grid, then searching the move lattice
+     * for each segment of the path between the route's waypoints in turn, confined to a corridor of cells around
+     * the route. Each intermediate waypoint is reached once the path is within half a cell of it, so the segments
+     * join wherever the lattice passes the waypoint. The search is abandoned if a segment takes many more
+     * expansions than its length should need, as the lattice search cannot leave the pocket it is stuck in.
+     * @param startPoint The start point of the path.
+     * @param endPoint  The end point of the path.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
+     * @return An ArrayList of Node objects representing the path. Null if there is no coarse route, or a
+     *         segment is not found within its expansion and live node limits.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     */
+    private ArrayList<Node> refineCoarseRoute(LngLat startPoint, LngLat endPoint, TickClock clock,
+                                              PathSearchEvent searchEvent) throws IOException {
+        CoarseGrid coarseGrid = this.getCoarseGrid();
+        ArrayList<Long> route = coarseGrid.findRoute(startPoint, endPoint);
+        if (route == null) {
+            return null;
+        }
+        HashSet<Long> corridor = coarseGrid.getCorridor(route, CORRIDOR_RADIUS);
+        ArrayList<LngLat> waypoints = coarseGrid.getWaypoints(route);
+        waypoints.set(waypoints.size() - 1, endPoint); // The last segment ends at the end point itself.
+
+        ArrayList<Node> path = new ArrayList<>();
+        Node segmentEnd = null;
+        LngLat segmentStart = startPoint;
+        for (int i = 0; i < waypoints.size(); i++) {
+            LngLat waypoint = waypoints.get(i);
+            double arrivalDistance = i == waypoints.size() - 1 ? Drone.MOVE_LENGTH : coarseGrid.getCellSize() / 2;
+            long maxExpansions = (long) (SEGMENT_EXPANSIONS_PER_MOVE * segmentStart.distanceTo(waypoint)
+                    / Drone.MOVE_LENGTH) + SEGMENT_EXTRA_EXPANSIONS;
+            try {
+                segmentEnd = this.searchLattice(this.createStartNode(segmentStart, waypoint, segmentEnd, clock),
+                        waypoint, arrivalDistance, clock, searchEvent, corridor, maxExpansions);
+            } catch (SearchAbandonedException e) {
+                return null; // The search of the whole lattice decides whether the end point can be reached.
+            }
+            if (segmentEnd == null) {
+                return null;
+            }
+            ArrayList<Node> segment = generatePathFromEnd(segmentEnd);
+            // Each segment after the first starts at the point the previous one ended.
+            path.addAll(path.isEmpty() ? segment : segment.subList(1, segment.size()));
+            segmentStart = segmentEnd.getLngLat();
+        }
+        searchEvent.corridorCells = corridor.size();
+        return path;
+    }
+
+    /**
+     * Method to create the start node of a search, the origin of the lattice searched.
+     * @param startPoint The start point of the search.
+     * @param endPoint The end point of the search.
+     * @param previousNode The node ending the previous segment of the path, whose central area crossing the search
+     *                     continues from, or null if the search starts the path.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @return The start node.
+     */
+    private Node createStartNode(LngLat startPoint, LngLat endPoint, Node previousNode, TickClock clock) {
+        Node startNode = new Node(startPoint, endPoint, this.heuristic, clock.getTicks());
+        if (previousNode != null) {
+            startNode.setIsCaBoundaryCrossed(previousNode.isCaBoundaryCrossed());
+        }
+        return startNode;
+    }
+
+    /**
+     * Method to run the weighted A* search on the drone's move lattice from a start node until a node within an
+     * arrival distance of a target is reached, optionally confined to a corridor of coarse grid cells. The search
+     * is abandoned once it holds more live nodes than the PathFinder's limit, and its open list is trimmed to the
+     * best nodes of the beam whenever it grows to twice the beam width, if one is set.
+     * @param startNode The start node of the search, whose target the heuristic estimates the distance to.
+     * @param target The point the search must reach.
+     * @param arrivalDistance The distance (in degrees) from the target at which it is reached.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
+     * @param corridor The keys of the coarse grid cells the path must stay in, or null to search everywhere.
+     * @param maxExpansions The number of nodes that may be expanded before the search is abandoned.
+     * @return The node reaching the target, from which the path can be generated. Null if no path is found
+     *         within the expansion limit.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     * @throws SearchAbandonedException If the search holds more live nodes than the PathFinder's limit.
+     */
+    private Node searchLattice(Node startNode, LngLat target, double arrivalDistance, TickClock clock,
+                               PathSearchEvent searchEvent, HashSet<Long> corridor, long maxExpansions)
+            throws IOException {
+        CoarseGrid coarseGrid = corridor == null ? null : this.getCoarseGrid();
+
+        // Priority queue to store the nodes to be explored, sorted by their F cost, with ties broken in favour
+        // of the node estimated to be closer to the target.
+        PriorityQueue<Node> openList = new PriorityQueue<>(
+                Comparator.comparingDouble(Node::getFCost).thenComparingDouble(Node::getHCost));
+        // Explored nodes, keyed by their exact point on the lattice of the path's moves and the directions they
+        // are expanded in.
+        HashMap<SearchState, Node> closedList = new HashMap<>();
         openList.add(startNode);
 
-        while (openList.size() > 0) {
+        long expansions = 0;
+        while (openList.size() > 0 && expansions < maxExpansions) {
             Node curNode = openList.poll(); // Exploring the node with the lowest F cost.
-            closedList.add(curNode);
-            for (CompassDirection direction : CompassDirection.values()) {
-                LngLat neighbourLngLat = curNode.getLngLat().nextPosition(direction);
-                Node neighbourNode = new Node(neighbourLngLat, curNode, direction.getAngle(), System.nanoTime() - startTime);
+            SearchState curState = this.getSearchState(curNode);
+            Node exploredNode = closedList.get(curState);
+            if (exploredNode != null && exploredNode.getFCost() <= curNode.getFCost()) {
+                continue; // The state has already been explored through a path that is at least as good.
+            }
+            closedList.put(curState, curNode);
+            expansions++;
+            searchEvent.expansions++;
+            this.totalExpansions.increment();
+            clock.advance(); // The node's neighbours are stamped with the same tick.
+            for (CompassDirection direction : curState.directions()) {
+                LatticePoint neighbourPoint = curNode.getLatticePoint().nextPoint(direction);
+                if (coarseGrid != null && !corridor.contains(coarseGrid.getCellKey(neighbourPoint.getLngLat()))) {
+                    continue; // Skip points outside the corridor.
+                }
+                Node neighbourNode = new Node(neighbourPoint, curNode, direction, clock.getTicks());
                 if (!isNodeValid(curNode, neighbourNode)) { // Skip invalid nodes.
                     continue;
                 }
 
-                // If the next node is to the close to the end (target) point, return the generated path.
-                if (neighbourNode.getLngLat().closeTo(endPoint)) {
-                    return generatePathFromEnd(neighbourNode);
+                // If the next node is close enough to the target point, the search is complete.
+                if (neighbourNode.getLngLat().distanceTo(target) < arrivalDistance) {
+                    return neighbourNode;
                 }
 
                 // If a step takes us to an unexplored point/coordinate, add it to the open list to be explored.
-                if (!closedList.contains(neighbourNode)) {
+                SearchState neighbourState = this.getSearchState(neighbourNode);
+                Node exploredNeighbour = closedList.get(neighbourState);
+                if (exploredNeighbour == null) {
                     openList.add(neighbourNode);
-                } else if (closedList.get(closedList.indexOf(neighbourNode)).getFCost() > neighbourNode.getFCost()) {
+                } else if (exploredNeighbour.getFCost() > neighbourNode.getFCost()) {
                     // If a step that takes us to a point has already been explored, but a better
                     // path (lower f cost) is found, explore the new step with the lower cost.
-                    closedList.remove(neighbourNode);
+                    closedList.remove(neighbourState);
                     openList.add(neighbourNode);
                 }
             }
+            if (openList.size() + closedList.size() > this.maxLiveNodes) {
+                searchEvent.liveNodeLimitReached = true;
+                // The target is walled in, or too far to reach within the memory allowed.
+                throw new SearchAbandonedException("Search from " + startNode.getLngLat() + " to " + target
+                        + " abandoned after holding more than " + this.maxLiveNodes + " live nodes.");
+            }
+            if (this.beamWidth > 0 && openList.size() >= 2 * this.beamWidth) {
+                // Keep only the best nodes of the beam.
+                PriorityQueue<Node> beam = new PriorityQueue<>(openList.comparator());
+                for (int i = 0; i < this.beamWidth; i++) {
+                    beam.add(openList.poll());
+                }
+                openList = beam;
+            }
+        }
+        return null; // No valid route found between the start and target points.
+    }
+
+    /**
+     * Method to trace a one-way path along the straight line to the target, using only the two compass directions
+     * bracketing the bearing from the start point to the target (one, if the bearing is a compass direction).
+     * Each move is made in whichever of the two directions ends closer to the target, so the path zigzags along
+     * the line. The path is only kept if it reaches the target within the fewest moves any path could, as the
+     * zigzag can take a move or two more than a search to end close to the target, which over a day's legs costs
+     * deliveries. Each move counts as one expanded node.
+     * @param startPoint The start point of the path.
+     * @param endPoint The end point of the path.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
+     * @return An ArrayList of Node objects representing the path. Null if a move crosses a no-fly zone or
+     *         breaks the central area rule, or the path does not reach the target in the fewest possible moves.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     */
+    private ArrayList<Node> traceLineOfSight(LngLat startPoint, LngLat endPoint, TickClock clock,
+                                             PathSearchEvent searchEvent) throws IOException {
+        double bearing = Math.toDegrees(Math.atan2(endPoint.lat() - startPoint.lat(),
+                endPoint.lng() - startPoint.lng()));
+        int sector = (int) Math.floor((bearing < 0 ? bearing + 360 : bearing) / 22.5) % SECTOR_DIRECTIONS.length;
+        CompassDirection[] bracket = {SECTOR_DIRECTIONS[sector],
+                SECTOR_DIRECTIONS[(sector + 1) % SECTOR_DIRECTIONS.length]};
+
+        Node curNode = new Node(startPoint, endPoint, this.heuristic, clock.getTicks());
+        // A path of k moves ends at most k move lengths from the start, and must end less than one move length
+        // from the target, so no path takes fewer than this many moves.
+        int maxMoves = Math.max(1, (int) Math.floor(startPoint.distanceTo(endPoint) / Drone.MOVE_LENGTH));
+        for (int moves = 0; moves < maxMoves; moves++) {
+            searchEvent.expansions++;
+            this.totalExpansions.increment();
+            clock.advance();
+            CompassDirection bestDirection = null;
+            LatticePoint bestPoint = null;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (CompassDirection direction : bracket) {
+                LatticePoint neighbourPoint = curNode.getLatticePoint().nextPoint(direction);
+                double neighbourDistance = neighbourPoint.getLngLat().distanceTo(endPoint);
+                if (neighbourDistance < bestDistance) {
+                    bestDirection = direction;
+                    bestPoint = neighbourPoint;
+                    bestDistance = neighbourDistance;
+                }
+            }
+            Node neighbourNode = new Node(bestPoint, curNode, bestDirection, clock.getTicks());
+            if (!isNodeValid(curNode, neighbourNode)) {
+                return null; // The line is blocked, so the path must be searched for.
+            }
+            if (neighbourNode.getLngLat().closeTo(endPoint)) {
+                return generatePathFromEnd(neighbourNode);
+            }
+            curNode = neighbourNode;
+        }
+        return null;
+    }
+
+    /**
+     * Method to extract a one-way path to a landmark by greedy descent of its distance field: from each point,
+     * the valid move that most reduces the remaining distance is taken, until the path reaches close to the
+     * target. Each step counts as one expanded node.
+     * @param startPoint The start point of the path.
+     * @param endPoint The end point of the path, which is the landmark of the distance field.
+     * @param clock The clock stamping each node with the ticks since the drone started calculating paths.
+     * @param distanceField The distance field to the end point.
+     * @param searchEvent The flight recorder event in which the number of expanded nodes is counted.
+     * @return An ArrayList of Node objects representing the path. Null if the descent gets stuck where no move
+     *         reduces the distance, or takes too many moves.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from
+     * the REST server.
+     */
+    private ArrayList<Node> descendDistanceField(LngLat startPoint, LngLat endPoint, TickClock clock,
+                                                 DistanceField distanceField, PathSearchEvent searchEvent)
+            throws IOException {
+        Node curNode = new Node(startPoint, endPoint, this.heuristic, clock.getTicks());
+        double curDistance = getDescentDistance(startPoint, endPoint, distanceField);
+        if (Double.isInfinite(curDistance)) {
+            return null; // The start point is outside the field's grid, or cannot reach the landmark.
+        }
+        int maxMoves = (int) Math.ceil(curDistance * DESCENT_MOVE_ALLOWANCE) + DESCENT_EXTRA_MOVES;
+        for (int moves = 0; moves < maxMoves; moves++) {
+            searchEvent.expansions++;
+            this.totalExpansions.increment();
+            clock.advance();
+            Node bestNode = null;
+            double bestDistance = curDistance;
+            for (CompassDirection direction : ALL_DIRECTIONS) {
+                LatticePoint neighbourPoint = curNode.getLatticePoint().nextPoint(direction);
+                Node neighbourNode = new Node(neighbourPoint, curNode, direction, clock.getTicks());
+                if (!isNodeValid(curNode, neighbourNode)) {
+                    continue;
+                }
+                if (neighbourNode.getLngLat().closeTo(endPoint)) {
+                    return generatePathFromEnd(neighbourNode);
+                }
+                double neighbourDistance = getDescentDistance(neighbourNode.getLngLat(), endPoint, distanceField);
+                if (neighbourDistance < bestDistance) {
+                    bestNode = neighbourNode;
+                    bestDistance = neighbourDistance;
+                }
+            }
+            if (bestNode == null) {
+                return null; // No valid move reduces the distance to the landmark.
+            }
+            curNode = bestNode;
+            curDistance = bestDistance;
+        }
+        return null;
+    }
+
+    /**
+     * Method to get the distance (in moves) from a point to a landmark followed in a descent of its distance
+     * field. The field's distance is used away from the landmark, and the straight-line distance close to it,
+     * where the field's cells are too coarse to steer the final moves.
+     * @param point The point.
+     * @param endPoint The landmark of the distance field.
+     * @param distanceField The distance field to the landmark.
+     * @return The distance from the point to the landmark.
+     */
+    private static double getDescentDistance(LngLat point, LngLat endPoint, DistanceField distanceField) {
+        double fieldDistance = distanceField.getInterpolatedMovesToSource(point);
+        return Math.max(fieldDistance, point.distanceTo(endPoint) / Drone.MOVE_LENGTH);
+    }
+
+    /**
+     * Method to get the directions in which a node is expanded. All directions are expanded unless neighbour
+     * pruning is enabled and the node is away from every no-fly zone and central area edge.
+     * @param node The node being expanded.
+     * @return The directions in which the node is expanded.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from the REST server.
+     */
+    private CompassDirection[] getDirectionsToExpand(Node node) throws IOException {
+        CompassDirection directionFromParent = node.getDirectionFromParent();
+        if (!this.neighbourPruning || directionFromParent == null || this.isNearBoundary(node.getLngLat())) {
+            return ALL_DIRECTIONS;
         }
-        return null; // No valid route found between the start and end points.
+        return NATURAL_DIRECTIONS[directionFromParent.ordinal()];
+    }
+
+    /**
+     * Method to get the state of a node in a search, under which it is stored in the closed list.
+     * @param node The node.
+     * @return The node's point on the lattice and the directions it is expanded in.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from the REST server.
+     */
+    private SearchState getSearchState(Node node) throws IOException {
+        return new SearchState(node.getLatticePoint(), this.getDirectionsToExpand(node));
+    }
+
+    /**
+     * Method to check if a point is within PRUNING_BOUNDARY_DISTANCE of a no-fly zone edge or central area edge,
+     * looked up in the near boundary grid of the current world, which is classified again if the central area or
+     * no-fly zones have been replaced.
+     * @param lngLat The point to check.
+     * @return True if the point is near a boundary, false otherwise.
+     * @throws IOException If the central area points or no-fly zone points could not be fetched from the REST server.
+     */
+    private boolean isNearBoundary(LngLat lngLat) throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        LngLat[] centralArea = dataFetcher.getCentralArea();
+        NoFlyZone[] noFlyZones = dataFetcher.getNoFlyZones();
+        NearBoundaryGrid grid = this.nearBoundaryGrid;
+        if (grid == null || grid.getCentralArea() != centralArea || grid.getNoFlyZones() != noFlyZones) {
+            grid = new NearBoundaryGrid(centralArea, noFlyZones, PRUNING_BOUNDARY_DISTANCE);
+            this.nearBoundaryGrid = grid;
+        }
+        return grid.isNearBoundary(lngLat);
     }
 
     /**
      * Method to check if a neighbour node of a node is valid in the path finding algorithm. A neighbour node is
      * invalid if the straight line between the parent node and the neighbour node cross the central area boundary
      * after it has already been crossed once (in a one-way path), or if the straight line between the parent node
-     * and the neighbour node crosses a no-fly zone boundary.
+     * and the neighbour node crosses a no-fly zone boundary. Crossing the central area boundary is only tested
+     * for moves starting near it. When the obstacle bitmap is used, a move it shows cannot reach any edge is valid
+     * without further tests, and the exact tests of other moves are remembered in the move validity memo, if one
+     * is used.
      * @param parentNode The parent node of the neighbour node.
      * @param neighbourNode The neighbour node to be checked.
      * @return True if the neighbour node is valid, false otherwise.
      * @throws IOException If the central area points or no-fly zone points could not be fetched from the REST server.
      */
     private boolean isNodeValid(Node parentNode, Node neighbourNode) throws IOException {
-        boolean moveCrossesNfz = pathCrossesNoFlyZone(parentNode.getLngLat(), neighbourNode.getLngLat());
-        boolean moveCrossesCaBoundary = pathCrossesCentralAreaBoundary(parentNode.getLngLat(), neighbourNode.getLngLat());
+        if (this.obstacleBitmapEnabled && !this.getObstacleBitmap().mightCrossObstacle(parentNode.getLngLat(),
+                neighbourNode.getDirectionFromParent())) {
+            return true; // The move is away from every edge, so it is legal and stays on the same side of the CA.
+        }
+        CentralArea centralArea = DataFetcher.getInstance().getCentralAreaPolygon();
+        int crossings = this.getMoveCrossings(parentNode.getLngLat(), neighbourNode.getLngLat(), centralArea);
+        boolean moveCrossesNfz = (crossings & MoveValidityMemo.CROSSES_NO_FLY_ZONE) != 0;
+        boolean moveCrossesCaBoundary = (crossings & MoveValidityMemo.CROSSES_CENTRAL_AREA) != 0;
 
         if (moveCrossesNfz) { // A move/step is invalid if it crosses a no-fly zone boundary.
             return false;
@@ -107,46 +952,42 @@ public class PathFinder {
     }
 
     /**
-     * Checks if a straight line path between two points crosses a no-fly zone boundary.
-     * @param curLngLat       start of the path.
-     * @param neighbourLngLat end of the path.
-     * @return True if the path crosses a no-fly zone boundary, false otherwise.
+     * Method to test whether a move crosses a no-fly zone edge and whether it crosses the central area boundary,
+     * looking the results up in the move validity memo first and storing them there when they are computed.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @param centralArea The central area.
+     * @return The results: MoveValidityMemo.CROSSES_NO_FLY_ZONE and MoveValidityMemo.CROSSES_CENTRAL_AREA, if set.
      * @throws IOException If the no-fly zones cannot be fetched from the REST server.
      */
-    private boolean pathCrossesNoFlyZone(LngLat curLngLat, LngLat neighbourLngLat) throws IOException {
-        NoFlyZone[] noFlyZones = DataFetcher.getInstance().getNoFlyZones();
-        for (NoFlyZone noFlyZone : noFlyZones) {
-            LngLat[] nfz = noFlyZone.getCoordinatesLngLat();
-            for (int i = 0; i < nfz.length - 1; i++) {
-                Line2D nfzEdge = new Line2D.Double(nfz[i].lng(), nfz[i].lat(), nfz[i + 1].lng(), nfz[i + 1].lat());
-                if (nfzEdge.intersectsLine(curLngLat.lng(), curLngLat.lat(),
-                                    neighbourLngLat.lng(), neighbourLngLat.lat())) {
-                    return true;
-                }
+    private int getMoveCrossings(LngLat from, LngLat to, CentralArea centralArea) throws IOException {
+        EdgeSet edges = this.getEdgeSet();
+        MoveValidityMemo memo = this.moveValidityMemo;
+        int crossings = memo == null ? MoveValidityMemo.MISSING
+                : memo.get(from, to, edges.getNoFlyZones(), centralArea);
+        if (crossings == MoveValidityMemo.MISSING) {
+            crossings = (edges.crossesAny(from, to) ? MoveValidityMemo.CROSSES_NO_FLY_ZONE : 0)
+                    | (centralArea.moveCrossesBoundary(from, to) ? MoveValidityMemo.CROSSES_CENTRAL_AREA : 0);
+            if (memo != null) {
+                memo.put(from, to, edges.getNoFlyZones(), centralArea, crossings);
             }
         }
-        return false;
+        return crossings;
     }
 
     /**
-     * Method to check if a straight line path between two points the central area boundary.
-     * @param curLngLat       start of the path.
-     * @param neighbourLngLat end of the path.
-     * @return True if the path crosses the central area boundary, false otherwise.
-     * @throws IOException If the central area cannot be fetched from the REST server.
+     * Method to get the edges of the current no-fly zones, collecting them again if the zones have been replaced.
+     * @return The edges of the no-fly zones.
+     * @throws IOException If the no-fly zones could not be fetched from the REST server.
      */
-    private boolean pathCrossesCentralAreaBoundary(LngLat curLngLat, LngLat neighbourLngLat) throws IOException {
-        LngLat[] centralAreaVertices = DataFetcher.getInstance().getCentralArea();
-        for (int i = 0; i < centralAreaVertices.length - 1; i++) {
-            LngLat caVertex1 = centralAreaVertices[i];
-            LngLat caVertex2 = centralAreaVertices[i + 1];
-            Line2D caEdge = new Line2D.Double(caVertex1.lng(), caVertex1.lat(), caVertex2.lng(), caVertex2.lat());
-            if (caEdge.intersectsLine(curLngLat.lng(), curLngLat.lat(),
-                                neighbourLngLat.lng(), neighbourLngLat.lat())) {
-                return true;
-            }
+    private EdgeSet getEdgeSet() throws IOException {
+        NoFlyZone[] noFlyZones = DataFetcher.getInstance().getNoFlyZones();
+        EdgeSet edges = this.noFlyZoneEdges;
+        if (edges == null || edges.getNoFlyZones() != noFlyZones) {
+            edges = new EdgeSet(noFlyZones);
+            this.noFlyZoneEdges = edges;
         }
-        return false;
+        return edges;
     }
 
 }
@@ -0,0 +1,56 @@
+package uk.ac.ed.inf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event recorded around each one-way path search made by a PathFinder.
+ */
+@Name("uk.ac.ed.inf.PathSearch")
+@Label("Path Search")
+@Category({"PizzaDronz", "Planning"})
+@Description("Search for a one-way path between two points.")
+public class PathSearchEvent extends jdk.jfr.Event {
+
+    // Fields to store the coordinates of the start point of the path.
+    @Label("Start Longitude")
+    public double startLng;
+
+    @Label("Start Latitude")
+    public double startLat;
+
+    // Fields to store the coordinates of the target point of the path, or of the first target if there are several.
+    @Label("Target Longitude")
+    public double targetLng;
+
+    @Label("Target Latitude")
+    public double targetLat;
+
+    // Field to store the number of end points the search was for: 1, unless several paths were found at once.
+    @Label("Target Count")
+    public int targetCount;
+
+    // Field to store the number of nodes expanded (taken off the open list) during the search.
+    @Label("Expanded Nodes")
+    public long expansions;
+
+    // Field to store whether the path was found by following the straight line to the target, without a search.
+    @Label("Line of Sight")
+    public boolean lineOfSight;
+
+    // Field to store the number of coarse grid cells in the corridor the path was found in, or 0 if the path was
+    // not found by a coarse to fine search.
+    @Label("Corridor Cells")
+    public int corridorCells;
+
+    // Field to store whether the search was abandoned because it held more nodes than the PathFinder allows.
+    @Label("Live Node Limit Reached")
+    public boolean liveNodeLimitReached;
+
+    // Field to store whether a path was found between the start and target points.
+    @Label("Path Found")
+    public boolean pathFound;
+
+}
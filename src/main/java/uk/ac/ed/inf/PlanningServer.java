@@ -0,0 +1,304 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class to run the drone's planning as a long-running local HTTP service. The world (central area, restaurants
+ * and no-fly zones) is fetched once when the server starts. Every request searches with the same PathFinder, so
+ * the obstacle lookups it builds and the moves it has tested exactly are kept, and the routes planned for one
+ * request are kept in a shared leg cache for later requests, so requests after the first few are answered from
+ * warm state.
+ * <p>
+ * The service answers GET /plan?date=YYYY-MM-DD with the orders for a date fetched from the REST server, and
+ * POST /plan with a JSON array of orders (in the REST server's format) in the request body. Both return a JSON
+ * object with the deliveries, flight path and GeoJSON of the drone's day and the numbers of any orders not
+ * delivered because a route search was abandoned, and also the compressed flight path and simplified GeoJSON if
+ * the query string has compressed=true.
+ */
+public class PlanningServer {
+
+    // ObjectMapper object to read orders from and write responses to JSON.
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // HTTP server serving the planning endpoint.
+    private final HttpServer httpServer;
+
+    // Executor running each request on its own (virtual, where available) thread.
+    private final ExecutorService executor;
+
+    // LegCache shared by every request, so routes planned for one request are reused by later ones, and
+    // concurrent requests wait on the same search for a route instead of repeating it.
+    private final LegCache legCache;
+
+    // Work-stealing pool running the route searches of every request in parallel.
+    private final ForkJoinPool planningPool;
+
+    // Field to store whether the path finder prunes symmetric moves.
+    private final boolean neighbourPruning;
+
+    // PathFinder shared by every request, so the obstacle lookups it builds for the world are kept warm, and the
+    // no-fly zones it was created for. Replaced when the DataFetcher's no-fly zones change.
+    private PathFinder pathFinder;
+    private NoFlyZone[] pathFinderNoFlyZones;
+
+    // MoveValidityMemo shared by every PathFinder the server creates, so the moves around the depot and each
+    // restaurant, which every search to or from them tests again, are only tested exactly once for a world.
+    private final MoveValidityMemo moveValidityMemo;
+
+    /**
+     * Class constructor to initialise a new planning server on the loopback interface. The world data is
+     * fetched from the REST server set in the DataFetcher before the server is created.
+     * @param port Port to listen on, or 0 to use any free port.
+     * @param neighbourPruning Whether the path finder prunes symmetric moves.
+     * @throws IOException If the world data cannot be fetched, or the server cannot be bound to the port.
+     */
+    public PlanningServer(int port, boolean neighbourPruning) throws IOException {
+        this.neighbourPruning = neighbourPruning;
+        this.legCache = new LegCache();
+        this.planningPool = new ForkJoinPool();
+        this.moveValidityMemo = new MoveValidityMemo(MoveValidityMemo.DEFAULT_CAPACITY);
+        warmUpWorld();
+        this.getPathFinder();
+
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = createRequestExecutor();
+        this.httpServer.setExecutor(this.executor);
+    }
+
+    /**
+     * Method to start serving requests.
+     */
+    public void start() {
+        this.httpServer.createContext("/plan", this::handlePlan);
+        this.httpServer.start();
+    }
+
+    /**
+     * Method to stop serving requests and release the port.
+     */
+    public void stop() {
+        this.httpServer.stop(0);
+        this.executor.shutdown();
+        this.planningPool.shutdown();
+    }
+
+    /**
+     * Method to get the memo of exactly tested moves shared by the server's searches.
+     * @return The shared MoveValidityMemo.
+     */
+    public MoveValidityMemo getMoveValidityMemo() {
+        return this.moveValidityMemo;
+    }
+
+    /**
+     * Method to get the url of the planning endpoint.
+     * @return The url of the planning endpoint.
+     */
+    public String getPlanUrl() {
+        return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + this.httpServer.getAddress().getPort() + "/plan";
+    }
+
+    /**
+     * Method to plan the drone's day for a batch of orders, using the shared leg cache and planning pool.
+     * @param orders Array of Order objects to deliver. The objects are updated with their outcomes.
+     * @param compressedOutput Whether the compressed flight path and simplified GeoJSON are also included.
+     * @return ObjectNode containing the deliveries, flight path and GeoJSON of the drone's day, and the numbers
+     *         of the orders not delivered because a route search was abandoned.
+     * @throws IOException If the world data cannot be fetched from the REST server.
+     */
+    public ObjectNode plan(Order[] orders, boolean compressedOutput) throws IOException {
+        Drone drone = new Drone(this.getPathFinder(), this.legCache, this.planningPool);
+        drone.deliverOrders(orders);
+
+        ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        response.set("deliveries", JsonMaker.getDeliveriesJson(orders));
+        response.set("flightpath", JsonMaker.getFlightPathJson(drone.getAllDroneMoves()));
+        response.set("geojson", JsonMaker.getDroneGeoJson(drone.getAllDroneMoves()));
+        ArrayNode abandonedOrders = response.putArray("abandonedOrders");
+        for (Order order : drone.getAbandonedOrders()) {
+            abandonedOrders.add(order.getOrderNo());
+        }
+        if (compressedOutput) {
+            CompressedFlightPath flightPath = drone.getCompressedFlightPath();
+            response.set("compressedFlightpath", JsonMaker.getCompressedFlightPathJson(flightPath));
+            response.set("simplifiedGeojson", JsonMaker.getSimplifiedDroneGeoJson(flightPath));
+        }
+        return response;
+    }
+
+    /**
+     * Method to get the PathFinder shared by every request. A new one is created, and the cached legs near the
+     * zones that changed are invalidated, if the DataFetcher's no-fly zones have been replaced since the last
+     * request, so the obstacle lookups are only built again when the world changes.
+     * @return The shared PathFinder.
+     * @throws IOException If the no-fly zones cannot be fetched from the REST server.
+     */
+    private synchronized PathFinder getPathFinder() throws IOException {
+        NoFlyZone[] noFlyZones = DataFetcher.getInstance().getNoFlyZones();
+        if (noFlyZones != this.pathFinderNoFlyZones) {
+            if (this.pathFinderNoFlyZones != null) {
+                // Zones that were added, changed or removed are in one of the arrays but not the other.
+                List<NoFlyZone> oldZones = Arrays.asList(this.pathFinderNoFlyZones);
+                List<NoFlyZone> newZones = Arrays.asList(noFlyZones);
+                LinkedHashSet<NoFlyZone> changedZones = new LinkedHashSet<>(oldZones);
+                changedZones.addAll(newZones);
+                changedZones.removeIf(zone -> oldZones.contains(zone) && newZones.contains(zone));
+                this.legCache.invalidate(changedZones);
+            }
+            this.pathFinder = new PathFinder();
+            this.pathFinder.setNeighbourPruning(this.neighbourPruning);
+            this.pathFinder.setMoveValidityMemo(this.moveValidityMemo);
+            this.pathFinderNoFlyZones = noFlyZones;
+        }
+        return this.pathFinder;
+    }
+
+    /**
+     * Method to handle a request to the plan endpoint.
+     * @param exchange The HTTP request and response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handlePlan(HttpExchange exchange) throws IOException {
+        try {
+            Order[] orders;
+            if (exchange.getRequestMethod().equals("POST")) {
+                try (InputStream requestBody = exchange.getRequestBody()) {
+                    orders = OBJECT_MAPPER.readValue(requestBody, Order[].class);
+                }
+                if (orders == null) {
+                    sendResponse(exchange, 400, "Request body must be a JSON array of orders.");
+                    return;
+                }
+            } else if (exchange.getRequestMethod().equals("GET")) {
+                String date = getQueryParameter(exchange, "date");
+                if (date == null) {
+                    sendResponse(exchange, 400, "Missing date parameter.");
+                    return;
+                }
+                orders = DataFetcher.getInstance().fetchOrders(LocalDate.parse(date));
+            } else {
+                sendResponse(exchange, 405, "Use GET with a date, or POST with orders.");
+                return;
+            }
+            boolean compressedOutput = "true".equals(getQueryParameter(exchange, "compressed"));
+            byte[] body = OBJECT_MAPPER.writeValueAsBytes(this.plan(orders, compressedOutput));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        } catch (JsonProcessingException | DateTimeParseException | IllegalArgumentException e) {
+            sendResponse(exchange, 400, "Invalid request: " + e.getMessage());
+        } catch (Exception e) {
+            sendResponse(exchange, 500, "Could not plan deliveries: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method to get the value of a parameter in the query string of a request.
+     * @param exchange The HTTP request and response.
+     * @param name The name of the parameter.
+     * @return The decoded value of the parameter, or null if it is not in the query string.
+     */
+    private static String getQueryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            String[] nameValue = parameter.split("=", 2);
+            if (nameValue.length == 2 && nameValue[0].equals(name)) {
+                return URLDecoder.decode(nameValue[1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to send a plain text response.
+     * @param exchange The HTTP request and response.
+     * @param status The HTTP status code of the response.
+     * @param message The text of the response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void sendResponse(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Method to fetch the world data and build the lazily created lookups of the restaurants and no-fly
+     * zones, before any request threads start reading them.
+     * @throws IOException If the world data cannot be fetched from the REST server.
+     */
+    private static void warmUpWorld() throws IOException {
+        DataFetcher dataFetcher = DataFetcher.getInstance();
+        dataFetcher.getCentralAreaPolygon();
+        for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+            restaurant.getMenuItemPrices();
+            restaurant.getLngLat();
+        }
+        for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+            noFlyZone.getCoordinatesLngLat();
+        }
+    }
+
+    /**
+     * Method to create the executor that runs requests. Each request runs on a new virtual thread when the
+     * Java runtime supports them (Java 21 onwards), and on a pooled platform thread otherwise.
+     * @return The executor that runs requests.
+     */
+    private static ExecutorService createRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Main method to start the planning server and keep serving requests until the process is stopped.
+     * @param args the REST server's base url, and optionally the port to listen on and "pruned" to prune
+     *             symmetric moves in path searches.
+     */
+    public static void main(String[] args) {
+        try {
+            DataFetcher.getInstance().setBaseUrl(args[0]);
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            boolean neighbourPruning = args.length > 2 && args[2].equals("pruned");
+
+            PlanningServer server = new PlanningServer(port, neighbourPruning);
+            server.start();
+            System.out.println("Planning server listening at " + server.getPlanUrl());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package uk.ac.ed.inf;
+
+/**
+ * Class to represent the abandonment of a path search that held more live nodes than its PathFinder allows, so
+ * it is not known whether the target can be reached. A search that explores every point it can reach without
+ * finding the target returns null instead.
+ */
+public class SearchAbandonedException extends IllegalStateException {
+
+    // Version of the serialised form of the exception.
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Class constructor to initialise a new SearchAbandonedException.
+     * @param message The message describing the abandoned search.
+     */
+    public SearchAbandonedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,48 @@
+package uk.ac.ed.inf;
+
+/**
+ * Interface for the clock that stamps every Node and DroneMove with the ticks since the drone started
+ * calculating its routes. The path search advances the clock once per expanded node, before creating the node's
+ * neighbours, so a clock can read the time once for the whole batch of neighbours instead of once per neighbour.
+ */
+public interface TickClock {
+
+    /**
+     * Names of the kinds of clock that can be created.
+     */
+    String[] NAMES = {"real", "cached", "logical"};
+
+    /**
+     * Method to get the ticks since the clock was created.
+     * @return The ticks since the clock was created.
+     */
+    long getTicks();
+
+    /**
+     * Method to advance the clock at the start of a batch of work, such as the expansion of one node. Clocks
+     * reading the real time on every call need not do anything.
+     */
+    void advance();
+
+    /**
+     * Method to create a new clock of a given kind, started now.
+     * @param name The kind of clock: "real" for the nanoseconds elapsed, read on every call, "cached" for the
+     *             nanoseconds elapsed, read once per batch of work, or "logical" for the number of batches of
+     *             work done, which is the same on every run of the same plan.
+     * @return The new clock.
+     * @throws IllegalArgumentException If the kind of clock is unknown.
+     */
+    static TickClock create(String name) {
+        switch (name) {
+            case "real":
+                return new NanoTickClock();
+            case "cached":
+                return new CachedTickClock();
+            case "logical":
+                return new LogicalTickClock();
+            default:
+                throw new IllegalArgumentException("Unknown tick clock: " + name);
+        }
+    }
+
+}
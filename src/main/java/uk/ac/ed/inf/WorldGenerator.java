@@ -0,0 +1,449 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class to generate synthetic, scaled worlds (central area, restaurants, no-fly zones and orders) in the
+ * same JSON format as the REST server, so the drone can be load-tested without the live server. A world
+ * is fully determined by its seed and settings, and the orders for a date are determined by the seed and
+ * the date.
+ */
+public class WorldGenerator {
+
+    /**
+     * Outcomes that invalid orders are generated for, in the order they are cycled through.
+     */
+    private static final OrderOutcome[] INVALID_OUTCOMES = {
+            OrderOutcome.InvalidCardNumber,
+            OrderOutcome.InvalidExpiryDate,
+            OrderOutcome.InvalidCvv,
+            OrderOutcome.InvalidTotal,
+            OrderOutcome.InvalidPizzaNotDefined,
+            OrderOutcome.InvalidPizzaCount,
+            OrderOutcome.InvalidPizzaCountMultipleSuppliers
+    };
+
+    // Vertices of the central area served by the REST server.
+    private static final LngLat[] CENTRAL_AREA_VERTICES = {
+            new LngLat(-3.192473, 55.946233),
+            new LngLat(-3.192473, 55.942617),
+            new LngLat(-3.184319, 55.942617),
+            new LngLat(-3.184319, 55.946233)
+    };
+
+    // Names of the central area vertices served by the REST server.
+    private static final String[] CENTRAL_AREA_NAMES = {
+            "Forrest Hill", "KFC", "Buccleuch St bus stop", "Top of the Meadows"
+    };
+
+    // ObjectMapper object to create JSON nodes.
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // Distance (in degrees) kept clear between no-fly zones and the depot, restaurants and other zones.
+    private static final double CLEARANCE = 4 * Drone.MOVE_LENGTH;
+
+    // Seed from which the world and its orders are generated.
+    private final long seed;
+
+    // Number of participating restaurants in the world.
+    private int restaurantCount = 4;
+
+    // Number of no-fly zone polygons in the world.
+    private int noFlyZoneCount = 4;
+
+    // Number of vertices in each no-fly zone polygon.
+    private int noFlyZoneVertexCount = 6;
+
+    // Number of orders generated for each day.
+    private int ordersPerDay = 50;
+
+    // Fraction of the orders for each day that are invalid.
+    private double invalidOrderFraction = 0.2;
+
+    // Generated world data, created on first access.
+    private ArrayNode centralArea;
+    private ArrayNode restaurants;
+    private ArrayNode noFlyZones;
+
+    // Generated menus of the restaurants, indexed by restaurant, used to create orders.
+    private ArrayList<MenuItem[]> menus;
+
+    /**
+     * Class constructor to initialise a new world generator.
+     * @param seed Seed from which the world and its orders are generated.
+     */
+    public WorldGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to set the number of participating restaurants in the world.
+     * @param restaurantCount Number of restaurants (at least 1).
+     */
+    public void setRestaurantCount(int restaurantCount) {
+        if (restaurantCount < 1) {
+            throw new IllegalArgumentException("A world needs at least one restaurant.");
+        }
+        this.restaurantCount = restaurantCount;
+        this.resetWorld();
+    }
+
+    /**
+     * Method to set the number of no-fly zone polygons in the world.
+     * @param noFlyZoneCount Number of no-fly zones.
+     */
+    public void setNoFlyZoneCount(int noFlyZoneCount) {
+        if (noFlyZoneCount < 0) {
+            throw new IllegalArgumentException("Number of no-fly zones cannot be negative.");
+        }
+        this.noFlyZoneCount = noFlyZoneCount;
+        this.resetWorld();
+    }
+
+    /**
+     * Method to set the complexity of the no-fly zones, as the number of vertices in each polygon.
+     * @param noFlyZoneVertexCount Number of vertices in each no-fly zone polygon (at least 3).
+     */
+    public void setNoFlyZoneVertexCount(int noFlyZoneVertexCount) {
+        if (noFlyZoneVertexCount < 3) {
+            throw new IllegalArgumentException("A no-fly zone polygon needs at least 3 vertices.");
+        }
+        this.noFlyZoneVertexCount = noFlyZoneVertexCount;
+        this.resetWorld();
+    }
+
+    /**
+     * Method to set the number of orders generated for each day.
+     * @param ordersPerDay Number of orders for each day.
+     */
+    public void setOrdersPerDay(int ordersPerDay) {
+        if (ordersPerDay < 0) {
+            throw new IllegalArgumentException("Number of orders cannot be negative.");
+        }
+        this.ordersPerDay = ordersPerDay;
+    }
+
+    /**
+     * Method to set the fraction of the orders for each day that are invalid. Invalid orders cycle
+     * through every invalid OrderOutcome the order validation can produce.
+     * @param invalidOrderFraction Fraction (between 0 and 1) of orders that are invalid.
+     */
+    public void setInvalidOrderFraction(double invalidOrderFraction) {
+        if (invalidOrderFraction < 0 || invalidOrderFraction > 1) {
+            throw new IllegalArgumentException("Fraction of invalid orders must be between 0 and 1.");
+        }
+        this.invalidOrderFraction = invalidOrderFraction;
+    }
+
+    /**
+     * Method to get the vertices of the central area, in the format of the REST server's centralarea endpoint.
+     * @return ArrayNode containing the named vertices of the central area.
+     */
+    public synchronized ArrayNode getCentralAreaJson() {
+        this.generateWorld();
+        return this.centralArea;
+    }
+
+    /**
+     * Method to get the restaurants of the world, in the format of the REST server's restaurants endpoint.
+     * @return ArrayNode containing the restaurants and their menus.
+     */
+    public synchronized ArrayNode getRestaurantsJson() {
+        this.generateWorld();
+        return this.restaurants;
+    }
+
+    /**
+     * Method to get the no-fly zones of the world, in the format of the REST server's noflyzones endpoint.
+     * @return ArrayNode containing the named, closed no-fly zone polygons.
+     */
+    public synchronized ArrayNode getNoFlyZonesJson() {
+        this.generateWorld();
+        return this.noFlyZones;
+    }
+
+    /**
+     * Method to generate the orders for a given date, in the format of the REST server's orders endpoint.
+     * The same seed, settings and date always generate the same orders.
+     * @param date The date the orders are placed on.
+     * @return ArrayNode containing the orders for the date.
+     */
+    public synchronized ArrayNode getOrdersJson(LocalDate date) {
+        this.generateWorld();
+        Random random = new Random(this.seed * 31 + date.toEpochDay());
+        int invalidCount = (int) Math.round(this.ordersPerDay * this.invalidOrderFraction);
+        ArrayNode orders = OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < this.ordersPerDay; i++) {
+            // Spread the invalid orders evenly through the day, cycling through the invalid outcomes.
+            OrderOutcome outcome = null;
+            if ((long) (i + 1) * invalidCount / this.ordersPerDay > (long) i * invalidCount / this.ordersPerDay) {
+                int invalidIndex = (int) ((long) i * invalidCount / this.ordersPerDay);
+                outcome = INVALID_OUTCOMES[invalidIndex % INVALID_OUTCOMES.length];
+            }
+            orders.add(this.createOrder(random, date, i, outcome));
+        }
+        return orders;
+    }
+
+    /**
+     * Method to discard the generated world, so it is generated again with the current settings.
+     */
+    private synchronized void resetWorld() {
+        this.centralArea = null;
+        this.restaurants = null;
+        this.noFlyZones = null;
+        this.menus = null;
+    }
+
+    /**
+     * Method to generate the central area, restaurants and no-fly zones of the world, if they
+     * have not been generated already.
+     */
+    private void generateWorld() {
+        if (this.centralArea != null) {
+            return;
+        }
+        Random random = new Random(this.seed);
+        this.centralArea = this.createCentralArea();
+
+        // Restaurants are spread around the depot, further out as more restaurants are added.
+        double restaurantRadius = 0.012 * Math.max(1.0, Math.sqrt(this.restaurantCount / 4.0));
+        ArrayList<LngLat> restaurantPositions = new ArrayList<>();
+        this.restaurants = OBJECT_MAPPER.createArrayNode();
+        this.menus = new ArrayList<>();
+        for (int i = 0; i < this.restaurantCount; i++) {
+            LngLat position = randomPointAround(random, Drone.APPLETON_TOWER_COORDINATES, 0.002, restaurantRadius);
+            restaurantPositions.add(position);
+            this.restaurants.add(this.createRestaurant(random, i, position));
+        }
+
+        // No-fly zones are placed where they do not cover the depot, a restaurant, the central area
+        // or another zone, so every restaurant stays reachable.
+        double zoneRadius = 0.014 * Math.max(1.0, Math.sqrt(this.noFlyZoneCount / 4.0));
+        ArrayList<LngLat> zoneCentres = new ArrayList<>();
+        ArrayList<Double> zoneRadii = new ArrayList<>();
+        this.noFlyZones = OBJECT_MAPPER.createArrayNode();
+        int attempts = 0;
+        while (zoneCentres.size() < this.noFlyZoneCount) {
+            if (++attempts > 1000 * Math.max(1, this.noFlyZoneCount)) {
+                throw new IllegalStateException("Could not place " + this.noFlyZoneCount + " no-fly zones.");
+            }
+            double radius = 0.0004 + random.nextDouble() * 0.0012;
+            LngLat centre = randomPointAround(random, Drone.APPLETON_TOWER_COORDINATES, 0.001, zoneRadius);
+            if (!this.isZoneClear(centre, radius, restaurantPositions, zoneCentres, zoneRadii)) {
+                continue;
+            }
+            zoneCentres.add(centre);
+            zoneRadii.add(radius);
+            this.noFlyZones.add(this.createNoFlyZone(random, zoneCentres.size(), centre, radius));
+        }
+    }
+
+    /**
+     * Method to check whether a no-fly zone with a given bounding circle keeps clear of the depot,
+     * the restaurants, the central area and the no-fly zones placed so far.
+     * @param centre Centre of the zone's bounding circle.
+     * @param radius Radius of the zone's bounding circle.
+     * @param restaurantPositions Positions of the restaurants.
+     * @param zoneCentres Centres of the zones placed so far.
+     * @param zoneRadii Radii of the zones placed so far.
+     * @return True if the zone keeps clear of everything, false otherwise.
+     */
+    private boolean isZoneClear(LngLat centre, double radius, ArrayList<LngLat> restaurantPositions,
+                                ArrayList<LngLat> zoneCentres, ArrayList<Double> zoneRadii) {
+        double reach = radius + CLEARANCE;
+        if (centre.distanceTo(Drone.APPLETON_TOWER_COORDINATES) < reach) {
+            return false;
+        }
+        for (LngLat restaurantPosition : restaurantPositions) {
+            if (centre.distanceTo(restaurantPosition) < reach) {
+                return false;
+            }
+        }
+        for (int i = 0; i < zoneCentres.size(); i++) {
+            if (centre.distanceTo(zoneCentres.get(i)) < reach + zoneRadii.get(i)) {
+                return false;
+            }
+        }
+        // Keep the zone's bounding box clear of the central area's bounding box.
+        return centre.lng() + reach < CENTRAL_AREA_VERTICES[0].lng()
+                || centre.lng() - reach > CENTRAL_AREA_VERTICES[2].lng()
+                || centre.lat() + reach < CENTRAL_AREA_VERTICES[1].lat()
+                || centre.lat() - reach > CENTRAL_AREA_VERTICES[0].lat();
+    }
+
+    /**
+     * Method to create the named vertices of the central area, matching the REST server.
+     * @return ArrayNode containing the named vertices of the central area.
+     */
+    private ArrayNode createCentralArea() {
+        ArrayNode vertices = OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < CENTRAL_AREA_VERTICES.length; i++) {
+            ObjectNode vertex = OBJECT_MAPPER.createObjectNode();
+            vertex.put("name", CENTRAL_AREA_NAMES[i]);
+            vertex.put("longitude", CENTRAL_AREA_VERTICES[i].lng());
+            vertex.put("latitude", CENTRAL_AREA_VERTICES[i].lat());
+            vertices.add(vertex);
+        }
+        return vertices;
+    }
+
+    /**
+     * Method to create a restaurant with a menu of 2 to 4 pizzas, each only sold by this restaurant.
+     * @param random Random number generator of the world.
+     * @param index Index of the restaurant.
+     * @param position Location of the restaurant.
+     * @return ObjectNode representing the restaurant.
+     */
+    private ObjectNode createRestaurant(Random random, int index, LngLat position) {
+        int menuSize = 2 + random.nextInt(3);
+        MenuItem[] menu = new MenuItem[menuSize];
+        ArrayNode menuNode = OBJECT_MAPPER.createArrayNode();
+        for (int j = 0; j < menuSize; j++) {
+            menu[j] = new MenuItem("Pizza " + (index + 1) + "-" + (j + 1), 900 + 100 * random.nextInt(8));
+            ObjectNode menuItemNode = OBJECT_MAPPER.createObjectNode();
+            menuItemNode.put("name", menu[j].name());
+            menuItemNode.put("priceInPence", menu[j].priceInPence());
+            menuNode.add(menuItemNode);
+        }
+        this.menus.add(menu);
+
+        ObjectNode restaurant = OBJECT_MAPPER.createObjectNode();
+        restaurant.put("name", "Restaurant " + (index + 1));
+        restaurant.put("longitude", position.lng());
+        restaurant.put("latitude", position.lat());
+        restaurant.set("menu", menuNode);
+        return restaurant;
+    }
+
+    /**
+     * Method to create a closed, star-shaped no-fly zone polygon around a centre point.
+     * @param random Random number generator of the world.
+     * @param index Index (from 1) of the zone, used to name it.
+     * @param centre Centre of the zone.
+     * @param radius Maximum distance of a vertex from the centre.
+     * @return ObjectNode representing the no-fly zone.
+     */
+    private ObjectNode createNoFlyZone(Random random, int index, LngLat centre, double radius) {
+        ArrayNode coordinates = OBJECT_MAPPER.createArrayNode();
+        double firstLng = 0;
+        double firstLat = 0;
+        for (int v = 0; v < this.noFlyZoneVertexCount; v++) {
+            // Vertices are ordered by angle, so the polygon never intersects itself.
+            double angle = 2 * Math.PI * (v + 0.8 * random.nextDouble()) / this.noFlyZoneVertexCount;
+            double distance = radius * (0.5 + 0.5 * random.nextDouble());
+            double lng = centre.lng() + distance * Math.cos(angle);
+            double lat = centre.lat() + distance * Math.sin(angle);
+            if (v == 0) {
+                firstLng = lng;
+                firstLat = lat;
+            }
+            coordinates.add(OBJECT_MAPPER.createArrayNode().add(lng).add(lat));
+        }
+        coordinates.add(OBJECT_MAPPER.createArrayNode().add(firstLng).add(firstLat)); // Close the polygon.
+
+        ObjectNode noFlyZone = OBJECT_MAPPER.createObjectNode();
+        noFlyZone.put("name", "Zone " + index);
+        noFlyZone.set("coordinates", coordinates);
+        return noFlyZone;
+    }
+
+    /**
+     * Method to create an order that is valid, or invalid for exactly one reason.
+     * @param random Random number generator for the day's orders.
+     * @param date Date the order is placed on.
+     * @param index Index of the order in the day.
+     * @param invalidOutcome The reason the order is invalid, or null for a valid order.
+     * @return ObjectNode representing the order.
+     */
+    private ObjectNode createOrder(Random random, LocalDate date, int index, OrderOutcome invalidOutcome) {
+        if (invalidOutcome == OrderOutcome.InvalidPizzaCountMultipleSuppliers && this.menus.size() < 2) {
+            invalidOutcome = OrderOutcome.InvalidPizzaNotDefined; // Needs items from two restaurants.
+        }
+        int restaurantIndex = random.nextInt(this.menus.size());
+        MenuItem[] menu = this.menus.get(restaurantIndex);
+
+        ArrayList<String> items = new ArrayList<>();
+        int total = 100; // Delivery charge.
+        int itemCount = invalidOutcome == OrderOutcome.InvalidPizzaCount ? 6 : 1 + random.nextInt(4);
+        for (int i = 0; i < itemCount; i++) {
+            MenuItem item = menu[random.nextInt(menu.length)];
+            items.add(item.name());
+            total += item.priceInPence();
+        }
+        if (invalidOutcome == OrderOutcome.InvalidPizzaNotDefined) {
+            items.set(0, "Unknown Pizza");
+        } else if (invalidOutcome == OrderOutcome.InvalidPizzaCountMultipleSuppliers) {
+            MenuItem[] otherMenu = this.menus.get((restaurantIndex + 1) % this.menus.size());
+            items.add(otherMenu[0].name());
+            total += otherMenu[0].priceInPence();
+        } else if (invalidOutcome == OrderOutcome.InvalidTotal) {
+            total += 1 + random.nextInt(100);
+        }
+
+        String cardNumber = createCardNumber(random, invalidOutcome != OrderOutcome.InvalidCardNumber);
+        LocalDate expiry = invalidOutcome == OrderOutcome.InvalidExpiryDate
+                ? date.minusMonths(1 + random.nextInt(24)) : date.plusMonths(1 + random.nextInt(48));
+        String cvv = String.format("%03d", random.nextInt(1000));
+        if (invalidOutcome == OrderOutcome.InvalidCvv) {
+            cvv = cvv.substring(0, 2);
+        }
+
+        ObjectNode order = OBJECT_MAPPER.createObjectNode();
+        order.put("orderNo", String.format("%08X", (int) (this.seed * 7919 + date.toEpochDay() * 100003 + index)));
+        order.put("orderDate", date.toString());
+        order.put("customer", "Customer " + (index + 1));
+        order.put("creditCardNumber", cardNumber);
+        order.put("creditCardExpiry", expiry.format(DateTimeFormatter.ofPattern("MM/yy")));
+        order.put("cvv", cvv);
+        order.put("priceTotalInPence", total);
+        ArrayNode itemsNode = order.putArray("orderItems");
+        items.forEach(itemsNode::add);
+        return order;
+    }
+
+    /**
+     * Method to create a 16-digit card number that either passes or fails the Luhn check used to
+     * validate orders.
+     * @param random Random number generator for the day's orders.
+     * @param valid Whether the card number should pass the Luhn check.
+     * @return A 16-digit card number.
+     */
+    private static String createCardNumber(Random random, boolean valid) {
+        StringBuilder cardNumber = new StringBuilder("4");
+        int digitSum = 8; // The first digit (4) is doubled.
+        for (int i = 1; i < 15; i++) {
+            int digit = random.nextInt(10);
+            cardNumber.append(digit);
+            int weighted = i % 2 == 0 ? digit * 2 : digit;
+            digitSum += (weighted / 10) + (weighted % 10);
+        }
+        int checkDigit = (10 - digitSum % 10) % 10;
+        if (!valid) {
+            checkDigit = (checkDigit + 1 + random.nextInt(9)) % 10;
+        }
+        return cardNumber.append(checkDigit).toString();
+    }
+
+    /**
+     * Method to get a random point at a distance within a range from a centre point.
+     * @param random Random number generator to use.
+     * @param centre The centre point.
+     * @param minDistance Minimum distance of the point from the centre.
+     * @param maxDistance Maximum distance of the point from the centre.
+     * @return The random point.
+     */
+    private static LngLat randomPointAround(Random random, LngLat centre, double minDistance, double maxDistance) {
+        double angle = 2 * Math.PI * random.nextDouble();
+        double distance = minDistance + (maxDistance - minDistance) * Math.sqrt(random.nextDouble());
+        return new LngLat(centre.lng() + distance * Math.cos(angle), centre.lat() + distance * Math.sin(angle));
+    }
+
+}
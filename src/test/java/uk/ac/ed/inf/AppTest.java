@@ -1,9 +1,36 @@
 package uk.ac.ed.inf;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -22,6 +49,84 @@ public class AppTest
         DataFetcher.getInstance().setBaseUrl("https://ilp-rest.azurewebsites.net/");
     }
 
+    /**
+     * Interface for the body of a test run against a generated world.
+     */
+    private interface WorldTest {
+
+        /**
+         * Method to run the test.
+         * @param dataFetcher The DataFetcher, fetching from the generated world.
+         * @throws IOException If the world's data cannot be fetched.
+         */
+        void run(DataFetcher dataFetcher) throws IOException;
+
+    }
+
+    /**
+     * Method to run a test against the world generated from a seed, served by a local REST server for the
+     * duration of the test.
+     * @param seed The seed of the generated world.
+     * @param test The test to run.
+     * @throws IOException If the world's data cannot be fetched.
+     */
+    private static void withGeneratedWorld(long seed, WorldTest test) throws IOException {
+        withGeneratedWorld(new WorldGenerator(seed), test);
+    }
+
+    /**
+     * Method to run a test against a generated world, served by a local REST server for the duration of the test.
+     * @param worldGenerator The generator of the world.
+     * @param test The test to run.
+     * @throws IOException If the world's data cannot be fetched.
+     */
+    private static void withGeneratedWorld(WorldGenerator worldGenerator, WorldTest test) throws IOException {
+        LocalRestServer server = new LocalRestServer(worldGenerator, 0);
+        server.start();
+        try {
+            DataFetcher dataFetcher = DataFetcher.getInstance();
+            dataFetcher.setBaseUrl(server.getBaseUrl());
+            test.run(dataFetcher);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Method to send a request to a local server, check its status code and read its response body.
+     * @param method The HTTP method of the request.
+     * @param url The url of the request.
+     * @param body The body of the request, or null to send none.
+     * @param expectedStatus The status code the response must have.
+     * @return The body of the response.
+     * @throws IOException If the request cannot be sent or its response read.
+     */
+    private static String sendRequest(String method, String url, String body, int expectedStatus)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream requestBody = connection.getOutputStream()) {
+                    requestBody.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            assertEquals(url, expectedStatus, connection.getResponseCode());
+            InputStream responseBody = expectedStatus < 400 ? connection.getInputStream()
+                    : connection.getErrorStream();
+            if (responseBody == null) {
+                return "";
+            }
+            try (responseBody) {
+                return new String(responseBody.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
     /**
      * Test for the distanceTo() method in the LngLat record.
      */
@@ -74,4 +179,1219 @@ public class AppTest
         assertTrue(travellingPoint.closeTo(initPoint));
     }
 
+    /**
+     * Test for the nextPoint() method in the LatticePoint class, checking that the same point reached by
+     * different sequences of moves is equal and has bit-identical coordinates.
+     */
+    @Test
+    public void latticePointTest() {
+        LatticePoint origin = new LatticePoint(Drone.APPLETON_TOWER_COORDINATES);
+        LatticePoint point1 = origin.nextPoint(CompassDirection.NNE).nextPoint(CompassDirection.ESE)
+                .nextPoint(CompassDirection.WSW).nextPoint(CompassDirection.SSW);
+        LatticePoint point2 = origin.nextPoint(CompassDirection.SSW).nextPoint(CompassDirection.WSW)
+                .nextPoint(CompassDirection.NNE).nextPoint(CompassDirection.ESE);
+        LatticePoint point3 = origin.nextPoint(CompassDirection.N).nextPoint(CompassDirection.S);
+
+        assertEquals(point1, point2);
+        assertEquals(point1.hashCode(), point2.hashCode());
+        assertEquals(point1.getLngLat(), point2.getLngLat());
+        assertEquals(origin, point3);
+        assertEquals(Drone.APPLETON_TOWER_COORDINATES, point3.getLngLat());
+        assertNotEquals(origin, origin.nextPoint(CompassDirection.E));
+    }
+
+    /**
+     * Test that orders generated by the WorldGenerator and served by the LocalRestServer are fetched by the
+     * DataFetcher, and validate to every invalid outcome as well as to valid orders.
+     */
+    @Test
+    public void generatedWorldOrderOutcomesTest() throws IOException {
+        WorldGenerator worldGenerator = new WorldGenerator(42);
+        worldGenerator.setOrdersPerDay(70);
+        worldGenerator.setInvalidOrderFraction(0.5);
+        withGeneratedWorld(worldGenerator, dataFetcher -> {
+            dataFetcher.setDate(LocalDate.parse("2023-01-10"));
+
+            EnumSet<OrderOutcome> outcomes = EnumSet.noneOf(OrderOutcome.class);
+            int validCount = 0;
+            for (Order order : dataFetcher.getOrders()) {
+                if (order.isOrderValid()) {
+                    validCount++;
+                }
+                outcomes.add(order.getOrderOutcome());
+            }
+            assertEquals(35, validCount);
+            assertEquals(EnumSet.range(OrderOutcome.ValidButNotDelivered,
+                    OrderOutcome.InvalidPizzaCountMultipleSuppliers), outcomes);
+        });
+    }
+
+    /**
+     * Test that replanning after a no-fly zone is added keeps the deliveries already flown, and routes the
+     * remaining deliveries around the new zone.
+     */
+    @Test
+    public void replanAfterNoFlyZoneChangeTest() throws IOException {
+        withGeneratedWorld(7, dataFetcher -> {
+            dataFetcher.setDate(LocalDate.parse("2023-01-10"));
+            Drone drone = new Drone();
+            drone.deliverOrders();
+
+            // Add a small square zone around a point in the middle of a later delivery's route, away from
+            // the depot and every restaurant.
+            int ordersFlown = 2;
+            ArrayList<DroneMove> flownMoves = new ArrayList<>();
+            ArrayList<String> deliveredOrderNos = new ArrayList<>();
+            LngLat zoneCentre = null;
+            for (DroneMove move : drone.getAllDroneMoves()) {
+                if (!deliveredOrderNos.contains(move.orderNo())) {
+                    deliveredOrderNos.add(move.orderNo());
+                }
+                if (deliveredOrderNos.size() <= ordersFlown) {
+                    flownMoves.add(move);
+                } else if (zoneCentre == null && isAwayFromDepotAndRestaurants(move.toLngLat())) {
+                    zoneCentre = move.toLngLat();
+                }
+            }
+            assertNotNull(zoneCentre);
+            double half = 2 * Drone.MOVE_LENGTH;
+            LngLat[] vertices = {
+                    new LngLat(zoneCentre.lng() - half, zoneCentre.lat() - half),
+                    new LngLat(zoneCentre.lng() + half, zoneCentre.lat() - half),
+                    new LngLat(zoneCentre.lng() + half, zoneCentre.lat() + half),
+                    new LngLat(zoneCentre.lng() - half, zoneCentre.lat() + half),
+                    new LngLat(zoneCentre.lng() - half, zoneCentre.lat() - half)
+            };
+            ArrayList<NoFlyZone> newZones = new ArrayList<>(Arrays.asList(dataFetcher.getNoFlyZones()));
+            newZones.add(new NoFlyZone("New zone", vertices));
+            drone.replanAfterNoFlyZoneChange(newZones.toArray(new NoFlyZone[0]), ordersFlown);
+
+            ArrayList<DroneMove> replannedMoves = drone.getAllDroneMoves();
+            assertEquals(flownMoves, replannedMoves.subList(0, flownMoves.size()));
+            for (DroneMove move : replannedMoves.subList(flownMoves.size(), replannedMoves.size())) {
+                for (int i = 0; i < vertices.length - 1; i++) {
+                    assertFalse(Line2D.linesIntersect(vertices[i].lng(), vertices[i].lat(),
+                            vertices[i + 1].lng(), vertices[i + 1].lat(), move.fromLngLat().lng(),
+                            move.fromLngLat().lat(), move.toLngLat().lng(), move.toLngLat().lat()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Test that replanning after a no-fly zone is added away from every route invalidates no legs, and only looks
+     * up the legs of the deliveries made again, without costing the other orders again.
+     */
+    @Test
+    public void replanUnaffectedLegsTest() throws IOException {
+        withGeneratedWorld(7, dataFetcher -> {
+            dataFetcher.setDate(LocalDate.parse("2023-01-10"));
+            AtomicInteger plannedLegs = new AtomicInteger();
+            LegCache legCache = new LegCache() {
+                @Override
+                public CompletableFuture<ArrayList<Node>> plan(LngLat start, LngLat target,
+                                                               Callable<ArrayList<Node>> search,
+                                                               Executor executor) {
+                    plannedLegs.incrementAndGet();
+                    return super.plan(start, target, search, executor);
+                }
+            };
+            Drone drone = new Drone(new PathFinder(), legCache);
+            Order[] orders = dataFetcher.getOrders();
+            drone.deliverOrders(orders);
+            int legsPlannedForDay = plannedLegs.get();
+            int cachedLegs = legCache.size();
+
+            LngLat[] vertices = {new LngLat(-3.30, 55.80), new LngLat(-3.29, 55.80), new LngLat(-3.29, 55.81),
+                    new LngLat(-3.30, 55.81), new LngLat(-3.30, 55.80)};
+            assertTrue(legCache.invalidate(Arrays.asList(new NoFlyZone("Far zone", vertices))).isEmpty());
+            assertEquals(cachedLegs, legCache.size());
+
+            int ordersFlown = 2;
+            ArrayList<NoFlyZone> newZones = new ArrayList<>(Arrays.asList(dataFetcher.getNoFlyZones()));
+            newZones.add(new NoFlyZone("Far zone", vertices));
+            plannedLegs.set(0);
+            drone.replanAfterNoFlyZoneChange(newZones.toArray(new NoFlyZone[0]), ordersFlown);
+
+            int delivered = 0;
+            for (Order order : orders) {
+                delivered += order.getOrderOutcome() == OrderOutcome.Delivered ? 1 : 0;
+            }
+            // Two legs for each delivery made again, and for the order that no longer fits, and no others.
+            assertTrue(plannedLegs.get() <= 2 * (delivered - ordersFlown + 1));
+            assertTrue(plannedLegs.get() < legsPlannedForDay);
+        });
+    }
+
+    /**
+     * Test that orders accepted after the drone has started delivering are validated, queued and delivered
+     * without changing the moves the drone has already committed.
+     */
+    @Test
+    public void acceptLateOrderTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            Order[] orders = dataFetcher.fetchOrders(LocalDate.parse("2023-01-10"));
+            Drone drone = new Drone();
+            drone.deliverOrders(Arrays.copyOfRange(orders, 0, 5));
+
+            for (Order order : Arrays.copyOfRange(orders, 5, orders.length)) {
+                ArrayList<DroneMove> committedMoves = new ArrayList<>(drone.getAllDroneMoves());
+                OrderOutcome outcome = drone.acceptLateOrder(order);
+                assertEquals(order.getOrderOutcome(), outcome);
+                drone.deliverNextPendingOrder();
+                assertEquals(committedMoves, drone.getAllDroneMoves().subList(0, committedMoves.size()));
+            }
+            drone.deliverPendingOrders();
+
+            int delivered = 0;
+            for (Order order : orders) {
+                if (order.getOrderOutcome() == OrderOutcome.Delivered) {
+                    delivered++;
+                }
+            }
+            assertTrue(delivered > 5);
+            assertEquals(Drone.MAX_DRONE_MOVES - drone.getMovesRemaining(), drone.getAllDroneMoves().size());
+        });
+    }
+
+    /**
+     * Test that a compressed flight path has far fewer runs than moves, and expands back into the original moves.
+     */
+    @Test
+    public void compressedFlightPathTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            Drone drone = new Drone();
+            drone.deliverOrders(dataFetcher.fetchOrders(LocalDate.parse("2023-01-10")));
+            ArrayList<DroneMove> droneMoves = drone.getAllDroneMoves();
+            CompressedFlightPath flightPath = drone.getCompressedFlightPath();
+            assertEquals(droneMoves.size(), flightPath.getMoveCount());
+            assertTrue(flightPath.getSegments().size() * 5 < droneMoves.size());
+
+            int i = 0;
+            for (DroneMove expandedMove : flightPath) {
+                DroneMove droneMove = droneMoves.get(i++);
+                assertEquals(droneMove.orderNo(), expandedMove.orderNo());
+                assertEquals(droneMove.stepDirectionAngle(), expandedMove.stepDirectionAngle());
+                assertEquals(droneMove.ticksSinceStartOfCalculation(), expandedMove.ticksSinceStartOfCalculation());
+                assertEquals(droneMove.toLngLat().lng(), expandedMove.toLngLat().lng(), 1e-12);
+                assertEquals(droneMove.toLngLat().lat(), expandedMove.toLngLat().lat(), 1e-12);
+            }
+            assertEquals(droneMoves.size(), i);
+        });
+    }
+
+    /**
+     * Test that concurrent requests for the same leg wait on one search, and that a leg with no path found
+     * is not cached.
+     */
+    @Test
+    public void legCachePlanTest() throws Exception {
+        LegCache legCache = new LegCache();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AtomicInteger searches = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            LngLat target = new LngLat(-3.19, 55.94);
+            ArrayList<Node> path = new ArrayList<>();
+            path.add(new Node(Drone.APPLETON_TOWER_COORDINATES, target, 0));
+            Callable<ArrayList<Node>> search = () -> {
+                searches.incrementAndGet();
+                release.await();
+                return path;
+            };
+
+            ArrayList<CompletableFuture<ArrayList<Node>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(legCache.plan(Drone.APPLETON_TOWER_COORDINATES, target, search, executor));
+            }
+            assertNull(legCache.get(Drone.APPLETON_TOWER_COORDINATES, target));
+            release.countDown();
+            for (CompletableFuture<ArrayList<Node>> future : futures) {
+                assertSame(path, future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, searches.get());
+            assertSame(path, legCache.get(Drone.APPLETON_TOWER_COORDINATES, target));
+
+            assertNull(legCache.plan(target, Drone.APPLETON_TOWER_COORDINATES, () -> null, null).get());
+            assertEquals(1, legCache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the central area's precomputed classification agrees with exact point-in-polygon and edge
+     * crossing tests, for random points and moves around the central area.
+     */
+    @Test
+    public void centralAreaClassificationTest() {
+        LngLat[] vertices = {new LngLat(-3.192473, 55.946233), new LngLat(-3.192473, 55.942617),
+                new LngLat(-3.184319, 55.942617), new LngLat(-3.184319, 55.946233)};
+        CentralArea centralArea = new CentralArea(vertices);
+        Path2D polygon = new Path2D.Double();
+        polygon.moveTo(vertices[0].lng(), vertices[0].lat());
+        for (int i = 1; i < vertices.length; i++) {
+            polygon.lineTo(vertices[i].lng(), vertices[i].lat());
+        }
+        polygon.closePath();
+
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            LngLat point = new LngLat(-3.194 + random.nextDouble() * 0.011, 55.941 + random.nextDouble() * 0.007);
+            LngLat nextPoint = point.nextPosition(CompassDirection.values()[random.nextInt(16)]);
+            assertEquals(polygon.contains(point.lng(), point.lat()), centralArea.isInside(point));
+
+            boolean crossesEdge = false;
+            for (int j = 0; j < vertices.length; j++) {
+                LngLat vertex1 = vertices[j];
+                LngLat vertex2 = vertices[(j + 1) % vertices.length];
+                crossesEdge |= Line2D.linesIntersect(vertex1.lng(), vertex1.lat(), vertex2.lng(), vertex2.lat(),
+                        point.lng(), point.lat(), nextPoint.lng(), nextPoint.lat());
+            }
+            assertEquals(crossesEdge, centralArea.moveCrossesBoundary(point, nextPoint));
+        }
+    }
+
+    /**
+     * Test that the central area is closed when its last vertex does not repeat the first, so a move across the
+     * edge from the last vertex back to the first crosses the boundary, and a path between points north and east
+     * of the corner joining that edge goes around the corner rather than across both edges.
+     */
+    @Test
+    public void centralAreaClosingEdgeTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            LngLat[] vertices = dataFetcher.getCentralArea();
+            LngLat firstVertex = vertices[0];
+            LngLat lastVertex = vertices[vertices.length - 1];
+            assertNotEquals(firstVertex, lastVertex);
+            CentralArea centralArea = dataFetcher.getCentralAreaPolygon();
+            LngLat north = new LngLat(lastVertex.lng() - 0.0007, lastVertex.lat() + Drone.MOVE_LENGTH);
+            assertFalse(centralArea.isInside(north));
+            assertTrue(centralArea.moveCrossesBoundary(north, north.nextPosition(CompassDirection.S)));
+
+            LngLat east = new LngLat(lastVertex.lng() + 3 * Drone.MOVE_LENGTH, lastVertex.lat() - 0.0005);
+            ArrayList<Node> path = new PathFinder().findPath(north, east, new LogicalTickClock());
+            assertNotNull(path);
+            assertPathValid(path, dataFetcher);
+            for (Node node : path) {
+                assertFalse(centralArea.isInside(node.getLngLat()));
+            }
+        });
+    }
+
+    /**
+     * Test that a route on the coarse grid goes around a wall of no-fly zone between its end points, and that no
+     * route is found to a point walled in on every side.
+     */
+    @Test
+    public void coarseGridRouteTest() {
+        LngLat start = new LngLat(0.0001, 0.0001);
+        LngLat end = new LngLat(0.0201, 0.0001);
+        NoFlyZone wall = new NoFlyZone("Wall", new LngLat[] {new LngLat(0.01, -0.01), new LngLat(0.0105, -0.01),
+                new LngLat(0.0105, 0.01), new LngLat(0.01, 0.01)});
+        CoarseGrid coarseGrid = new CoarseGrid(new NoFlyZone[] {wall});
+        ArrayList<Long> route = coarseGrid.findRoute(start, end);
+        assertNotNull(route);
+        assertEquals(coarseGrid.getCellKey(start), (long) route.get(0));
+        assertEquals(coarseGrid.getCellKey(end), (long) route.get(route.size() - 1));
+        // The straight route is 9 cells long, and the route around the wall is much longer.
+        assertTrue(route.size() > 12);
+        for (LngLat waypoint : coarseGrid.getWaypoints(route)) {
+            assertTrue(waypoint.lat() > 0.01 || waypoint.lat() < -0.01 || waypoint.lng() > 0.0105
+                    || waypoint.lng() < 0.01);
+        }
+        assertTrue(coarseGrid.getCorridor(route, 1).size() > route.size());
+
+        ArrayList<NoFlyZone> walls = new ArrayList<>();
+        double[][] sides = {{0.015, -0.01, 0.016, 0.01}, {0.025, -0.01, 0.026, 0.01}, {0.015, -0.01, 0.026, -0.009},
+                {0.015, 0.009, 0.026, 0.01}};
+        for (double[] side : sides) {
+            walls.add(new NoFlyZone("Side", new LngLat[] {new LngLat(side[0], side[1]), new LngLat(side[2], side[1]),
+                    new LngLat(side[2], side[3]), new LngLat(side[0], side[3])}));
+        }
+        assertNull(new CoarseGrid(walls.toArray(new NoFlyZone[0])).findRoute(start, end));
+    }
+
+    /**
+     * Test that the coarse to fine search finds a valid path around a U-shaped no-fly zone opening towards the
+     * start, in about one expansion per move, where the lattice search alone is abandoned, and that the path is
+     * at most a quarter longer than the shortest path. The exact search cannot finish either, so the shortest path
+     * is bounded below by the length of a string pulled taut around the outside corners of the U.
+     */
+    @Test
+    public void coarseToFineTrapTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            LngLat start = Drone.APPLETON_TOWER_COORDINATES;
+            double left = start.lng() + 0.003;
+            double right = start.lng() + 0.0115;
+            double bottom = start.lat() - 0.006;
+            double top = start.lat() + 0.006;
+            double armWidth = 0.0005;
+            ArrayList<NoFlyZone> zones = new ArrayList<>(Arrays.asList(dataFetcher.getNoFlyZones()));
+            zones.add(new NoFlyZone("Trap", new LngLat[] {new LngLat(left, top), new LngLat(right, top),
+                    new LngLat(right, bottom), new LngLat(left, bottom), new LngLat(left, bottom + armWidth),
+                    new LngLat(right - armWidth, bottom + armWidth), new LngLat(right - armWidth, top - armWidth),
+                    new LngLat(left, top - armWidth)}));
+            dataFetcher.setNoFlyZones(zones.toArray(new NoFlyZone[0]));
+            LngLat end = new LngLat(right + 0.004, start.lat());
+
+            PathFinder latticePathFinder = new PathFinder();
+            latticePathFinder.setMaxLiveNodes(20000);
+            try {
+                latticePathFinder.findPath(start, end, new LogicalTickClock());
+                fail("Expected the lattice search into the trap to be abandoned.");
+            } catch (SearchAbandonedException e) {
+                // Expected.
+            }
+
+            PathFinder pathFinder = new PathFinder();
+            pathFinder.setCoarseToFine(true);
+            ArrayList<Node> path = pathFinder.findPath(start, end, new LogicalTickClock());
+            assertNotNull(path);
+            assertPathValid(path, dataFetcher);
+            assertTrue(path.get(path.size() - 1).getLngLat().closeTo(end));
+            int moves = path.size() - 1;
+            assertTrue(pathFinder.getTotalExpansions() <= 2L * moves);
+
+            // The path passes above or below the U, and ends within a move of the end point.
+            LngLat topLeft = new LngLat(left, top);
+            LngLat topRight = new LngLat(right, top);
+            LngLat bottomLeft = new LngLat(left, bottom);
+            LngLat bottomRight = new LngLat(right, bottom);
+            double shortestLength = Math.min(
+                    start.distanceTo(topLeft) + topLeft.distanceTo(topRight) + topRight.distanceTo(end),
+                    start.distanceTo(bottomLeft) + bottomLeft.distanceTo(bottomRight) + bottomRight.distanceTo(end));
+            double shortestMoves = shortestLength / Drone.MOVE_LENGTH - 1;
+            assertTrue(moves > shortestMoves);
+            assertTrue(moves <= 1.25 * shortestMoves);
+        });
+    }
+
+    /**
+     * Test that the obstacle bitmap never clears a move that crosses a no-fly zone or central area edge, and
+     * that a bitmap saved to a file is reused while the obstacles are unchanged and recomputed when they change.
+     */
+    @Test
+    public void obstacleBitmapTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            LngLat[] centralArea = dataFetcher.getCentralArea();
+            NoFlyZone[] noFlyZones = dataFetcher.getNoFlyZones();
+            ObstacleBitmap bitmap = ObstacleBitmap.create(centralArea, noFlyZones);
+            ArrayList<LngLat[]> polygons = new ArrayList<>();
+            polygons.add(centralArea);
+            for (NoFlyZone noFlyZone : noFlyZones) {
+                polygons.add(noFlyZone.getCoordinatesLngLat());
+            }
+
+            Random random = new Random(1);
+            int clearMoves = 0;
+            for (int i = 0; i < 20000; i++) {
+                LngLat point = new LngLat(-3.196 + random.nextDouble() * 0.015, 55.940 + random.nextDouble() * 0.01);
+                CompassDirection direction = CompassDirection.values()[random.nextInt(16)];
+                if (bitmap.mightCrossObstacle(point, direction)) {
+                    continue;
+                }
+                clearMoves++;
+                LngLat nextPoint = point.nextPosition(direction);
+                for (LngLat[] polygon : polygons) {
+                    for (int j = 0; j < polygon.length; j++) {
+                        LngLat vertex1 = polygon[j];
+                        LngLat vertex2 = polygon[(j + 1) % polygon.length];
+                        assertFalse(Line2D.linesIntersect(vertex1.lng(), vertex1.lat(), vertex2.lng(),
+                                vertex2.lat(), point.lng(), point.lat(), nextPoint.lng(), nextPoint.lat()));
+                    }
+                }
+            }
+            assertTrue(clearMoves > 10000);
+
+            Path file = Files.createTempFile("pizzadronz-", "-obstacles.bin");
+            try {
+                Files.delete(file);
+                ObstacleBitmap.loadOrCreate(file, centralArea, noFlyZones);
+                FileTime savedTime = FileTime.fromMillis(0);
+                Files.setLastModifiedTime(file, savedTime);
+                ObstacleBitmap loaded = ObstacleBitmap.loadOrCreate(file, centralArea, noFlyZones);
+                assertEquals(savedTime, Files.getLastModifiedTime(file));
+                for (int i = 0; i < 1000; i++) {
+                    LngLat point = new LngLat(-3.196 + random.nextDouble() * 0.015,
+                            55.940 + random.nextDouble() * 0.01);
+                    CompassDirection direction = CompassDirection.values()[random.nextInt(16)];
+                    assertEquals(bitmap.mightCrossObstacle(point, direction),
+                            loaded.mightCrossObstacle(point, direction));
+                }
+                ObstacleBitmap.loadOrCreate(file, centralArea, new NoFlyZone[0]);
+                assertNotEquals(savedTime, Files.getLastModifiedTime(file));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        });
+    }
+
+    /**
+     * Test that the edge set finds the same crossings as testing every no-fly zone edge with Line2D, including
+     * moves that touch a vertex or run along an edge, which are common with vertices and moves on a small grid.
+     */
+    @Test
+    public void edgeSetTest() {
+        Random random = new Random(1);
+        NoFlyZone[] noFlyZones = new NoFlyZone[5];
+        for (int i = 0; i < noFlyZones.length; i++) {
+            LngLat[] vertices = new LngLat[6];
+            for (int j = 0; j < vertices.length - 1; j++) {
+                vertices[j] = new LngLat(random.nextInt(8) * 0.5, random.nextInt(8) * 0.5);
+            }
+            vertices[vertices.length - 1] = vertices[0];
+            noFlyZones[i] = new NoFlyZone("Zone " + i, vertices);
+        }
+        EdgeSet edgeSet = new EdgeSet(noFlyZones);
+        assertEquals(25, edgeSet.size());
+
+        int crossings = 0;
+        for (int i = 0; i < 20000; i++) {
+            LngLat from = new LngLat(random.nextInt(8) * 0.5, random.nextInt(8) * 0.5);
+            LngLat to = new LngLat(random.nextInt(8) * 0.5, random.nextInt(8) * 0.5);
+            boolean crossesEdge = false;
+            for (NoFlyZone noFlyZone : noFlyZones) {
+                LngLat[] nfz = noFlyZone.getCoordinatesLngLat();
+                for (int j = 0; j < nfz.length - 1; j++) {
+                    crossesEdge |= new Line2D.Double(nfz[j].lng(), nfz[j].lat(), nfz[j + 1].lng(), nfz[j + 1].lat())
+                            .intersectsLine(from.lng(), from.lat(), to.lng(), to.lat());
+                }
+            }
+            assertEquals(crossesEdge, edgeSet.crossesAny(from, to));
+            crossings += crossesEdge ? 1 : 0;
+        }
+        assertTrue(crossings > 0 && crossings < 20000);
+    }
+
+    /**
+     * Test that touching zones are merged into one cluster, and that testing moves against the clusters' hulls and
+     * edges gives the same result as testing every edge, even for a detailed zone with repeated vertices.
+     */
+    @Test
+    public void edgeSetClusterTest() {
+        int sides = 1000;
+        LngLat[] circle = new LngLat[2 * sides + 1];
+        for (int i = 0; i < sides; i++) {
+            double angle = 2 * Math.PI * i / sides;
+            circle[2 * i] = new LngLat(0.05 + 0.01 * Math.cos(angle), 0.05 + 0.01 * Math.sin(angle));
+            circle[2 * i + 1] = circle[2 * i];
+        }
+        circle[2 * sides] = circle[0];
+        NoFlyZone[] noFlyZones = {
+                new NoFlyZone("Circle", circle),
+                new NoFlyZone("West", new LngLat[] {new LngLat(0, 0), new LngLat(0.01, 0), new LngLat(0.01, 0.01),
+                        new LngLat(0, 0.01), new LngLat(0, 0)}),
+                new NoFlyZone("East", new LngLat[] {new LngLat(0.01, 0), new LngLat(0.02, 0), new LngLat(0.02, 0.01),
+                        new LngLat(0.01, 0.01), new LngLat(0.01, 0)})
+        };
+        EdgeSet edgeSet = new EdgeSet(noFlyZones);
+        assertEquals(2, edgeSet.getClusterCount());
+        assertEquals(2 * sides + 8, edgeSet.size());
+
+        Random random = new Random(2);
+        int crossings = 0;
+        for (int i = 0; i < 20000; i++) {
+            LngLat from = new LngLat(random.nextDouble() * 0.07, random.nextDouble() * 0.07);
+            LngLat to = from;
+            for (int moves = random.nextInt(20); moves >= 0 || to.equals(from); moves--) {
+                to = to.nextPosition(CompassDirection.values()[random.nextInt(CompassDirection.values().length)]);
+            }
+            boolean crossesEdge = false;
+            for (NoFlyZone noFlyZone : noFlyZones) {
+                LngLat[] nfz = noFlyZone.getCoordinatesLngLat();
+                for (int j = 0; j < nfz.length - 1; j++) {
+                    crossesEdge |= Line2D.linesIntersect(from.lng(), from.lat(), to.lng(), to.lat(), nfz[j].lng(),
+                            nfz[j].lat(), nfz[j + 1].lng(), nfz[j + 1].lat());
+                }
+            }
+            assertEquals(crossesEdge, edgeSet.crossesAny(from, to));
+            crossings += crossesEdge ? 1 : 0;
+        }
+        assertTrue(crossings > 0 && crossings < 20000);
+    }
+
+    /**
+     * Test that the near boundary grid gives the same answer as measuring the distance to every edge, with each
+     * polygon closed whether or not its last vertex repeats its first.
+     */
+    @Test
+    public void nearBoundaryGridTest() {
+        LngLat[] centralArea = {new LngLat(0, 0), new LngLat(0.004, 0), new LngLat(0.004, 0.003),
+                new LngLat(0, 0.003)};
+        NoFlyZone[] noFlyZones = {
+                new NoFlyZone("Closed", new LngLat[] {new LngLat(0.001, 0.001), new LngLat(0.002, 0.001),
+                        new LngLat(0.0015, 0.002), new LngLat(0.001, 0.001)}),
+                new NoFlyZone("Open", new LngLat[] {new LngLat(0.0025, 0.0005), new LngLat(0.0035, 0.0005),
+                        new LngLat(0.0035, 0.0025), new LngLat(0.0025, 0.0025)})
+        };
+        double distance = 2 * Drone.MOVE_LENGTH;
+        NearBoundaryGrid grid = new NearBoundaryGrid(centralArea, noFlyZones, distance);
+
+        // The closing edge of the open zone runs along longitude 0.0025, a move length away from this point.
+        assertTrue(grid.isNearBoundary(new LngLat(0.0025 - Drone.MOVE_LENGTH, 0.0015)));
+
+        Random random = new Random(3);
+        int nearPoints = 0;
+        for (int i = 0; i < 20000; i++) {
+            LngLat point = new LngLat(-0.001 + random.nextDouble() * 0.006, -0.001 + random.nextDouble() * 0.005);
+            boolean nearEdge = false;
+            for (LngLat[] polygon : new LngLat[][] {centralArea, noFlyZones[0].getCoordinatesLngLat(),
+                    noFlyZones[1].getCoordinatesLngLat()}) {
+                for (int j = 0; j < polygon.length; j++) {
+                    LngLat next = polygon[(j + 1) % polygon.length];
+                    nearEdge |= Line2D.ptSegDistSq(polygon[j].lng(), polygon[j].lat(), next.lng(), next.lat(),
+                            point.lng(), point.lat()) < distance * distance;
+                }
+            }
+            assertEquals(nearEdge, grid.isNearBoundary(point));
+            nearPoints += nearEdge ? 1 : 0;
+        }
+        assertTrue(nearPoints > 0 && nearPoints < 20000);
+    }
+
+    /**
+     * Test that the move validity memo only returns the results stored for exactly the same move and obstacles,
+     * that it empties when the obstacles change, and that a second day planned with a memo shared with the first
+     * reuses its results and flies the same path.
+     */
+    @Test
+    public void moveValidityMemoTest() throws IOException {
+        MoveValidityMemo memo = new MoveValidityMemo(100);
+        NoFlyZone[] noFlyZones = new NoFlyZone[0];
+        CentralArea centralArea = new CentralArea(new LngLat[] {new LngLat(0, 0), new LngLat(1, 0),
+                new LngLat(1, 1), new LngLat(0, 1)});
+        LngLat from = new LngLat(0.5, 0.5);
+        LngLat to = from.nextPosition(CompassDirection.NE);
+        assertEquals(MoveValidityMemo.MISSING, memo.get(from, to, noFlyZones, centralArea));
+        memo.put(from, to, noFlyZones, centralArea, MoveValidityMemo.CROSSES_CENTRAL_AREA);
+        assertEquals(MoveValidityMemo.CROSSES_CENTRAL_AREA, memo.get(from, to, noFlyZones, centralArea));
+        assertEquals(MoveValidityMemo.MISSING, memo.get(from, to, new NoFlyZone[0], centralArea));
+        assertEquals(MoveValidityMemo.MISSING, memo.get(from, from.nextPosition(CompassDirection.N), noFlyZones,
+                centralArea));
+        assertEquals(1, memo.getHits());
+        assertEquals(3, memo.getMisses());
+        // Storing a move tested against other no-fly zones removes the moves of the old ones.
+        LngLat otherFrom = from.nextPosition(CompassDirection.S);
+        memo.put(otherFrom, from, new NoFlyZone[0], centralArea, 0);
+        assertEquals(MoveValidityMemo.MISSING, memo.get(from, to, noFlyZones, centralArea));
+        assertEquals(MoveValidityMemo.MISSING, memo.get(otherFrom, from, noFlyZones, centralArea));
+
+        withGeneratedWorld(3, dataFetcher -> {
+            MoveValidityMemo sharedMemo = new MoveValidityMemo(MoveValidityMemo.DEFAULT_CAPACITY);
+            ArrayList<ArrayList<DroneMove>> flightPaths = new ArrayList<>();
+            long firstDayMisses = 0;
+            for (int day = 0; day < 2; day++) {
+                PathFinder pathFinder = new PathFinder();
+                pathFinder.setObstacleBitmap(false); // So every move near the central area is tested exactly.
+                pathFinder.setMoveValidityMemo(sharedMemo);
+                Drone drone = new Drone(pathFinder);
+                drone.deliverOrders(dataFetcher.fetchOrders(LocalDate.parse("2023-01-10")));
+                flightPaths.add(drone.getAllDroneMoves());
+                if (day == 0) {
+                    firstDayMisses = sharedMemo.getMisses();
+                    assertTrue(firstDayMisses > 0);
+                }
+            }
+            // Almost every move tested on the first day is found again on the second.
+            assertTrue(sharedMemo.getHits() >= 0.9 * firstDayMisses);
+            assertEquals(flightPaths.get(0).size(), flightPaths.get(1).size());
+            for (int i = 0; i < flightPaths.get(0).size(); i++) {
+                assertEquals(flightPaths.get(0).get(i).toLngLat(), flightPaths.get(1).get(i).toLngLat());
+            }
+        });
+    }
+
+    /**
+     * Test that distance fields are saved to a file, reloaded from it while the world is unchanged, and
+     * recomputed when the no-fly zones change.
+     */
+    @Test
+    public void distanceFieldStoreTest() throws IOException {
+        Path file = Files.createTempFile("distance-fields", ".bin");
+        try {
+            Files.delete(file);
+            withGeneratedWorld(3, dataFetcher -> {
+                LngLat restaurant = dataFetcher.getRestaurants()[0].getLngLat();
+
+                DistanceFieldStore store = new DistanceFieldStore(file);
+                DistanceField field = store.getField(restaurant);
+                assertNotNull(field);
+                assertNull(store.getField(new LngLat(0, 0)));
+                assertTrue(field.getMovesToSource(Drone.APPLETON_TOWER_COORDINATES) >=
+                        restaurant.distanceTo(Drone.APPLETON_TOWER_COORDINATES) / Drone.MOVE_LENGTH - 2);
+
+                // A second store maps the saved file without recomputing it.
+                FileTime savedTime = Files.getLastModifiedTime(file);
+                DistanceField reloadedField = new DistanceFieldStore(file).getField(restaurant);
+                assertEquals(savedTime, Files.getLastModifiedTime(file));
+                assertEquals(field.getMovesToSource(Drone.APPLETON_TOWER_COORDINATES),
+                        reloadedField.getMovesToSource(Drone.APPLETON_TOWER_COORDINATES), 0.0);
+
+                // Removing the no-fly zones invalidates the saved fields.
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+                dataFetcher.setNoFlyZones(new NoFlyZone[0]);
+                assertNotNull(store.getField(restaurant));
+                assertNotEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(file));
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Method to check whether a point is more than 0.001 degrees from the depot and every restaurant.
+     * @param point The point to check.
+     * @return True if the point is away from the depot and every restaurant, false otherwise.
+     */
+    private static boolean isAwayFromDepotAndRestaurants(LngLat point) throws IOException {
+        if (point.distanceTo(Drone.APPLETON_TOWER_COORDINATES) < 0.001) {
+            return false;
+        }
+        for (Restaurant restaurant : DataFetcher.getInstance().getRestaurants()) {
+            if (point.distanceTo(restaurant.getLngLat()) < 0.001) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test that configuration overrides replace only their parameter, and that a drone given a configuration
+     * is limited by its battery.
+     */
+    @Test
+    public void droneConfigTest() {
+        DroneConfig config = DroneConfig.getDefault().withOverrides(new String[] {"maxDroneMoves=50",
+                "heuristicWeight = 1.2"});
+        assertEquals(50, config.getMaxDroneMoves());
+        assertEquals(1.2, config.getHeuristicWeight(), 0);
+        assertEquals(DroneConfig.getDefault().getMoveLength(), config.getMoveLength(), 0);
+        assertTrue(config.matchesStartupConfig());
+
+        Drone drone = new Drone(new PathFinder(config), new LegCache(), null, config);
+        assertEquals(50, drone.getMovesRemaining());
+        for (String[] invalid : new String[][] {{"battery", "10"}, {"maxDroneMoves", "-1"}}) {
+            try {
+                config.with(invalid[0], invalid[1]);
+                fail("Expected " + invalid[0] + "=" + invalid[1] + " to be rejected.");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * Test that drones timed by a logical clock stamp their moves with the same ticks on every run, and that a
+     * drone flying routes another drone left in a shared leg cache stamps them with its own ticks.
+     */
+    @Test
+    public void logicalTickClockTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            DroneConfig config = DroneConfig.getStartupConfig().with("tickClock", "logical");
+            ArrayList<ArrayList<DroneMove>> runs = new ArrayList<>();
+            LegCache legCache = new LegCache();
+            for (int run = 0; run < 2; run++) {
+                Drone drone = new Drone(new PathFinder(config), run == 0 ? legCache : new LegCache(), null, config);
+                drone.deliverOrders(dataFetcher.fetchOrders(LocalDate.parse("2023-01-10")));
+                runs.add(drone.getAllDroneMoves());
+            }
+            assertEquals(runs.get(0), runs.get(1));
+            ArrayList<DroneMove> droneMoves = runs.get(0);
+            assertTrue(droneMoves.get(droneMoves.size() - 1).ticksSinceStartOfCalculation() > 0);
+
+            // Every route is in the cache, so the drone never searches and its clock never advances.
+            Drone cachedDrone = new Drone(new PathFinder(config), legCache, null, config);
+            cachedDrone.deliverOrders(dataFetcher.fetchOrders(LocalDate.parse("2023-01-10")));
+            ArrayList<DroneMove> cachedMoves = cachedDrone.getAllDroneMoves();
+            assertEquals(droneMoves.size(), cachedMoves.size());
+            for (int i = 0; i < droneMoves.size(); i++) {
+                assertEquals(droneMoves.get(i).toLngLat(), cachedMoves.get(i).toLngLat());
+                assertEquals(0, cachedMoves.get(i).ticksSinceStartOfCalculation());
+            }
+        });
+    }
+
+    /**
+     * Test that prioritising orders lazily delivers the same orders along the same flight path as planning every
+     * order first, while expanding fewer nodes.
+     */
+    @Test
+    public void lazyPrioritisationTest() throws IOException {
+        withGeneratedWorld(3, dataFetcher -> {
+            ArrayList<ArrayList<DroneMove>> flightPaths = new ArrayList<>();
+            long[] expansions = new long[2];
+            for (int run = 0; run < 2; run++) {
+                PathFinder pathFinder = new PathFinder();
+                Drone drone = new Drone(pathFinder);
+                drone.setLazyPrioritisation(run == 1);
+                drone.deliverOrders(dataFetcher.fetchOrders(LocalDate.parse("2023-01-10")));
+                flightPaths.add(drone.getAllDroneMoves());
+                expansions[run] = pathFinder.getTotalExpansions();
+            }
+            assertTrue(expansions[1] < expansions[0]);
+            assertEquals(flightPaths.get(0).size(), flightPaths.get(1).size());
+            for (int i = 0; i < flightPaths.get(0).size(); i++) {
+                assertEquals(flightPaths.get(0).get(i).toLngLat(), flightPaths.get(1).get(i).toLngLat());
+            }
+        });
+    }
+
+    /**
+     * Test that a search for a restaurant walled in by a no-fly zone is abandoned at the live node limit, that
+     * the drone reports the restaurant's orders as abandoned and delivers the rest, and that a search with a
+     * narrow beam still finds paths around the other zones.
+     */
+    @Test
+    public void memoryBoundedSearchTest() throws IOException {
+        withGeneratedWorld(7, dataFetcher -> {
+            Order[] orders = dataFetcher.fetchOrders(LocalDate.parse("2023-01-10"));
+            LngLat walledIn = null;
+            LngLat reachable = null;
+            for (Order order : orders) {
+                if (order.isOrderValid()) {
+                    LngLat restLocation = order.getRestaurant().getLngLat();
+                    if (walledIn == null) {
+                        walledIn = restLocation;
+                    } else if (!restLocation.equals(walledIn)) {
+                        reachable = restLocation;
+                    }
+                }
+            }
+            assertNotNull(reachable);
+
+            PathFinder beamPathFinder = new PathFinder();
+            beamPathFinder.setBeamWidth(16);
+            ArrayList<Node> beamPath = beamPathFinder.findPath(Drone.APPLETON_TOWER_COORDINATES, reachable,
+                    new LogicalTickClock());
+            assertNotNull(beamPath);
+            assertTrue(beamPath.get(beamPath.size() - 1).getLngLat().closeTo(reachable));
+
+            double half = 3 * Drone.MOVE_LENGTH;
+            ArrayList<NoFlyZone> zones = new ArrayList<>(Arrays.asList(dataFetcher.getNoFlyZones()));
+            zones.add(new NoFlyZone("Wall", new LngLat[] {
+                    new LngLat(walledIn.lng() - half, walledIn.lat() - half),
+                    new LngLat(walledIn.lng() + half, walledIn.lat() - half),
+                    new LngLat(walledIn.lng() + half, walledIn.lat() + half),
+                    new LngLat(walledIn.lng() - half, walledIn.lat() + half),
+                    new LngLat(walledIn.lng() - half, walledIn.lat() - half)}));
+            dataFetcher.setNoFlyZones(zones.toArray(new NoFlyZone[0]));
+
+            PathFinder pathFinder = new PathFinder();
+            pathFinder.setMaxLiveNodes(20000);
+            try {
+                pathFinder.findPath(Drone.APPLETON_TOWER_COORDINATES, walledIn, new LogicalTickClock());
+                fail("Expected the search for a walled in restaurant to be abandoned.");
+            } catch (SearchAbandonedException e) {
+                // Expected.
+            }
+
+            Drone drone = new Drone(pathFinder);
+            drone.deliverOrders(orders);
+            int delivered = 0;
+            ArrayList<Order> walledInOrders = new ArrayList<>();
+            for (Order order : orders) {
+                if (order.getOrderOutcome() == OrderOutcome.Delivered) {
+                    assertFalse(order.getRestaurant().getLngLat().equals(walledIn));
+                    delivered++;
+                } else if (order.isOrderValid() && order.getRestaurant().getLngLat().equals(walledIn)) {
+                    walledInOrders.add(order);
+                }
+            }
+            assertTrue(delivered > 0);
+            assertFalse(walledInOrders.isEmpty());
+            assertEquals(walledInOrders, drone.getAbandonedOrders());
+
+            try {
+                pathFinder.setMaxLiveNodes(0);
+                fail("Expected a live node limit of 0 to be rejected.");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        });
+    }
+
+    /**
+     * Test that every path found with the line of sight tried first is valid and no longer than the path found by
+     * searching, between the depot and each restaurant and random points, and that some are traced.
+     */
+    @Test
+    public void lineOfSightTest() throws IOException {
+        for (long seed : new long[] {3, 7}) {
+            withGeneratedWorld(seed, dataFetcher -> {
+                ArrayList<LngLat[]> legs = new ArrayList<>();
+                for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+                    legs.add(new LngLat[] {Drone.APPLETON_TOWER_COORDINATES, restaurant.getLngLat()});
+                    legs.add(new LngLat[] {restaurant.getLngLat(), Drone.APPLETON_TOWER_COORDINATES});
+                }
+                ArrayList<Path2D> zonePolygons = new ArrayList<>();
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    zonePolygons.add(toPolygon(noFlyZone.getCoordinatesLngLat()));
+                }
+                Random random = new Random(seed);
+                while (legs.size() < 50) {
+                    LngLat point = new LngLat(-3.196 + random.nextDouble() * 0.015,
+                            55.940 + random.nextDouble() * 0.01);
+                    if (zonePolygons.stream().noneMatch(zone -> zone.contains(point.lng(), point.lat()))) {
+                        legs.add(new LngLat[] {Drone.APPLETON_TOWER_COORDINATES, point});
+                        legs.add(new LngLat[] {point, Drone.APPLETON_TOWER_COORDINATES});
+                    }
+                }
+
+                int traced = 0;
+                for (LngLat[] leg : legs) {
+                    ArrayList<Node> searchedPath = new PathFinder().findPath(leg[0], leg[1], new LogicalTickClock());
+                    assertNotNull(searchedPath);
+                    PathFinder pathFinder = new PathFinder();
+                    pathFinder.setLineOfSight(true);
+                    ArrayList<Node> path = pathFinder.findPath(leg[0], leg[1], new LogicalTickClock());
+                    assertNotNull(path);
+                    assertTrue(path.get(path.size() - 1).getLngLat().closeTo(leg[1]));
+                    assertPathValid(path, dataFetcher);
+                    assertTrue(path.size() <= searchedPath.size());
+                    // A traced path expands one node per move, and no search does.
+                    if (pathFinder.getTotalExpansions() == path.size() - 1) {
+                        traced++;
+                    }
+                }
+                assertTrue(traced > 0);
+            });
+        }
+    }
+
+    /**
+     * Test that a search with neighbour pruning reaches the same points as a search without it, with valid paths
+     * no longer than the unpruned paths, for legs from the depot to each restaurant, to points just off the corners
+     * of each no-fly zone, and to random points.
+     */
+    @Test
+    public void neighbourPruningTest() throws IOException {
+        for (long seed : new long[] {3, 7}) {
+            withGeneratedWorld(seed, dataFetcher -> {
+                ArrayList<LngLat> points = new ArrayList<>();
+                for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+                    points.add(restaurant.getLngLat());
+                }
+                ArrayList<Path2D> zonePolygons = new ArrayList<>();
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    zonePolygons.add(toPolygon(noFlyZone.getCoordinatesLngLat()));
+                }
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    LngLat[] vertices = noFlyZone.getCoordinatesLngLat();
+                    double centreLng = Arrays.stream(vertices).mapToDouble(LngLat::lng).average().orElseThrow();
+                    double centreLat = Arrays.stream(vertices).mapToDouble(LngLat::lat).average().orElseThrow();
+                    for (LngLat vertex : vertices) {
+                        // A point two moves beyond the corner, away from the zone's centre.
+                        double distance = vertex.distanceTo(new LngLat(centreLng, centreLat));
+                        double scale = 1 + 2 * Drone.MOVE_LENGTH / distance;
+                        points.add(new LngLat(centreLng + (vertex.lng() - centreLng) * scale,
+                                centreLat + (vertex.lat() - centreLat) * scale));
+                    }
+                }
+                Random random = new Random(seed);
+                for (int i = 0; i < 20; i++) {
+                    points.add(new LngLat(-3.196 + random.nextDouble() * 0.015, 55.940 + random.nextDouble() * 0.01));
+                }
+                points.removeIf(point -> zonePolygons.stream().anyMatch(zone -> zone.contains(point.lng(),
+                        point.lat())));
+
+                for (LngLat point : points) {
+                    for (LngLat[] leg : new LngLat[][] {{Drone.APPLETON_TOWER_COORDINATES, point},
+                            {point, Drone.APPLETON_TOWER_COORDINATES}}) {
+                        ArrayList<Node> path = new PathFinder().findPath(leg[0], leg[1], new LogicalTickClock());
+                        PathFinder pathFinder = new PathFinder();
+                        pathFinder.setNeighbourPruning(true);
+                        ArrayList<Node> prunedPath = pathFinder.findPath(leg[0], leg[1], new LogicalTickClock());
+                        assertEquals(path == null, prunedPath == null);
+                        if (path != null) {
+                            assertPathValid(prunedPath, dataFetcher);
+                            assertTrue(prunedPath.get(prunedPath.size() - 1).getLngLat().closeTo(leg[1]));
+                            assertTrue(prunedPath.size() <= path.size());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Method to check that no move of a path crosses a no-fly zone edge, and that the path crosses the central
+     * area boundary at most once.
+     * @param path The path.
+     * @param dataFetcher The DataFetcher, fetching the no-fly zones and central area.
+     * @throws IOException If the no-fly zones or central area cannot be fetched.
+     */
+    private static void assertPathValid(ArrayList<Node> path, DataFetcher dataFetcher) throws IOException {
+        ArrayList<LngLat[]> zones = new ArrayList<>();
+        for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+            zones.add(noFlyZone.getCoordinatesLngLat());
+        }
+        int caCrossings = 0;
+        for (int i = 1; i < path.size(); i++) {
+            LngLat from = path.get(i - 1).getLngLat();
+            LngLat to = path.get(i).getLngLat();
+            for (LngLat[] zone : zones) {
+                assertFalse("Move crosses a no-fly zone: " + from + " to " + to, crossesPolygon(from, to, zone));
+            }
+            caCrossings += crossesPolygon(from, to, dataFetcher.getCentralArea()) ? 1 : 0;
+        }
+        assertTrue("Path crosses the central area boundary " + caCrossings + " times", caCrossings <= 1);
+    }
+
+    /**
+     * Method to check if a move crosses an edge of a closed polygon.
+     * @param from The start of the move.
+     * @param to The end of the move.
+     * @param vertices The vertices of the polygon, which is closed whether or not the last vertex repeats the first.
+     * @return True if the move crosses an edge of the polygon, false otherwise.
+     */
+    private static boolean crossesPolygon(LngLat from, LngLat to, LngLat[] vertices) {
+        for (int i = 0; i < vertices.length; i++) {
+            LngLat vertex1 = vertices[i];
+            LngLat vertex2 = vertices[(i + 1) % vertices.length];
+            if (Line2D.linesIntersect(vertex1.lng(), vertex1.lat(), vertex2.lng(), vertex2.lat(), from.lng(),
+                    from.lat(), to.lng(), to.lat())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to create a polygon from its vertices.
+     * @param vertices The vertices of the polygon.
+     * @return The closed polygon.
+     */
+    private static Path2D toPolygon(LngLat[] vertices) {
+        Path2D polygon = new Path2D.Double();
+        polygon.moveTo(vertices[0].lng(), vertices[0].lat());
+        for (int i = 1; i < vertices.length; i++) {
+            polygon.lineTo(vertices[i].lng(), vertices[i].lat());
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    /**
+     * Test that the octile and landmark heuristics never estimate more than the exact remaining distance, at every
+     * point of the shortest paths between the depot and each restaurant, and from just off each corner of each
+     * no-fly zone to the depot, in a generated world and in one crowded with no-fly zones. The shortest paths are
+     * found by A* with the octile heuristic, which is admissible, so every point's remaining path is shortest too.
+     */
+    @Test
+    public void heuristicAdmissibilityTest() throws IOException {
+        WorldGenerator crowdedWorld = new WorldGenerator(11);
+        crowdedWorld.setNoFlyZoneCount(10);
+        for (WorldGenerator worldGenerator : new WorldGenerator[] {new WorldGenerator(7), crowdedWorld}) {
+            withGeneratedWorld(worldGenerator, dataFetcher -> {
+                ArrayList<LngLat[]> legs = new ArrayList<>();
+                for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+                    legs.add(new LngLat[] {Drone.APPLETON_TOWER_COORDINATES, restaurant.getLngLat()});
+                    legs.add(new LngLat[] {restaurant.getLngLat(), Drone.APPLETON_TOWER_COORDINATES});
+                }
+                ArrayList<Path2D> zonePolygons = new ArrayList<>();
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    zonePolygons.add(toPolygon(noFlyZone.getCoordinatesLngLat()));
+                }
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    LngLat[] vertices = noFlyZone.getCoordinatesLngLat();
+                    double centreLng = Arrays.stream(vertices).mapToDouble(LngLat::lng).average().orElseThrow();
+                    double centreLat = Arrays.stream(vertices).mapToDouble(LngLat::lat).average().orElseThrow();
+                    for (int i = 0; i < vertices.length - 1; i++) {
+                        // A point one move beyond the corner, away from the zone's centre.
+                        double scale = 1 + Drone.MOVE_LENGTH / vertices[i].distanceTo(new LngLat(centreLng, centreLat));
+                        LngLat point = new LngLat(centreLng + (vertices[i].lng() - centreLng) * scale,
+                                centreLat + (vertices[i].lat() - centreLat) * scale);
+                        if (zonePolygons.stream().noneMatch(zone -> zone.contains(point.lng(), point.lat()))) {
+                            legs.add(new LngLat[] {point, Drone.APPLETON_TOWER_COORDINATES});
+                        }
+                    }
+                }
+
+                OctileHeuristic octileHeuristic = new OctileHeuristic();
+                LandmarkHeuristic landmarkHeuristic = LandmarkHeuristic.create();
+                for (LngLat[] leg : legs) {
+                    PathFinder pathFinder = new PathFinder();
+                    pathFinder.setHeuristic(new OctileHeuristic());
+                    ArrayList<Node> path = pathFinder.findPath(leg[0], leg[1], new LogicalTickClock());
+                    assertNotNull(path);
+                    for (int i = 0; i < path.size(); i++) {
+                        LngLat point = path.get(i).getLngLat();
+                        double remainingDistance = (path.size() - 1 - i) * Drone.MOVE_LENGTH + 1e-12;
+                        assertTrue(octileHeuristic.estimate(point, leg[1]) <= remainingDistance);
+                        assertTrue(landmarkHeuristic.estimate(point, leg[1]) <= remainingDistance);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Test that one search from the depot finds a path to every restaurant and to random points exactly when
+     * their own searches do, each valid and at most a tenth and two moves longer than the path found by its own
+     * search, while expanding fewer nodes than the searches for each end point in turn, and that the search is
+     * abandoned like findPath at the live node limit.
+     */
+    @Test
+    public void findPathsTest() throws IOException {
+        for (long seed : new long[] {3, 7}) {
+            withGeneratedWorld(seed, dataFetcher -> {
+                ArrayList<LngLat> endPoints = new ArrayList<>();
+                for (Restaurant restaurant : dataFetcher.getRestaurants()) {
+                    endPoints.add(restaurant.getLngLat());
+                }
+                Random random = new Random(seed);
+                for (int i = 0; i < 10; i++) {
+                    endPoints.add(new LngLat(-3.196 + random.nextDouble() * 0.015,
+                            55.940 + random.nextDouble() * 0.01));
+                }
+                ArrayList<Path2D> zonePolygons = new ArrayList<>();
+                for (NoFlyZone noFlyZone : dataFetcher.getNoFlyZones()) {
+                    zonePolygons.add(toPolygon(noFlyZone.getCoordinatesLngLat()));
+                }
+                endPoints.removeIf(point -> zonePolygons.stream().anyMatch(zone -> zone.contains(point.lng(),
+                        point.lat())));
+                LngLat start = Drone.APPLETON_TOWER_COORDINATES;
+
+                PathFinder pathFinder = new PathFinder();
+                ArrayList<ArrayList<Node>> paths = pathFinder.findPaths(start, endPoints, new LogicalTickClock());
+                long sharedExpansions = pathFinder.getTotalExpansions();
+
+                PathFinder separatePathFinder = new PathFinder();
+                assertEquals(endPoints.size(), paths.size());
+                for (int i = 0; i < endPoints.size(); i++) {
+                    ArrayList<Node> path = paths.get(i);
+                    ArrayList<Node> separatePath = separatePathFinder.findPath(start, endPoints.get(i),
+                            new LogicalTickClock());
+                    assertEquals(separatePath == null, path == null);
+                    if (path != null) {
+                        assertEquals(start, path.get(0).getLngLat());
+                        assertTrue(path.get(path.size() - 1).getLngLat().closeTo(endPoints.get(i)));
+                        assertPathValid(path, dataFetcher);
+                        assertTrue(path.size() * 10 <= separatePath.size() * 11 + 20);
+                    }
+                }
+                assertTrue(sharedExpansions < separatePathFinder.getTotalExpansions());
+
+                PathFinder limitedPathFinder = new PathFinder();
+                limitedPathFinder.setMaxLiveNodes(100);
+                try {
+                    limitedPathFinder.findPaths(start, endPoints, new LogicalTickClock());
+                    fail("Expected the search to be abandoned at the live node limit.");
+                } catch (SearchAbandonedException e) {
+                    // Expected.
+                }
+            });
+        }
+    }
+
+    /**
+     * Test that orders read from a newline-delimited JSON file split into many chunks, and from the binary file it
+     * is converted to, are validated exactly as the same orders fetched from the REST server.
+     */
+    @Test
+    public void orderFileReaderTest() throws IOException {
+        WorldGenerator worldGenerator = new WorldGenerator(3);
+        Path jsonFile = Files.createTempFile("orders-", ".ndjson");
+        Path binaryFile = Files.createTempFile("orders-", ".bin");
+        try {
+            withGeneratedWorld(worldGenerator, dataFetcher -> {
+                Restaurant[] restaurants = dataFetcher.getRestaurants();
+                StringBuilder lines = new StringBuilder();
+                ConcurrentHashMap<String, OrderRecord> expected = new ConcurrentHashMap<>();
+                for (LocalDate date = LocalDate.parse("2023-01-10"); date.isBefore(LocalDate.parse("2023-01-13"));
+                     date = date.plusDays(1)) {
+                    worldGenerator.getOrdersJson(date).forEach(order -> lines.append(order).append("\r\n"));
+                    lines.append("\n"); // Blank lines are skipped.
+                    for (Order order : dataFetcher.fetchOrders(date)) {
+                        int restaurant = order.isOrderValid()
+                                ? Arrays.asList(restaurants).indexOf(order.getRestaurant()) : -1;
+                        expected.put(order.getOrderNo(), new OrderRecord(order.getOrderNo(), order.getOrderDate(),
+                                order.getOrderOutcome(), restaurant, order.getPriceTotalInPence()));
+                    }
+                }
+                Files.writeString(jsonFile, lines);
+
+                OrderFileReader jsonReader = new OrderFileReader(jsonFile);
+                jsonReader.setChunkBytes(700); // Far smaller than the file, and not a whole number of lines.
+                ConcurrentHashMap<String, OrderRecord> jsonRecords = new ConcurrentHashMap<>();
+                dataFetcher.readOrders(jsonFile, record -> assertNull(jsonRecords.put(record.orderNo(), record)));
+                assertEquals(expected, jsonRecords);
+                jsonRecords.clear();
+                jsonReader.forEachOrder(record -> assertNull(jsonRecords.put(record.orderNo(), record)));
+                assertEquals(expected, jsonRecords);
+
+                jsonReader.writeBinary(binaryFile);
+                assertTrue(Files.size(binaryFile) < Files.size(jsonFile));
+                ConcurrentHashMap<String, OrderRecord> binaryRecords = new ConcurrentHashMap<>();
+                new OrderFileReader(binaryFile).forEachOrder(record ->
+                        assertNull(binaryRecords.put(record.orderNo(), record)));
+                assertEquals(expected, binaryRecords);
+            });
+        } finally {
+            Files.deleteIfExists(jsonFile);
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    /**
+     * Test that the planning server plans the orders of a date, and orders posted to it, exactly as a Drone run
+     * locally, and rejects malformed requests with a client error.
+     */
+    @Test
+    public void planningServerTest() throws IOException {
+        WorldGenerator worldGenerator = new WorldGenerator(3);
+        withGeneratedWorld(worldGenerator, dataFetcher -> {
+            LocalDate date = LocalDate.parse("2023-01-10");
+            Order[] orders = dataFetcher.fetchOrders(date);
+            Drone drone = new Drone();
+            drone.deliverOrders(orders);
+            int moveCount = drone.getAllDroneMoves().size();
+            assertTrue(moveCount > 0);
+            String ordersJson = worldGenerator.getOrdersJson(date).toString(); // As served by the REST server.
+
+            PlanningServer server = new PlanningServer(0, false);
+            server.start();
+            try {
+                ObjectMapper objectMapper = new ObjectMapper();
+                String planUrl = server.getPlanUrl();
+                for (JsonNode plan : new JsonNode[] {
+                        objectMapper.readTree(sendRequest("GET", planUrl + "?date=" + date, null, 200)),
+                        objectMapper.readTree(sendRequest("POST", planUrl, ordersJson, 200))}) {
+                    JsonNode deliveries = plan.get("deliveries");
+                    assertEquals(orders.length, deliveries.size());
+                    for (int i = 0; i < orders.length; i++) {
+                        assertEquals(orders[i].getOrderNo(), deliveries.get(i).get("orderNo").asText());
+                        assertEquals(orders[i].getOrderOutcome().toString(),
+                                deliveries.get(i).get("outcome").asText());
+                        assertEquals(orders[i].getPriceTotalInPence(), deliveries.get(i).get("costInPence").asInt());
+                    }
+                    assertEquals(moveCount, plan.get("flightpath").size());
+                    assertEquals(0, plan.get("abandonedOrders").size());
+
+                    JsonNode geoJson = plan.get("geojson");
+                    assertEquals("FeatureCollection", geoJson.get("type").asText());
+                    JsonNode geometry = geoJson.get("features").get(0).get("geometry");
+                    assertEquals("LineString", geometry.get("type").asText());
+                    assertEquals(moveCount, geometry.get("coordinates").size());
+                    assertNull(plan.get("compressedFlightpath"));
+                }
+                // Searches from the same depot and restaurants test the same moves, through the one shared memo.
+                assertTrue(server.getMoveValidityMemo().getHits() > 0);
+                JsonNode compressedPlan = objectMapper.readTree(
+                        sendRequest("GET", planUrl + "?date=" + date + "&compressed=true", null, 200));
+                assertTrue(compressedPlan.get("compressedFlightpath").size() > 0);
+                assertEquals("FeatureCollection", compressedPlan.get("simplifiedGeojson").get("type").asText());
+
+                sendRequest("GET", planUrl + "?date=2023-13-40", null, 400);
+                sendRequest("GET", planUrl, null, 400);
+                sendRequest("POST", planUrl, "not json", 400);
+                sendRequest("POST", planUrl, "null", 400);
+                sendRequest("PUT", planUrl, "[]", 405);
+            } finally {
+                server.stop();
+            }
+        });
+    }
+
 }
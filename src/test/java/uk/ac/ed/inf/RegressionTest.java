@@ -0,0 +1,306 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression tests running every path finding engine against recorded fixtures: generated worlds and dates whose
+ * order outcomes, flight path lengths, node expansions, planning times and allocations were recorded in
+ * src/test/resources/regression. Engines that estimate route lengths differently may deliver different orders, so
+ * the results are recorded for each engine. Each run must give every order the engine's recorded outcome, fly a
+ * path of about the recorded length that is valid (no move crosses a no-fly zone, and no leg crosses the central
+ * area boundary more than once), and not expand many more nodes than recorded. Node expansions are the same on
+ * every machine, so they are held close to the recorded number. Planning time and allocation depend on the
+ * machine, its load and the JIT compiler, so they are only held to a few times the recorded values, which still
+ * catches a change that makes planning much slower or allocate much more.
+ * <p>
+ * Baselines are recorded for engines that have none with "mvn test -Dtest=RegressionTest -Dregression.record=true",
+ * which leaves every baseline already recorded as it is, so later changes are measured against it. An engine whose
+ * results are meant to change is recorded again by naming it, as in "-Dregression.record=default,octile".
+ */
+@RunWith(Parameterized.class)
+public class RegressionTest {
+
+    // Seed of the generated world and date of each fixture.
+    private static final Object[][] FIXTURES = {{3L, "2023-01-10"}, {7L, "2023-01-10"}};
+
+    // Directory the fixtures are recorded to, relative to the project directory.
+    private static final Path FIXTURE_DIRECTORY = Paths.get("src", "test", "resources", "regression");
+
+    // Value of the regression.record property: empty to check the fixtures, "true" to record baselines for
+    // engines without one, or the comma-separated names of engines whose baselines are recorded again.
+    private static final String RECORD = System.getProperty("regression.record", "");
+
+    // Fraction by which the number of moves flown may differ from the recorded number.
+    private static final double MOVE_TOLERANCE = 0.02;
+
+    // Factor by which the number of nodes expanded may exceed the recorded number.
+    private static final double EXPANSION_GROWTH_FACTOR = 1.1;
+
+    // Factor and margin (in milliseconds) by which the time taken to plan the day may exceed the recorded time.
+    private static final double TIME_GROWTH_FACTOR = 3.0;
+    private static final long TIME_MARGIN_MILLIS = 1000;
+
+    // Factor and margin (in bytes) by which the memory allocated while planning may exceed the recorded amount.
+    private static final double ALLOCATION_GROWTH_FACTOR = 2.0;
+    private static final long ALLOCATION_MARGIN_BYTES = 32L << 20;
+
+    // Number of times each engine plans the day, the fastest of which is timed, so JIT compilation and other
+    // one-off costs do not count.
+    private static final int TIMED_RUNS = 2;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // Seed of the generated world, date and path finding engine tested.
+    private final long seed;
+    private final LocalDate date;
+    private final String engine;
+
+    /**
+     * Class constructor to initialise a test of one engine against one fixture.
+     * @param seed Seed of the generated world.
+     * @param date Date whose orders are delivered.
+     * @param engine Name of the path finding engine, one of LoadTest.ENGINES.
+     */
+    public RegressionTest(long seed, String date, String engine) {
+        this.seed = seed;
+        this.date = LocalDate.parse(date);
+        this.engine = engine;
+    }
+
+    /**
+     * Method to list every combination of fixture and engine tested.
+     * @return The seed, date and engine of each test.
+     */
+    @Parameterized.Parameters(name = "seed {0} on {1}, {2}")
+    public static Collection<Object[]> getParameters() {
+        ArrayList<Object[]> parameters = new ArrayList<>();
+        for (Object[] fixture : FIXTURES) {
+            for (String engine : LoadTest.ENGINES) {
+                parameters.add(new Object[] {fixture[0], fixture[1], engine});
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Test that the engine delivers the fixture's orders as recorded, along a valid path, without expanding many
+     * more nodes than recorded.
+     */
+    @Test
+    public void engineMatchesFixtureTest() throws IOException {
+        LocalRestServer server = new LocalRestServer(new WorldGenerator(this.seed), 0);
+        server.start();
+        try {
+            DataFetcher dataFetcher = DataFetcher.getInstance();
+            dataFetcher.setBaseUrl(server.getBaseUrl());
+
+            Order[] orders = null;
+            Drone drone = null;
+            long elapsedMillis = Long.MAX_VALUE;
+            long allocatedBytes = Long.MAX_VALUE;
+            long expansions = 0;
+            for (int run = 0; run < TIMED_RUNS; run++) {
+                orders = dataFetcher.fetchOrders(this.date); // Fetched before timing, so only planning is timed.
+                long startAllocatedBytes = getAllocatedBytes();
+                long startTime = System.nanoTime();
+                PathFinder pathFinder = LoadTest.createPathFinder(this.engine);
+                drone = LoadTest.createDrone(this.engine, pathFinder);
+                drone.deliverOrders(orders);
+                elapsedMillis = Math.min(elapsedMillis, (System.nanoTime() - startTime) / 1_000_000);
+                allocatedBytes = Math.min(allocatedBytes, getAllocatedBytes() - startAllocatedBytes);
+                expansions = pathFinder.getTotalExpansions();
+            }
+            ArrayList<DroneMove> droneMoves = drone.getAllDroneMoves();
+            assertPathValid(droneMoves, dataFetcher.getNoFlyZones(), dataFetcher.getCentralArea());
+
+            JsonNode fixture = this.readFixture();
+            if (!RECORD.isEmpty()) {
+                this.record(fixture, orders, droneMoves.size(), expansions, elapsedMillis, allocatedBytes);
+                return;
+            }
+            assertNotNull("No fixture recorded for seed " + this.seed + " on " + this.date, fixture);
+            JsonNode baseline = fixture.get("engines").get(this.engine);
+            assertNotNull("No baseline recorded for engine " + this.engine, baseline);
+            JsonNode outcomes = baseline.get("outcomes");
+            assertEquals(orders.length, outcomes.size());
+            for (Order order : orders) {
+                assertEquals("Outcome of order " + order.getOrderNo(), outcomes.get(order.getOrderNo()).asText(),
+                        order.getOrderOutcome().toString());
+            }
+            int recordedMoves = baseline.get("moves").asInt();
+            assertTrue("Moves flown: " + droneMoves.size() + ", recorded: " + recordedMoves,
+                    Math.abs(droneMoves.size() - recordedMoves) <= MOVE_TOLERANCE * recordedMoves);
+            long recordedExpansions = baseline.get("expansions").asLong();
+            assertTrue("Nodes expanded: " + expansions + ", recorded: " + recordedExpansions,
+                    expansions <= recordedExpansions * EXPANSION_GROWTH_FACTOR);
+            long recordedMillis = baseline.get("timeMs").asLong();
+            assertTrue("Planning time: " + elapsedMillis + "ms, recorded: " + recordedMillis + "ms",
+                    elapsedMillis <= recordedMillis * TIME_GROWTH_FACTOR + TIME_MARGIN_MILLIS);
+            long recordedBytes = baseline.get("allocatedBytes").asLong();
+            assertTrue("Allocated: " + allocatedBytes + " bytes, recorded: " + recordedBytes + " bytes",
+                    allocatedBytes <= recordedBytes * ALLOCATION_GROWTH_FACTOR + ALLOCATION_MARGIN_BYTES);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Method to check that no move crosses a no-fly zone, and that no leg (the moves between two hovers) crosses
+     * the central area boundary more than once.
+     * @param droneMoves The moves flown by the drone.
+     * @param noFlyZones The no-fly zones.
+     * @param centralArea The vertices of the central area.
+     */
+    private static void assertPathValid(ArrayList<DroneMove> droneMoves, NoFlyZone[] noFlyZones,
+                                        LngLat[] centralArea) {
+        ArrayList<Path2D> zonePolygons = new ArrayList<>();
+        for (NoFlyZone noFlyZone : noFlyZones) {
+            zonePolygons.add(toPolygon(noFlyZone.getCoordinatesLngLat()));
+        }
+        int caCrossings = 0;
+        for (DroneMove move : droneMoves) {
+            if (move.stepDirectionAngle() == null) {
+                caCrossings = 0; // A hover ends the leg.
+                continue;
+            }
+            for (int i = 0; i < noFlyZones.length; i++) {
+                assertFalse("Move ends in a no-fly zone: " + move,
+                        zonePolygons.get(i).contains(move.toLngLat().lng(), move.toLngLat().lat()));
+                assertFalse("Move crosses a no-fly zone: " + move,
+                        crossesPolygon(move, noFlyZones[i].getCoordinatesLngLat()));
+            }
+            if (crossesPolygon(move, centralArea)) {
+                caCrossings++;
+                assertTrue("Leg crosses the central area boundary more than once: " + move, caCrossings <= 1);
+            }
+        }
+    }
+
+    /**
+     * Method to check if a move crosses an edge of a closed polygon.
+     * @param move The move.
+     * @param vertices The vertices of the polygon, which is closed whether or not the last vertex repeats the first.
+     * @return True if the move crosses an edge of the polygon, false otherwise.
+     */
+    private static boolean crossesPolygon(DroneMove move, LngLat[] vertices) {
+        for (int i = 0; i < vertices.length; i++) {
+            LngLat start = vertices[i];
+            LngLat end = vertices[(i + 1) % vertices.length];
+            if (Line2D.linesIntersect(start.lng(), start.lat(), end.lng(), end.lat(), move.fromLngLat().lng(),
+                    move.fromLngLat().lat(), move.toLngLat().lng(), move.toLngLat().lat())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to create a polygon from its vertices.
+     * @param vertices The vertices of the polygon.
+     * @return The closed polygon.
+     */
+    private static Path2D toPolygon(LngLat[] vertices) {
+        Path2D polygon = new Path2D.Double();
+        polygon.moveTo(vertices[0].lng(), vertices[0].lat());
+        for (int i = 1; i < vertices.length; i++) {
+            polygon.lineTo(vertices[i].lng(), vertices[i].lat());
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    /**
+     * Method to get the memory allocated so far by every live thread, which includes the threads of any
+     * executor planning routes in parallel.
+     * @return The number of bytes allocated.
+     */
+    private static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBytes = 0;
+        for (long threadBytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            allocatedBytes += Math.max(threadBytes, 0);
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Method to read the fixture of this test's world and date from the test resources.
+     * @return The fixture, or null if it has not been recorded.
+     * @throws IOException If the fixture cannot be read.
+     */
+    private JsonNode readFixture() throws IOException {
+        try (InputStream fixture = RegressionTest.class.getResourceAsStream("/regression/" + this.getFixtureName())) {
+            return fixture == null ? null : OBJECT_MAPPER.readTree(fixture);
+        }
+    }
+
+    /**
+     * Method to record this test's results in its fixture, if the engine has no baseline yet or is named in the
+     * regression.record property. Any other baseline already recorded is left as it is.
+     * @param fixture The fixture read from the test resources, or null if it has not been recorded.
+     * @param orders The orders delivered, with their outcomes.
+     * @param moves The number of moves flown.
+     * @param expansions The number of nodes expanded.
+     * @param elapsedMillis The time taken to plan the day, in milliseconds.
+     * @param allocatedBytes The memory allocated while planning the day, in bytes.
+     * @throws IOException If the fixture cannot be written.
+     */
+    private void record(JsonNode fixture, Order[] orders, int moves, long expansions, long elapsedMillis,
+                        long allocatedBytes) throws IOException {
+        boolean named = Arrays.asList(RECORD.split(",")).contains(this.engine);
+        JsonNode existing = fixture == null ? null : fixture.path("engines").get(this.engine);
+        if (!named && existing != null) {
+            return;
+        }
+        // Re-read from the project directory, which holds the engines recorded by earlier tests in this run.
+        Path file = FIXTURE_DIRECTORY.resolve(this.getFixtureName());
+        ObjectNode recorded = Files.exists(file)
+                ? (ObjectNode) OBJECT_MAPPER.readTree(file.toFile()) : OBJECT_MAPPER.createObjectNode();
+        recorded.put("seed", this.seed);
+        recorded.put("date", this.date.toString());
+        ObjectNode engines = recorded.has("engines")
+                ? (ObjectNode) recorded.get("engines") : recorded.putObject("engines");
+        ObjectNode baseline = engines.putObject(this.engine);
+        baseline.put("moves", moves);
+        baseline.put("expansions", expansions);
+        baseline.put("timeMs", elapsedMillis);
+        baseline.put("allocatedBytes", allocatedBytes);
+        ObjectNode outcomes = baseline.putObject("outcomes");
+        for (Order order : orders) {
+            outcomes.put(order.getOrderNo(), order.getOrderOutcome().toString());
+        }
+
+        Files.createDirectories(FIXTURE_DIRECTORY);
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), recorded);
+    }
+
+    /**
+     * Method to get the name of the file holding this test's fixture.
+     * @return The name of the fixture file.
+     */
+    private String getFixtureName() {
+        return "seed-" + this.seed + "-" + this.date + ".json";
+    }
+
+}